@@ -0,0 +1,110 @@
+package it.unical.thesis.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Minimal JMH-style harness: a timed warmup, then a timed measurement reporting throughput
+ * and the bytes allocated by the benchmark thread per operation.
+ */
+public class BenchmarkRunner {
+
+	private final long warmupNanos;
+
+	private final long measurementNanos;
+
+	private final ThreadMXBean threadBean;
+
+	// results are folded in here so the JIT cannot drop the measured call
+	private volatile int sink;
+
+
+	public BenchmarkRunner(int warmupMillis, int measurementMillis)
+	{
+		this.warmupNanos = warmupMillis * 1_000_000L;
+		this.measurementNanos = measurementMillis * 1_000_000L;
+		this.threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		this.threadBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+
+	public Result run(String name, Supplier<?> operation)
+	{
+		loop(operation, warmupNanos);
+
+		long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+		long start = System.nanoTime();
+		long operations = loop(operation, measurementNanos);
+		long elapsed = System.nanoTime() - start;
+		long allocated = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+		return new Result(name, operations * 1e9 / elapsed, (double) allocated / operations);
+	}
+
+
+	private long loop(Supplier<?> operation, long durationNanos)
+	{
+		long deadline = System.nanoTime() + durationNanos;
+		long operations = 0;
+		int hash = 0;
+		do
+		{
+			hash += System.identityHashCode(operation.get());
+			operations++;
+		}
+		while(System.nanoTime() < deadline);
+		sink += hash;
+		return operations;
+	}
+
+
+	public static class Result {
+
+		private final String name;
+
+		private final double opsPerSecond;
+
+		private final double bytesPerOp;
+
+
+		private Result(String name, double opsPerSecond, double bytesPerOp)
+		{
+			this.name = name;
+			this.opsPerSecond = opsPerSecond;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+
+		public String getName() {
+			return name;
+		}
+
+
+		public double getOpsPerSecond() {
+			return opsPerSecond;
+		}
+
+
+		public double getBytesPerOp() {
+			return bytesPerOp;
+		}
+
+
+		public String toCsv()
+		{
+			return String.format(Locale.ROOT, "%s,%.1f,%.0f", name, opsPerSecond, bytesPerOp);
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return String.format(Locale.ROOT, "%-32s %14.1f ops/s %14.0f B/op", name, opsPerSecond, bytesPerOp);
+		}
+	}
+
+
+}
@@ -0,0 +1,128 @@
+package it.unical.thesis.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmark inputs built from the recorded samples in benchmarks/corpus. Each sample is
+ * replicated to reach the requested size, with distinct addresses and names wherever the
+ * workload calls for distinct access points.
+ */
+public class Corpus {
+
+	private final Path directory;
+
+
+	public Corpus(String directory)
+	{
+		this.directory = Paths.get(directory);
+	}
+
+
+	/**
+	 * frames rows of tshark field output cloned from a single recorded row, with a fresh
+	 * frame.time_relative and signal on every row: the beacon train of a single access point.
+	 */
+	public List<String> tsharkRows(String sampleName, int frames) throws IOException
+	{
+		return tsharkRows(sampleName, frames, 1);
+	}
+
+
+	/**
+	 * frames rows of tshark field output cycling through accessPoints access points, each
+	 * with its own BSSID and SSID, with a fresh frame.time_relative and signal on every row.
+	 */
+	public List<String> tsharkRows(String sampleName, int frames, int accessPoints) throws IOException
+	{
+		String[] fields = read(sampleName).get(0).split("\\|", -1);
+		String ssid = fields[1];
+		List<String> rows = new ArrayList<>(frames);
+		for(int i=0; i<frames; i++)
+		{
+			int ap = i % accessPoints;
+			if(accessPoints > 1)
+			{
+				fields[0] = String.format("\"02:00:00:%02x:%02x:%02x\"", (ap >> 16) & 0xff, (ap >> 8) & 0xff, ap & 0xff);
+				fields[1] = ssid.substring(0, ssid.length()-1) + toHex("-" + ap) + "\"";
+			}
+			fields[47] = "\"" + String.format(Locale.ROOT, "%.9f", i * 0.1024) + "\"";
+			fields[48] = "\"" + (-40 - (i % 30)) + "\"";
+			rows.add(String.join("|", fields));
+		}
+		return rows;
+	}
+
+
+	/**
+	 * An iw scan dump with bssCount BSS blocks, cycling through the recorded ones.
+	 */
+	public List<String> iwScan(int bssCount) throws IOException
+	{
+		List<List<String>> blocks = new ArrayList<>();
+		for(String line: read("iw-scan.txt"))
+		{
+			if(line.startsWith("BSS "))
+			{
+				blocks.add(new ArrayList<>());
+			}
+			if(!blocks.isEmpty())
+			{
+				blocks.get(blocks.size()-1).add(line);
+			}
+		}
+
+		List<String> lines = new ArrayList<>();
+		for(int i=0; i<bssCount; i++)
+		{
+			List<String> block = blocks.get(i % blocks.size());
+			lines.add(String.format("BSS 02:00:00:%02x:%02x:%02x(on wlan0)", (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff));
+			for(String line: block.subList(1, block.size()))
+			{
+				lines.add(line.startsWith("\tSSID: ") ? line + "-" + i : line);
+			}
+		}
+		return lines;
+	}
+
+
+	/**
+	 * A wpa_supplicant -dd log in which the recorded handshake, with its certificate chain,
+	 * appears chains times.
+	 */
+	public List<String> wpaSupplicantLog(int chains) throws IOException
+	{
+		List<String> handshake = read("wpa-supplicant-dd.log");
+		List<String> lines = new ArrayList<>(handshake.size() * chains);
+		for(int i=0; i<chains; i++)
+		{
+			lines.addAll(handshake);
+		}
+		return lines;
+	}
+
+
+	private static String toHex(String text)
+	{
+		StringBuilder hex = new StringBuilder();
+		for(byte b: text.getBytes(StandardCharsets.UTF_8))
+		{
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+
+	private List<String> read(String fileName) throws IOException
+	{
+		return Files.readAllLines(directory.resolve(fileName));
+	}
+
+
+}
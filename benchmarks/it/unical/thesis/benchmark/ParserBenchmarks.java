@@ -0,0 +1,79 @@
+package it.unical.thesis.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unical.thesis.parser.IwParser;
+import it.unical.thesis.parser.SSLCertificateParser;
+import it.unical.thesis.parser.TsharkParser;
+
+/**
+ * Throughput and allocation baseline for the tshark, iw and certificate parsers.
+ *
+ * Usage: ParserBenchmarks [corpusDir] [resultsCsv]
+ */
+public class ParserBenchmarks {
+
+	private static final String DEFAULT_CORPUS_PATH = "./benchmarks/corpus";
+
+	private static final int TSHARK_FRAMES = 1000;
+
+	private static final int[] IW_BSS_COUNTS = {10, 100, 500};
+
+	private static final int MAX_CERT_CHAINS = 4;
+
+	private static final int WARMUP_MILLIS = 2000;
+
+	private static final int MEASUREMENT_MILLIS = 5000;
+
+
+	public static void main(String[] args) throws IOException
+	{
+		Corpus corpus = new Corpus(args.length > 0 ? args[0] : DEFAULT_CORPUS_PATH);
+		BenchmarkRunner runner = new BenchmarkRunner(WARMUP_MILLIS, MEASUREMENT_MILLIS);
+		List<BenchmarkRunner.Result> results = new ArrayList<>();
+
+		List<String> sparseRows = corpus.tsharkRows("tshark-sparse.txt", TSHARK_FRAMES);
+		results.add(report(runner.run("tshark.sparse." + TSHARK_FRAMES, () -> TsharkParser.parseFromTsharkOutput(sparseRows))));
+		List<String> denseRows = corpus.tsharkRows("tshark-dense.txt", TSHARK_FRAMES);
+		results.add(report(runner.run("tshark.dense." + TSHARK_FRAMES, () -> TsharkParser.parseFromTsharkOutput(denseRows))));
+		List<String> distinctRows = corpus.tsharkRows("tshark-dense.txt", TSHARK_FRAMES, TSHARK_FRAMES);
+		results.add(report(runner.run("tshark.dense.distinct." + TSHARK_FRAMES, () -> TsharkParser.parseFromTsharkOutput(distinctRows))));
+
+		for(int bssCount: IW_BSS_COUNTS)
+		{
+			List<String> scan = corpus.iwScan(bssCount);
+			results.add(report(runner.run("iw.scan." + bssCount, () -> IwParser.parseIwScanOutput(scan))));
+		}
+
+		for(int chains=1; chains<=MAX_CERT_CHAINS; chains++)
+		{
+			List<String> log = corpus.wpaSupplicantLog(chains);
+			results.add(report(runner.run("ssl.chains." + chains, () -> SSLCertificateParser.parseMultipleCertificates(log))));
+		}
+
+		if(args.length > 1)
+		{
+			List<String> csv = new ArrayList<>();
+			csv.add("benchmark,ops_per_second,bytes_per_op");
+			for(BenchmarkRunner.Result result: results)
+			{
+				csv.add(result.toCsv());
+			}
+			Files.write(Paths.get(args[1]), csv);
+			System.out.println("Results written to " + args[1]);
+		}
+	}
+
+
+	private static BenchmarkRunner.Result report(BenchmarkRunner.Result result)
+	{
+		System.out.println(result);
+		return result;
+	}
+
+
+}
@@ -0,0 +1,250 @@
+package it.unical.thesis.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import it.unical.thesis.metrics.ProcessMetrics;
+import it.unical.thesis.utils.Log;
+
+/**
+ * End-to-end runs of Main against the stand-in executables, in a fresh working directory each
+ * time. Reports what an operator waits for: the first access point listed, the hostapd
+ * configuration written and the RADIUS certificates extracted, all from JVM launch, plus the
+ * peak RSS of the JVM. Milestones are observed from outside, so they are accurate to about
+ * SAMPLE_INTERVAL_MILLIS.
+ *
+ * Usage: PipelineBenchmark [corpusDir] [latencyScale] [runs] [resultsCsv]
+ */
+public class PipelineBenchmark {
+
+	private static final String DEFAULT_CORPUS_PATH = "./benchmarks/corpus";
+
+	private static final int DEFAULT_RUNS = 3;
+
+	private static final String MAIN_CLASS = "it.unical.thesis.main.Main";
+
+	// the first interface, then the first access point, the 802.1X one in the corpus
+	private static final String OPERATOR_CHOICES = "1\n1\n";
+
+	private static final String ACCESS_POINTS_MARKER = "Available access points";
+
+	// the interface menu uses the same "<n> for <name>" lines, so only those after the marker count
+	private static final String FIRST_ACCESS_POINT_MARKER = "1 for ";
+
+	private static final String CERTIFICATES_MARKER = "Extracted certificates (without duplicates)";
+
+	private static final String HOSTAPD_CONF_PREFIX = "hostapd-";
+
+	private static final int SAMPLE_INTERVAL_MILLIS = 10;
+
+	private static final int RUN_TIMEOUT_SECONDS = 120;
+
+	private static final long NOT_REACHED = -1;
+
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		String corpusPath = args.length > 0 ? args[0] : DEFAULT_CORPUS_PATH;
+		double latencyScale = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+		StandInExecutables standIns = new StandInExecutables(corpusPath, latencyScale);
+
+		List<Result> results = new ArrayList<>();
+		for(int i=0; i<runs; i++)
+		{
+			Path workDirectory = Files.createTempDirectory("conf-weaver-pipeline");
+			try {
+				standIns.install(workDirectory);
+				Result result = run(workDirectory);
+				results.add(result);
+				System.out.println("run " + (i + 1) + ": " + result);
+			}
+			finally {
+				deleteRecursively(workDirectory);
+			}
+		}
+		System.out.println("median: " + median(results));
+
+		if(args.length > 3)
+		{
+			List<String> csv = new ArrayList<>();
+			csv.add("run,first_access_point_ms,hostapd_conf_ms,certificates_ms,total_ms,peak_rss_kb,exit_code");
+			for(int i=0; i<results.size(); i++)
+			{
+				csv.add((i + 1) + "," + results.get(i).toCsv());
+			}
+			Files.write(Paths.get(args[3]), csv);
+		}
+	}
+
+
+	private static Result run(Path workDirectory) throws IOException, InterruptedException
+	{
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), MAIN_CLASS);
+		builder.directory(workDirectory.toFile());
+		builder.redirectErrorStream(true);
+		builder.environment().put("PATH",
+				workDirectory.resolve(StandInExecutables.BIN_DIRECTORY) + File.pathSeparator + System.getenv("PATH"));
+
+		Result result = new Result();
+		long start = System.nanoTime();
+		Process process = builder.start();
+		try (Writer stdin = process.outputWriter(StandardCharsets.UTF_8)) {
+			stdin.write(OPERATOR_CHOICES);
+		}
+
+		Thread outputWatcher = Thread.ofVirtual().start(() -> watchOutput(process, start, result));
+		Path tmpDirectory = workDirectory.resolve("tmp");
+		long deadline = start + TimeUnit.SECONDS.toNanos(RUN_TIMEOUT_SECONDS);
+		while(!process.waitFor(SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS))
+		{
+			// sampled while alive: the counters are gone once the JVM is reaped
+			result.peakRssKb = Math.max(result.peakRssKb, ProcessMetrics.readPeakRssKb(process.pid()));
+			if(result.hostapdConfMillis == NOT_REACHED && hostapdConfWritten(tmpDirectory))
+			{
+				result.hostapdConfMillis = elapsedMillis(start);
+			}
+			if(System.nanoTime() > deadline)
+			{
+				System.err.println("Run did not finish in " + RUN_TIMEOUT_SECONDS + " s, killing it");
+				process.destroyForcibly().waitFor();
+			}
+		}
+		result.totalMillis = elapsedMillis(start);
+		result.exitCode = process.exitValue();
+		if(result.hostapdConfMillis == NOT_REACHED && hostapdConfWritten(tmpDirectory))
+		{
+			result.hostapdConfMillis = result.totalMillis;
+		}
+		outputWatcher.join();
+		return result;
+	}
+
+
+	private static void watchOutput(Process process, long start, Result result)
+	{
+		try (BufferedReader reader = process.inputReader(StandardCharsets.UTF_8)) {
+			String line;
+			boolean listingAccessPoints = false;
+			while((line = reader.readLine()) != null)
+			{
+				if(line.startsWith(ACCESS_POINTS_MARKER))
+				{
+					listingAccessPoints = true;
+				}
+				else if(listingAccessPoints && result.firstAccessPointMillis == NOT_REACHED && line.startsWith(FIRST_ACCESS_POINT_MARKER))
+				{
+					result.firstAccessPointMillis = elapsedMillis(start);
+				}
+				else if(result.certificatesMillis == NOT_REACHED && line.startsWith(CERTIFICATES_MARKER))
+				{
+					result.certificatesMillis = elapsedMillis(start);
+				}
+			}
+		} catch (IOException e) {
+			Log.error("Cannot read the output of Main", e);
+		}
+	}
+
+
+	private static boolean hostapdConfWritten(Path tmpDirectory)
+	{
+		File[] files = tmpDirectory.toFile().listFiles();
+		if(files == null)
+			return false;
+		for(File file: files)
+		{
+			if(file.getName().startsWith(HOSTAPD_CONF_PREFIX) && file.length() > 0)
+				return true;
+		}
+		return false;
+	}
+
+
+	private static long elapsedMillis(long start)
+	{
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+
+	private static Result median(List<Result> results)
+	{
+		Result median = new Result();
+		median.firstAccessPointMillis = median(results, result -> result.firstAccessPointMillis);
+		median.hostapdConfMillis = median(results, result -> result.hostapdConfMillis);
+		median.certificatesMillis = median(results, result -> result.certificatesMillis);
+		median.totalMillis = median(results, result -> result.totalMillis);
+		median.peakRssKb = median(results, result -> result.peakRssKb);
+		median.exitCode = results.stream().allMatch(result -> result.exitCode == 0) ? 0 : 1;
+		return median;
+	}
+
+
+	private static long median(List<Result> results, ToLongFunction<Result> metric)
+	{
+		long[] values = results.stream().mapToLong(metric).sorted().toArray();
+		return values.length == 0 ? NOT_REACHED : values[values.length / 2];
+	}
+
+
+	private static void deleteRecursively(Path directory) throws IOException
+	{
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for(Path path: paths.sorted(Comparator.reverseOrder()).toList())
+			{
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+
+	/**
+	 * Milestones in milliseconds from JVM launch, NOT_REACHED if the run never got there.
+	 */
+	private static class Result {
+
+		private volatile long firstAccessPointMillis = NOT_REACHED;
+
+		private volatile long hostapdConfMillis = NOT_REACHED;
+
+		private volatile long certificatesMillis = NOT_REACHED;
+
+		private long totalMillis;
+
+		private long peakRssKb;
+
+		private int exitCode;
+
+
+		private String toCsv()
+		{
+			return firstAccessPointMillis + "," + hostapdConfMillis + "," + certificatesMillis + "," + totalMillis + ","
+					+ peakRssKb + "," + exitCode;
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return String.format(Locale.ROOT, "first AP %6d ms, hostapd conf %6d ms, certificates %6d ms, total %6d ms, peak RSS %7d kB%s",
+					firstAccessPointMillis, hostapdConfMillis, certificatesMillis, totalMillis, peakRssKb,
+					exitCode == 0 ? "" : ", exit " + exitCode);
+		}
+	}
+
+
+}
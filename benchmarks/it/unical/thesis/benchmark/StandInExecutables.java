@@ -0,0 +1,126 @@
+package it.unical.thesis.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import it.unical.thesis.process.ReplayProfile;
+
+/**
+ * Shell scripts standing in for the tools in ReplayProfile.REAL_RUN. Each one matches its
+ * command line against the profiles of its program and replays the recording from the corpus
+ * with the profile's delays multiplied by latencyScale; other command lines print nothing and
+ * exit after the default delay.
+ */
+public class StandInExecutables {
+
+	public static final String BIN_DIRECTORY = "bin";
+
+	private static final String RECORDINGS_DIRECTORY = "recordings";
+
+	// the command line as ReplayCommandRunner sees it, the program reduced to its file name
+	private static final String SCRIPT_HEADER =
+			"#!/bin/bash\n" +
+			"command=\"${0##*/}${*:+ $*}\"\n";
+
+	private static final String REPLAY_SCRIPT =
+			"#!/bin/bash\n" +
+			"# replay <recording|-> <start delay> <line interval> <exit delay|hold>\n" +
+			"sleep \"$2\"\n" +
+			"if [ \"$1\" != - ]; then\n" +
+			"\twhile IFS= read -r line || [ -n \"$line\" ]; do\n" +
+			"\t\tprintf '%s\\n' \"$line\"\n" +
+			"\t\t[ \"$3\" = 0 ] || sleep \"$3\"\n" +
+			"\tdone < \"$1\"\n" +
+			"fi\n" +
+			"[ \"$4\" = hold ] && exec sleep infinity\n" +
+			"sleep \"$4\"\n" +
+			"exit 0\n";
+
+	private final Path corpus;
+
+	private final double latencyScale;
+
+
+	public StandInExecutables(String corpusDirectory, double latencyScale)
+	{
+		this.corpus = Path.of(corpusDirectory).toAbsolutePath();
+		this.latencyScale = latencyScale;
+	}
+
+
+	/**
+	 * Writes the stand-ins into workDirectory: the tools into bin, to be put first on PATH,
+	 * the patched supplicant into exe and the bootstrap script into bash_scripts, where Main
+	 * looks for them.
+	 */
+	public void install(Path workDirectory) throws IOException
+	{
+		Path bin = workDirectory.resolve(BIN_DIRECTORY);
+		Path replay = bin.resolve("replay");
+		write(replay, REPLAY_SCRIPT);
+
+		Map<String, StringBuilder> scripts = new LinkedHashMap<>();
+		List<ReplayProfile> profiles = ReplayProfile.REAL_RUN;
+		for(int i=0; i<profiles.size(); i++)
+		{
+			ReplayProfile profile = profiles.get(i);
+			List<String> lines = profile.lines(corpus);
+			if(lines == null)
+				continue;
+			String source = "-";
+			if(!lines.isEmpty())
+			{
+				Path recording = workDirectory.resolve(RECORDINGS_DIRECTORY).resolve(i + ".txt");
+				Files.createDirectories(recording.getParent());
+				Files.write(recording, lines);
+				source = recording.toString();
+			}
+			Duration exitDelay = profile.getExitDelay();
+			scripts.computeIfAbsent(profile.getProgram(), program -> new StringBuilder(SCRIPT_HEADER))
+					.append("re='^").append(profile.getCommandPattern()).append("$'\n")
+					.append("[[ $command =~ $re ]] && exec ")
+					.append(replay(replay, source, profile.getStartDelay(),
+							profile.outputSpan(lines.size()).dividedBy(Math.max(1, lines.size())), exitDelay))
+					.append('\n');
+		}
+
+		for(Map.Entry<String, StringBuilder> script: scripts.entrySet())
+		{
+			String content = script.getValue().append("exec ")
+					.append(replay(replay, "-", Duration.ZERO, Duration.ZERO, ReplayProfile.DEFAULT_DELAY)).append('\n').toString();
+			write(bin.resolve(script.getKey()), content);
+		}
+		write(workDirectory.resolve("exe").resolve("wpa_supplicant"), Files.readString(bin.resolve("wpa_supplicant")));
+		write(workDirectory.resolve("bash_scripts").resolve("bootstrap_enhanced"), Files.readString(bin.resolve("bootstrap_enhanced")));
+	}
+
+
+	private String replay(Path replay, String source, Duration startDelay, Duration lineInterval, Duration exitDelay)
+	{
+		return "\"" + replay + "\" \"" + source + "\" " + seconds(startDelay) + " " + seconds(lineInterval) + " "
+				+ (exitDelay != null ? seconds(exitDelay) : "hold");
+	}
+
+
+	private String seconds(Duration duration)
+	{
+		double scaled = duration.toNanos() / 1e9 * latencyScale;
+		return scaled == 0 ? "0" : String.format(Locale.ROOT, "%.4f", scaled);
+	}
+
+
+	private static void write(Path script, String content) throws IOException
+	{
+		Files.createDirectories(script.getParent());
+		Files.writeString(script, content);
+		script.toFile().setExecutable(true);
+	}
+
+
+}
@@ -1,207 +1,327 @@
 package it.unical.thesis.data;
 
+import it.unical.thesis.utils.HexCodec;
+
+/**
+ * Access point attributes in a compact form: numbers and flags are primitives tracked by a
+ * presence bitmask, configuration strings are codes into the process-wide StringDictionary and
+ * the BSSID is packed into a long. Values unique to one network (mobility domain, vendor
+ * elements) are kept as plain strings so they do not fill the dictionary. Getters still
+ * return null for attributes that were never set, and the BSSID comes back in lower case.
+ */
 public class AccessPoint {
-    
-    private String bssid;
+
+    private static final int CHANNEL = 0;
+    private static final int WPA = 1;
+    private static final int IEEE80211W = 2;
+    private static final int VHT_OPER_CHWIDTH = 3;
+    private static final int HE_OPER_CHWIDTH = 4;
+    private static final int VHT_OPER_CENTR_FREQ_SEG0_IDX = 5;
+    private static final int HE_BSS_COLOR = 6;
+    private static final int HE_DEFAULT_PE_DURATION = 7;
+    private static final int BEACON_INT = 8;
+    private static final int DTIM_PERIOD = 9;
+    private static final int WPS_STATE = 10;
+
+    private static final int IEEE8021X = 0;
+    private static final int IEEE80211N = 1;
+    private static final int IEEE80211AC = 2;
+    private static final int IEEE80211AX = 3;
+    private static final int IEEE80211D = 4;
+    private static final int IEEE80211H = 5;
+    private static final int WMM_ENABLED = 6;
+    private static final int IGNORE_BROADCAST_SSID = 7;
+    private static final int RRM_NEIGHBOR_REPORT = 8;
+    private static final int RRM_BEACON_REPORT = 9;
+
+    private static final int HW_MODE = 0;
+    private static final int WPA_KEY_MGMT = 1;
+    private static final int RSN_PAIRWISE = 2;
+    private static final int WPA_PAIRWISE = 3;
+    private static final int WPA_GROUPWISE = 4;
+    private static final int RSN_GROUPWISE = 5;
+    private static final int GROUP_MGMT_CIPHER = 6;
+    private static final int HT_CAPAB = 7;
+    private static final int VHT_CAPAB = 8;
+    private static final int HE_CAPAB = 9;
+    private static final int SUPPORTED_RATES = 10;
+    private static final int BASIC_RATES = 11;
+    private static final int COUNTRY_CODE = 12;
+    private static final int MOBILITY_DOMAIN = 13;
+    private static final int VENDOR_ELEMENTS = 14;
+    private static final int TEXT_FIELDS = 15;
+    // fields from here on are not worth sharing and bypass the dictionary
+    private static final int FIRST_PLAIN_TEXT = MOBILITY_DOMAIN;
+
+    private static final int MAC_TEXT_LENGTH = 17;
+    private static final long NO_MAC = -1L;
+
+    // packed BSSID, or NO_MAC with bssidText holding a value that does not pack
+    private long bssid = NO_MAC;
+    private String bssidText;
     private String ssid;
-    private Integer channel;
-    private String hwMode;
-    
-    private Integer wpa;
-    private String wpaKeyMgmt;
-    private String rsnPairwise;
-    private String wpaPairwise;
-    private String wpaGroupwise;
-    private String rsnGroupwise;
-    private String groupMgmtCipher;
-    private Integer ieee80211w;
-    private Boolean ieee8021x;
-    
-    private Boolean ieee80211n;
-    private Boolean ieee80211ac;
-    private Boolean ieee80211ax;
-    private String htCapab;
-    private String vhtCapab;
-    private String heCapab;
-    private Integer vhtOperChwidth;
-    private Integer heOperChwidth;
-    private Integer vhtOperCentrFreqSeg0Idx;
-    private Integer heBssColor;
-    private Integer heDefaultPeDuration;
-    
-    private String supportedRates;
-    private String basicRates;
-    private String countryCode;
-    private Boolean ieee80211d;
-    private Boolean ieee80211h;
-    private Boolean wmmEnabled;
-    
-    private Integer beaconInt;
-    private Integer dtimPeriod;
-    
-    private Boolean ignoreBroadcastSsid;
-    private Integer wpsState;
-    private Boolean rrmNeighborReport;
-    private Boolean rrmBeaconReport;
-    private String mobilityDomain;
-    
-    private String vendorElements;
+
+    private int numbersPresent;
+    private int channel;
+    private int wpa;
+    private int ieee80211w;
+    private int vhtOperChwidth;
+    private int heOperChwidth;
+    private int vhtOperCentrFreqSeg0Idx;
+    private int heBssColor;
+    private int heDefaultPeDuration;
+    private int beaconInt;
+    private int dtimPeriod;
+    private int wpsState;
+
+    private short flagsPresent;
+    private short flagValues;
+
+    private final int[] textCodes = new int[TEXT_FIELDS];
+    // only allocated for plain text fields or once the shared dictionary is full
+    private String[] textOverflow;
     
     
     public AccessPoint() {
     }
     
     public AccessPoint(String bssid, String ssid, Integer channel) {
-        this.bssid = bssid;
+        setBssid(bssid);
         this.ssid = ssid;
-        this.channel = channel;
+        setChannel(channel);
     }
     
     
-    public String getBssid() { return bssid; }
-    public void setBssid(String bssid) { this.bssid = bssid; }
+    public String getBssid() {
+        return bssid != NO_MAC ? unpackMac(bssid) : bssidText;
+    }
+    public void setBssid(String bssid) {
+        this.bssid = packMac(bssid);
+        this.bssidText = this.bssid == NO_MAC ? bssid : null;
+    }
     
     public String getSsid() { return ssid; }
     public void setSsid(String ssid) { this.ssid = ssid; }
     
-    public Integer getChannel() { return channel; }
-    public void setChannel(Integer channel) { this.channel = channel; }
+    public Integer getChannel() { return number(CHANNEL, channel); }
+    public void setChannel(Integer channel) { this.channel = setNumber(CHANNEL, channel); }
     
-    public String getHwMode() { return hwMode; }
-    public void setHwMode(String hwMode) { this.hwMode = hwMode; }
+    public String getHwMode() { return text(HW_MODE); }
+    public void setHwMode(String hwMode) { setText(HW_MODE, hwMode); }
     
-    public Integer getWpa() { return wpa; }
-    public void setWpa(Integer wpa) { this.wpa = wpa; }
+    public Integer getWpa() { return number(WPA, wpa); }
+    public void setWpa(Integer wpa) { this.wpa = setNumber(WPA, wpa); }
     
-    public String getWpaKeyMgmt() { return wpaKeyMgmt; }
-    public void setWpaKeyMgmt(String wpaKeyMgmt) { this.wpaKeyMgmt = wpaKeyMgmt; }
+    public String getWpaKeyMgmt() { return text(WPA_KEY_MGMT); }
+    public void setWpaKeyMgmt(String wpaKeyMgmt) { setText(WPA_KEY_MGMT, wpaKeyMgmt); }
     
-    public String getRsnPairwise() { return rsnPairwise; }
-    public void setRsnPairwise(String rsnPairwise) { this.rsnPairwise = rsnPairwise; }
+    public String getRsnPairwise() { return text(RSN_PAIRWISE); }
+    public void setRsnPairwise(String rsnPairwise) { setText(RSN_PAIRWISE, rsnPairwise); }
     
-    public String getWpaPairwise() { return wpaPairwise; }
-    public void setWpaPairwise(String wpaPairwise) { this.wpaPairwise = wpaPairwise; }
+    public String getWpaPairwise() { return text(WPA_PAIRWISE); }
+    public void setWpaPairwise(String wpaPairwise) { setText(WPA_PAIRWISE, wpaPairwise); }
     
-    public String getGroupMgmtCipher() { return groupMgmtCipher; }
-    public void setGroupMgmtCipher(String groupMgmtCipher) { this.groupMgmtCipher = groupMgmtCipher; }
+    public String getGroupMgmtCipher() { return text(GROUP_MGMT_CIPHER); }
+    public void setGroupMgmtCipher(String groupMgmtCipher) { setText(GROUP_MGMT_CIPHER, groupMgmtCipher); }
     
-    public Integer getIeee80211w() { return ieee80211w; }
-    public void setIeee80211w(Integer ieee80211w) { this.ieee80211w = ieee80211w; }
+    public Integer getIeee80211w() { return number(IEEE80211W, ieee80211w); }
+    public void setIeee80211w(Integer ieee80211w) { this.ieee80211w = setNumber(IEEE80211W, ieee80211w); }
     
-    public Boolean getIeee8021x() { return ieee8021x; }
-    public void setIeee8021x(Boolean ieee8021x) { this.ieee8021x = ieee8021x; }
+    public Boolean getIeee8021x() { return flag(IEEE8021X); }
+    public void setIeee8021x(Boolean ieee8021x) { setFlag(IEEE8021X, ieee8021x); }
     
-    public Boolean getIeee80211n() { return ieee80211n; }
-    public void setIeee80211n(Boolean ieee80211n) { this.ieee80211n = ieee80211n; }
+    public Boolean getIeee80211n() { return flag(IEEE80211N); }
+    public void setIeee80211n(Boolean ieee80211n) { setFlag(IEEE80211N, ieee80211n); }
     
-    public Boolean getIeee80211ac() { return ieee80211ac; }
-    public void setIeee80211ac(Boolean ieee80211ac) { this.ieee80211ac = ieee80211ac; }
+    public Boolean getIeee80211ac() { return flag(IEEE80211AC); }
+    public void setIeee80211ac(Boolean ieee80211ac) { setFlag(IEEE80211AC, ieee80211ac); }
     
-    public Boolean getIeee80211ax() { return ieee80211ax; }
-    public void setIeee80211ax(Boolean ieee80211ax) { this.ieee80211ax = ieee80211ax; }
+    public Boolean getIeee80211ax() { return flag(IEEE80211AX); }
+    public void setIeee80211ax(Boolean ieee80211ax) { setFlag(IEEE80211AX, ieee80211ax); }
     
-    public String getHtCapab() { return htCapab; }
-    public void setHtCapab(String htCapab) { this.htCapab = htCapab; }
+    public String getHtCapab() { return text(HT_CAPAB); }
+    public void setHtCapab(String htCapab) { setText(HT_CAPAB, htCapab); }
     
-    public String getVhtCapab() { return vhtCapab; }
-    public void setVhtCapab(String vhtCapab) { this.vhtCapab = vhtCapab; }
+    public String getVhtCapab() { return text(VHT_CAPAB); }
+    public void setVhtCapab(String vhtCapab) { setText(VHT_CAPAB, vhtCapab); }
     
-    public String getHeCapab() { return heCapab; }
-    public void setHeCapab(String heCapab) { this.heCapab = heCapab; }
+    public String getHeCapab() { return text(HE_CAPAB); }
+    public void setHeCapab(String heCapab) { setText(HE_CAPAB, heCapab); }
     
-    public Integer getVhtOperChwidth() { return vhtOperChwidth; }
-    public void setVhtOperChwidth(Integer vhtOperChwidth) { this.vhtOperChwidth = vhtOperChwidth; }
+    public Integer getVhtOperChwidth() { return number(VHT_OPER_CHWIDTH, vhtOperChwidth); }
+    public void setVhtOperChwidth(Integer vhtOperChwidth) { 
+        this.vhtOperChwidth = setNumber(VHT_OPER_CHWIDTH, vhtOperChwidth); 
+    }
     
-    public Integer getHeOperChwidth() { return heOperChwidth; }
-    public void setHeOperChwidth(Integer heOperChwidth) { this.heOperChwidth = heOperChwidth; }
+    public Integer getHeOperChwidth() { return number(HE_OPER_CHWIDTH, heOperChwidth); }
+    public void setHeOperChwidth(Integer heOperChwidth) { this.heOperChwidth = setNumber(HE_OPER_CHWIDTH, heOperChwidth); }
     
-    public Integer getVhtOperCentrFreqSeg0Idx() { return vhtOperCentrFreqSeg0Idx; }
+    public Integer getVhtOperCentrFreqSeg0Idx() { 
+        return number(VHT_OPER_CENTR_FREQ_SEG0_IDX, vhtOperCentrFreqSeg0Idx); 
+    }
     public void setVhtOperCentrFreqSeg0Idx(Integer vhtOperCentrFreqSeg0Idx) { 
-        this.vhtOperCentrFreqSeg0Idx = vhtOperCentrFreqSeg0Idx; 
+        this.vhtOperCentrFreqSeg0Idx = setNumber(VHT_OPER_CENTR_FREQ_SEG0_IDX, vhtOperCentrFreqSeg0Idx); 
     }
     
-    public Integer getHeBssColor() { return heBssColor; }
-    public void setHeBssColor(Integer heBssColor) { this.heBssColor = heBssColor; }
+    public Integer getHeBssColor() { return number(HE_BSS_COLOR, heBssColor); }
+    public void setHeBssColor(Integer heBssColor) { this.heBssColor = setNumber(HE_BSS_COLOR, heBssColor); }
     
-    public Integer getHeDefaultPeDuration() { return heDefaultPeDuration; }
-    public void setHeDefaultPeDuration(Integer heDefaultPeDuration) { this.heDefaultPeDuration = heDefaultPeDuration; }
+    public Integer getHeDefaultPeDuration() { return number(HE_DEFAULT_PE_DURATION, heDefaultPeDuration); }
+    public void setHeDefaultPeDuration(Integer heDefaultPeDuration) { 
+        this.heDefaultPeDuration = setNumber(HE_DEFAULT_PE_DURATION, heDefaultPeDuration); 
+    }
     
-    public String getSupportedRates() { return supportedRates; }
-    public void setSupportedRates(String supportedRates) { this.supportedRates = supportedRates; }
+    public String getSupportedRates() { return text(SUPPORTED_RATES); }
+    public void setSupportedRates(String supportedRates) { setText(SUPPORTED_RATES, supportedRates); }
     
-    public String getBasicRates() { return basicRates; }
-    public void setBasicRates(String basicRates) { this.basicRates = basicRates; }
+    public String getBasicRates() { return text(BASIC_RATES); }
+    public void setBasicRates(String basicRates) { setText(BASIC_RATES, basicRates); }
     
-    public String getCountryCode() { return countryCode; }
-    public void setCountryCode(String countryCode) { this.countryCode = countryCode; }
+    public String getCountryCode() { return text(COUNTRY_CODE); }
+    public void setCountryCode(String countryCode) { setText(COUNTRY_CODE, countryCode); }
     
-    public Boolean getIeee80211d() { return ieee80211d; }
-    public void setIeee80211d(Boolean ieee80211d) { this.ieee80211d = ieee80211d; }
+    public Boolean getIeee80211d() { return flag(IEEE80211D); }
+    public void setIeee80211d(Boolean ieee80211d) { setFlag(IEEE80211D, ieee80211d); }
     
-    public Boolean getIeee80211h() { return ieee80211h; }
-    public void setIeee80211h(Boolean ieee80211h) { this.ieee80211h = ieee80211h; }
+    public Boolean getIeee80211h() { return flag(IEEE80211H); }
+    public void setIeee80211h(Boolean ieee80211h) { setFlag(IEEE80211H, ieee80211h); }
     
-    public Boolean getWmmEnabled() { return wmmEnabled; }
-    public void setWmmEnabled(Boolean wmmEnabled) { this.wmmEnabled = wmmEnabled; }
+    public Boolean getWmmEnabled() { return flag(WMM_ENABLED); }
+    public void setWmmEnabled(Boolean wmmEnabled) { setFlag(WMM_ENABLED, wmmEnabled); }
     
-    public Integer getBeaconInt() { return beaconInt; }
-    public void setBeaconInt(Integer beaconInt) { this.beaconInt = beaconInt; }
+    public Integer getBeaconInt() { return number(BEACON_INT, beaconInt); }
+    public void setBeaconInt(Integer beaconInt) { this.beaconInt = setNumber(BEACON_INT, beaconInt); }
     
-    public Integer getDtimPeriod() { return dtimPeriod; }
-    public void setDtimPeriod(Integer dtimPeriod) { this.dtimPeriod = dtimPeriod; }
+    public Integer getDtimPeriod() { return number(DTIM_PERIOD, dtimPeriod); }
+    public void setDtimPeriod(Integer dtimPeriod) { this.dtimPeriod = setNumber(DTIM_PERIOD, dtimPeriod); }
     
-    public Boolean getIgnoreBroadcastSsid() { return ignoreBroadcastSsid; }
+    public Boolean getIgnoreBroadcastSsid() { return flag(IGNORE_BROADCAST_SSID); }
     public void setIgnoreBroadcastSsid(Boolean ignoreBroadcastSsid) { 
-        this.ignoreBroadcastSsid = ignoreBroadcastSsid; 
+        setFlag(IGNORE_BROADCAST_SSID, ignoreBroadcastSsid); 
     }
     
-    public Integer getWpsState() { return wpsState; }
-    public void setWpsState(Integer wpsState) { this.wpsState = wpsState; }
+    public Integer getWpsState() { return number(WPS_STATE, wpsState); }
+    public void setWpsState(Integer wpsState) { this.wpsState = setNumber(WPS_STATE, wpsState); }
     
-    public Boolean getRrmNeighborReport() { return rrmNeighborReport; }
-    public void setRrmNeighborReport(Boolean rrmNeighborReport) { this.rrmNeighborReport = rrmNeighborReport; }
+    public Boolean getRrmNeighborReport() { return flag(RRM_NEIGHBOR_REPORT); }
+    public void setRrmNeighborReport(Boolean rrmNeighborReport) { setFlag(RRM_NEIGHBOR_REPORT, rrmNeighborReport); }
     
-    public Boolean getRrmBeaconReport() { return rrmBeaconReport; }
-    public void setRrmBeaconReport(Boolean rrmBeaconReport) { this.rrmBeaconReport = rrmBeaconReport; }
+    public Boolean getRrmBeaconReport() { return flag(RRM_BEACON_REPORT); }
+    public void setRrmBeaconReport(Boolean rrmBeaconReport) { setFlag(RRM_BEACON_REPORT, rrmBeaconReport); }
     
-    public String getMobilityDomain() { return mobilityDomain; }
-    public void setMobilityDomain(String mobilityDomain) { this.mobilityDomain = mobilityDomain; }
+    public String getMobilityDomain() { return text(MOBILITY_DOMAIN); }
+    public void setMobilityDomain(String mobilityDomain) { setText(MOBILITY_DOMAIN, mobilityDomain); }
     
-    public String getVendorElements() { return vendorElements; }
-    public void setVendorElements(String vendorElements) { this.vendorElements = vendorElements; }
+    public String getVendorElements() { return text(VENDOR_ELEMENTS); }
+    public void setVendorElements(String vendorElements) { setText(VENDOR_ELEMENTS, vendorElements); }
     
-    public String getWpaGroupwise() { return wpaGroupwise; }
-    public void setWpaGroupwise(String wpaGroupwise) { this.wpaGroupwise = wpaGroupwise; }
-    public String getRsnGroupwise() { return rsnGroupwise; }
-    public void setRsnGroupwise(String rsnGroupwise) { this.rsnGroupwise = rsnGroupwise; }
+    public String getWpaGroupwise() { return text(WPA_GROUPWISE); }
+    public void setWpaGroupwise(String wpaGroupwise) { setText(WPA_GROUPWISE, wpaGroupwise); }
+    public String getRsnGroupwise() { return text(RSN_GROUPWISE); }
+    public void setRsnGroupwise(String rsnGroupwise) { setText(RSN_GROUPWISE, rsnGroupwise); }
     
     
     public boolean isValid() {
-        return bssid != null && ssid != null && channel != null && hwMode != null;
+        return getBssid() != null && ssid != null && hasNumber(CHANNEL) && textCodes[HW_MODE] != StringDictionary.NULL;
     }
     
     public boolean isOpen() {
-        return wpa == null || wpa == 0;
+        return !hasNumber(WPA) || wpa == 0;
     }
     
     public boolean supportsN() {
-        return ieee80211n != null && ieee80211n;
+        return isSet(IEEE80211N);
     }
     
     public boolean supportsAC() {
-        return ieee80211ac != null && ieee80211ac;
+        return isSet(IEEE80211AC);
     }
     
     public boolean supportsAX() {
-        return ieee80211ax != null && ieee80211ax;
+        return isSet(IEEE80211AX);
     }
     
     public boolean isHidden() {
-        return ignoreBroadcastSsid != null && ignoreBroadcastSsid;
+        return isSet(IGNORE_BROADCAST_SSID);
     }
     
     public boolean supportsIeee8021x() {
-        return ieee8021x != null && ieee8021x;
+        return isSet(IEEE8021X);
+    }
+
+
+    private boolean hasNumber(int field) {
+        return (numbersPresent & (1 << field)) != 0;
+    }
+
+    private Integer number(int field, int value) {
+        return hasNumber(field) ? value : null;
+    }
+
+    private int setNumber(int field, Integer value) {
+        if (value == null) {
+            numbersPresent &= ~(1 << field);
+            return 0;
+        }
+        numbersPresent |= 1 << field;
+        return value;
+    }
+
+    private boolean isSet(int flag) {
+        return (flagsPresent & flagValues & (1 << flag)) != 0;
+    }
+
+    private Boolean flag(int flag) {
+        return (flagsPresent & (1 << flag)) != 0 ? (flagValues & (1 << flag)) != 0 : null;
+    }
+
+    private void setFlag(int flag, Boolean value) {
+        int bit = 1 << flag;
+        flagsPresent = (short) (value != null ? flagsPresent | bit : flagsPresent & ~bit);
+        flagValues = (short) (value != null && value ? flagValues | bit : flagValues & ~bit);
+    }
+
+    private String text(int field) {
+        int code = textCodes[field];
+        if (code == StringDictionary.FULL) return textOverflow[field];
+        return code == StringDictionary.NULL ? null : StringDictionary.decode(code);
+    }
+
+    private void setText(int field, String value) {
+        int code = field < FIRST_PLAIN_TEXT || value == null ? StringDictionary.encode(value) : StringDictionary.FULL;
+        if (code == StringDictionary.FULL) {
+            if (textOverflow == null) textOverflow = new String[TEXT_FIELDS];
+            textOverflow[field] = value;
+        } else if (textOverflow != null) {
+            textOverflow[field] = null;
+        }
+        textCodes[field] = code;
+    }
+
+    /**
+     * Packs a colon separated MAC, in either case, into its 48 bits, or returns NO_MAC for
+     * anything else so that the original text is kept and returned unchanged.
+     */
+    private static long packMac(String mac) {
+        if (mac == null || mac.length() != MAC_TEXT_LENGTH) return NO_MAC;
+
+        long packed = 0;
+        for (int pos = 0; pos < MAC_TEXT_LENGTH; pos += 3) {
+            if (pos > 0 && mac.charAt(pos - 1) != ':') return NO_MAC;
+            int value = HexCodec.byteAt(mac, pos);
+            if (value < 0) return NO_MAC;
+            packed = (packed << 8) | value;
+        }
+        return packed;
+    }
+
+    private static String unpackMac(long packed) {
+        StringBuilder sb = new StringBuilder(MAC_TEXT_LENGTH);
+        for (int shift = 40; shift >= 0; shift -= 8) {
+            if (shift < 40) sb.append(':');
+            HexCodec.appendByte(sb, (int) (packed >>> shift), false);
+        }
+        return sb.toString();
     }
     
     @Override
@@ -209,49 +329,49 @@ public class AccessPoint {
         StringBuilder sb = new StringBuilder();
         sb.append("AccessPoint {\n");
         
-        sb.append("  bssid='").append(bssid).append("',\n");
-        sb.append("  ssid='").append(ssid).append("',\n");
-        sb.append("  channel=").append(channel).append(",\n");
-        sb.append("  hwMode='").append(hwMode).append("',\n");
+        sb.append("  bssid='").append(getBssid()).append("',\n");
+        sb.append("  ssid='").append(getSsid()).append("',\n");
+        sb.append("  channel=").append(getChannel()).append(",\n");
+        sb.append("  hwMode='").append(getHwMode()).append("',\n");
         
-        sb.append("  wpa=").append(wpa).append(",\n");
-        sb.append("  wpaKeyMgmt='").append(wpaKeyMgmt).append("',\n");
-        sb.append("  rsnPairwise='").append(rsnPairwise).append("',\n");
-        sb.append("  wpaPairwise='").append(wpaPairwise).append("',\n");
-        sb.append("  wpaGroupwise='").append(wpaGroupwise).append("',\n");
-        sb.append("  rsnGroupwise='").append(rsnGroupwise).append("',\n");
-        sb.append("  groupMgmtCipher='").append(groupMgmtCipher).append("',\n");
-        sb.append("  ieee80211w=").append(ieee80211w).append(",\n");
-        sb.append("  ieee8021x=").append(ieee8021x).append(",\n");
+        sb.append("  wpa=").append(getWpa()).append(",\n");
+        sb.append("  wpaKeyMgmt='").append(getWpaKeyMgmt()).append("',\n");
+        sb.append("  rsnPairwise='").append(getRsnPairwise()).append("',\n");
+        sb.append("  wpaPairwise='").append(getWpaPairwise()).append("',\n");
+        sb.append("  wpaGroupwise='").append(getWpaGroupwise()).append("',\n");
+        sb.append("  rsnGroupwise='").append(getRsnGroupwise()).append("',\n");
+        sb.append("  groupMgmtCipher='").append(getGroupMgmtCipher()).append("',\n");
+        sb.append("  ieee80211w=").append(getIeee80211w()).append(",\n");
+        sb.append("  ieee8021x=").append(getIeee8021x()).append(",\n");
         
-        sb.append("  ieee80211n=").append(ieee80211n).append(",\n");
-        sb.append("  ieee80211ac=").append(ieee80211ac).append(",\n");
-        sb.append("  ieee80211ax=").append(ieee80211ax).append(",\n");
-        sb.append("  htCapab='").append(htCapab).append("',\n");
-        sb.append("  vhtCapab='").append(vhtCapab).append("',\n");
-        sb.append("  heCapab='").append(heCapab).append("',\n");
-        sb.append("  vhtOperChwidth=").append(vhtOperChwidth).append(",\n");
-        sb.append("  heOperChwidth=").append(heOperChwidth).append(",\n");
-        sb.append("  vhtOperCentrFreqSeg0Idx=").append(vhtOperCentrFreqSeg0Idx).append(",\n");
-        sb.append("  heBssColor=").append(heBssColor).append(",\n");
-        sb.append("  heDefaultPeDuration=").append(heDefaultPeDuration).append(",\n");
+        sb.append("  ieee80211n=").append(getIeee80211n()).append(",\n");
+        sb.append("  ieee80211ac=").append(getIeee80211ac()).append(",\n");
+        sb.append("  ieee80211ax=").append(getIeee80211ax()).append(",\n");
+        sb.append("  htCapab='").append(getHtCapab()).append("',\n");
+        sb.append("  vhtCapab='").append(getVhtCapab()).append("',\n");
+        sb.append("  heCapab='").append(getHeCapab()).append("',\n");
+        sb.append("  vhtOperChwidth=").append(getVhtOperChwidth()).append(",\n");
+        sb.append("  heOperChwidth=").append(getHeOperChwidth()).append(",\n");
+        sb.append("  vhtOperCentrFreqSeg0Idx=").append(getVhtOperCentrFreqSeg0Idx()).append(",\n");
+        sb.append("  heBssColor=").append(getHeBssColor()).append(",\n");
+        sb.append("  heDefaultPeDuration=").append(getHeDefaultPeDuration()).append(",\n");
         
-        sb.append("  supportedRates='").append(supportedRates).append("',\n");
-        sb.append("  basicRates='").append(basicRates).append("',\n");
-        sb.append("  countryCode='").append(countryCode).append("',\n");
-        sb.append("  ieee80211d=").append(ieee80211d).append(",\n");
-        sb.append("  ieee80211h=").append(ieee80211h).append(",\n");
-        sb.append("  wmmEnabled=").append(wmmEnabled).append(",\n");
+        sb.append("  supportedRates='").append(getSupportedRates()).append("',\n");
+        sb.append("  basicRates='").append(getBasicRates()).append("',\n");
+        sb.append("  countryCode='").append(getCountryCode()).append("',\n");
+        sb.append("  ieee80211d=").append(getIeee80211d()).append(",\n");
+        sb.append("  ieee80211h=").append(getIeee80211h()).append(",\n");
+        sb.append("  wmmEnabled=").append(getWmmEnabled()).append(",\n");
         
-        sb.append("  beaconInt=").append(beaconInt).append(",\n");
-        sb.append("  dtimPeriod=").append(dtimPeriod).append(",\n");
+        sb.append("  beaconInt=").append(getBeaconInt()).append(",\n");
+        sb.append("  dtimPeriod=").append(getDtimPeriod()).append(",\n");
         
-        sb.append("  ignoreBroadcastSsid=").append(ignoreBroadcastSsid).append(",\n");
-        sb.append("  wpsState=").append(wpsState).append(",\n");
-        sb.append("  rrmNeighborReport=").append(rrmNeighborReport).append(",\n");
-        sb.append("  rrmBeaconReport=").append(rrmBeaconReport).append(",\n");
-        sb.append("  mobilityDomain='").append(mobilityDomain).append("',\n");
-        sb.append("  vendorElements='").append(vendorElements).append("'\n");
+        sb.append("  ignoreBroadcastSsid=").append(getIgnoreBroadcastSsid()).append(",\n");
+        sb.append("  wpsState=").append(getWpsState()).append(",\n");
+        sb.append("  rrmNeighborReport=").append(getRrmNeighborReport()).append(",\n");
+        sb.append("  rrmBeaconReport=").append(getRrmBeaconReport()).append(",\n");
+        sb.append("  mobilityDomain='").append(getMobilityDomain()).append("',\n");
+        sb.append("  vendorElements='").append(getVendorElements()).append("'\n");
         
         sb.append("}");
         return sb.toString();
@@ -0,0 +1,55 @@
+package it.unical.thesis.data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary that maps the configuration strings repeated across access points
+ * (capabilities, rates, ciphers) to small integer codes. Code 0 is null. It lives as long as
+ * the process, since the codes stored in an AccessPoint must stay valid for as long as the
+ * AccessPoint does, so entries are never evicted. Once MAX_ENTRIES distinct values have been
+ * seen encode returns FULL and callers keep new strings themselves; values specific to one
+ * network should not be encoded at all.
+ */
+final class StringDictionary {
+
+    static final int NULL = 0;
+    static final int FULL = -1;
+
+    private static final int MAX_ENTRIES = 1 << 16;
+
+    private static final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    // grown by copying and republished through the volatile write, so decode needs no lock
+    private static volatile String[] values = new String[256];
+    private static int size = 1;
+
+    private StringDictionary() {
+    }
+
+    static int encode(String value) {
+        if (value == null) return NULL;
+
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    static String decode(int code) {
+        return values[code];
+    }
+
+    private static synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        if (size >= MAX_ENTRIES) return FULL;
+
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+}
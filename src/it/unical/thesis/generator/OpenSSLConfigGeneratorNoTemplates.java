@@ -8,6 +8,7 @@ import java.util.List;
 
 import it.unical.thesis.data.CertificateInfo;
 import it.unical.thesis.data.DistinguishedName;
+import it.unical.thesis.utils.Log;
 
 public class OpenSSLConfigGeneratorNoTemplates {
     
@@ -286,7 +287,7 @@ public class OpenSSLConfigGeneratorNoTemplates {
         
         Files.createDirectories(Paths.get(outputDir));
         
-        System.out.println("Generating OpenSSL configuration files...");
+        Log.info("Generating OpenSSL configuration files...");
         
         generateCaConfig(caInfo, outputDir + "/ca.cnf");
         
@@ -300,10 +301,10 @@ public class OpenSSLConfigGeneratorNoTemplates {
         
         generateXpExtensions(caInfo.getCrlDistributionPoints(), outputDir + "/xpextensions");
         
-        System.out.println("\n=== ALL FILES GENERATED ===");
-        System.out.println("Directory: " + outputDir);
-        System.out.println("CRL Distribution Points used: " + caInfo.getCrlDistributionPoints());
-        System.out.println("\nNow run the OpenSSL commands to generate certificates.");
+        Log.info("\n=== ALL FILES GENERATED ===");
+        Log.info("Directory: " + outputDir);
+        Log.info("CRL Distribution Points used: " + caInfo.getCrlDistributionPoints());
+        Log.info("\nNow run the OpenSSL commands to generate certificates.");
     }
     
     private void addDistinguishedNameSection(List<String> lines, DistinguishedName dn) {
@@ -374,7 +375,7 @@ public class OpenSSLConfigGeneratorNoTemplates {
     
     private void writeConfigFile(String outputPath, List<String> lines, String fileType) throws IOException {
         Files.write(Paths.get(outputPath), lines);
-        System.out.println("Generated " + fileType + ": " + outputPath);
+        Log.info("Generated " + fileType + ": " + outputPath);
     }
     
    
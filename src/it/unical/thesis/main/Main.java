@@ -7,7 +7,8 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 import it.unical.thesis.data.AccessPoint;
@@ -15,20 +16,28 @@ import it.unical.thesis.data.CertificateInfo;
 import it.unical.thesis.generator.HostapdConfGenerator;
 import it.unical.thesis.generator.OpenSSLConfigGeneratorNoTemplates;
 import it.unical.thesis.generator.WpaConfGenerator;
+import it.unical.thesis.metrics.RunMetrics;
 import it.unical.thesis.parser.IwParser;
-import it.unical.thesis.parser.SSLCertificateParser;
-import it.unical.thesis.parser.TsharkParser;
+import it.unical.thesis.parser.IwScanStreamParser;
+import it.unical.thesis.parser.PcapParser;
+import it.unical.thesis.parser.SSLCertificateStreamParser;
+import it.unical.thesis.parser.TsharkStreamParser;
+import it.unical.thesis.parser.X509ChainParser;
+import it.unical.thesis.process.AbstractCommand;
 import it.unical.thesis.process.Ip;
 import it.unical.thesis.process.Iw;
 import it.unical.thesis.process.Systemctl;
 import it.unical.thesis.process.Bootstrap;
+import it.unical.thesis.process.CommandResult;
 import it.unical.thesis.process.Id;
+import it.unical.thesis.process.ReplayCommandRunner;
 import it.unical.thesis.process.Tshark;
 import it.unical.thesis.process.WpaSupplicant;
 import it.unical.thesis.process.WpaSupplicantPatched;
 import it.unical.thesis.utils.CertificateChainAnalyzer;
 import it.unical.thesis.utils.DateConverter;
 import it.unical.thesis.utils.FileUtils;
+import it.unical.thesis.utils.Log;
 import it.unical.thesis.utils.MacAddressChanger;
 import it.unical.thesis.utils.OptionChooser;
 import it.unical.thesis.utils.SerialConverter;
@@ -63,13 +72,21 @@ public class Main {
 	
 	private static final String BASH_BOOTSTRAP_PATH = "./bash_scripts/bootstrap_enhanced";
 
+	private static final String RUN_REPORT_PATH = "./tmp/run-report.json";
+
+	// directory of recorded command output to replay instead of running the real tools
+	private static final String REPLAY_DIRECTORY_PROPERTY = "confweaver.replay";
+
+	// multiplier for the replayed latencies, 1 for those of a real run
+	private static final String REPLAY_LATENCY_PROPERTY = "confweaver.replay.latency";
+
 
 
 	private static void printRequiredTools()
 	{
 		for(String toolName: REQUIRED_TOOLS)
 		{
-			System.out.println("This tool require "+ toolName +" installed in order to work.");
+			Log.info("This tool require "+ toolName +" installed in order to work.");
 		}
 	}
 
@@ -86,7 +103,7 @@ public class Main {
 						|| file.getName().equals(CLIENT_CNF_FILE_NAME) || file.getName().equals(XPEXTENSIONS_CNF_FILE_NAME))					try {
 							Files.move(Paths.get(file.getAbsolutePath()), Paths.get(certsPath+"/"+file.getName()), StandardCopyOption.REPLACE_EXISTING);
 						} catch (IOException e) {
-							e.printStackTrace();
+							Log.error("Cannot move "+file.getName()+" to "+certsPath, e);
 						}
 			}
 		}
@@ -124,8 +141,7 @@ public class Main {
 						DateConverter.convertToOpenSSLFormat(serverInfo.getNotAfter()));
 			}
 		} catch (IOException e) {
-			System.err.println("Error during writing .cnf files: " + e.getMessage());
-			e.printStackTrace();
+			Log.error("Error during writing .cnf files", e);
 		}
 	}
 
@@ -136,27 +152,37 @@ public class Main {
 		if(wpaGenerator.writeToFile(WPA_SUPPLICANT_CONF_PATH))
 		{
 			WpaSupplicantPatched wpaSupplicantPatched = new WpaSupplicantPatched();
-			List<String> outputLines = wpaSupplicantPatched.connect(interfaceName, WPA_SUPPLICANT_CONF_PATH, WIFI_DRIVER_BACKEND);
+			SSLCertificateStreamParser certificateParser = new SSLCertificateStreamParser();
+			wpaSupplicantPatched.connect(interfaceName, WPA_SUPPLICANT_CONF_PATH, WIFI_DRIVER_BACKEND, certificateParser);
+			List<CertificateInfo> certificatesList = new ArrayList<>();
 
 			if(wpaSupplicantPatched.certsChainExists())
 			{
-				wpaSupplicantPatched.moveCertsChainTo(TMP_PATH);
+				String chainPath = wpaSupplicantPatched.moveCertsChainTo(TMP_PATH);
+				if(chainPath != null)
+				{
+					certificatesList = X509ChainParser.parseFromPemFile(chainPath);
+				}
 			}
-			else
+			else if(!wpaSupplicantPatched.peerChainReceived())
 			{
 				WpaSupplicant wpaSupplicant = new WpaSupplicant();
-				outputLines = wpaSupplicant.connect(interfaceName, WPA_SUPPLICANT_CONF_PATH, WIFI_DRIVER_BACKEND);
+				certificateParser = new SSLCertificateStreamParser();
+				wpaSupplicant.connect(interfaceName, WPA_SUPPLICANT_CONF_PATH, WIFI_DRIVER_BACKEND, certificateParser);
 			}
 
-			List<CertificateInfo> certificatesList = SSLCertificateParser.parseMultipleCertificates(outputLines);
+			if(certificatesList.isEmpty())
+			{
+				certificatesList = certificateParser.getCertificates();
+			}
 			for(CertificateInfo certificate: certificatesList)
 			{
-				System.out.println(certificate);
+				Log.info(String.valueOf(certificate));
 
 			}
-			System.out.println("Extracted certificates (duplicates): "+certificatesList.size());
+			Log.info("Extracted certificates (duplicates): "+certificatesList.size());
 			List<CertificateInfo> certificatesListDuplicatesLess = CertificateChainAnalyzer.removeDuplicates(certificatesList);
-			System.out.println("Extracted certificates (without duplicates): "+certificatesListDuplicatesLess.size());
+			Log.info("Extracted certificates (without duplicates): "+certificatesListDuplicatesLess.size());
 			return certificatesListDuplicatesLess;
 		}
 		return null;
@@ -165,23 +191,26 @@ public class Main {
 
 	private static AccessPoint analyzeNetworkGenerateBlacklistAndGetAccessPointData(String chosenWirelessInterface, OptionChooser optionChooser, Iw iw, Ip ip)
 	{
-		Map<String,AccessPoint> accessPointsMapIw = IwParser.parseIwScanOutput(iw.startScan(chosenWirelessInterface));
-		List<AccessPoint> accessPointsList = new ArrayList<>(accessPointsMapIw.values());		
-		System.out.println("Available access points");
-		for(int i=0;i<accessPointsList.size();i++)
-		{
-			System.out.println(i+1+" for "+accessPointsList.get(i).getSsid()+", "+accessPointsList.get(i).getBssid());
-		}
-		System.out.println("Choose an access point:");
-		int choice = optionChooser.choose(accessPointsList.size());
+		List<AccessPoint> accessPointsList = new ArrayList<>();
+		Log.info("Available access points");
+		IwScanStreamParser iwParser = new IwScanStreamParser(accessPoint -> {
+			accessPointsList.add(accessPoint);
+			Log.info(accessPointsList.size()+" for "+accessPoint.getSsid()+", "+accessPoint.getBssid());
+		});
+		RunMetrics.stage("iw-scan", () -> {
+			iw.startScan(chosenWirelessInterface, iwParser);
+			iwParser.finish();
+		});
+		Log.info("Choose an access point:");
+		int choice = RunMetrics.stageResult("access-point-selection", () -> optionChooser.choose(accessPointsList.size()));
 		if(choice==0)
 		{
-			System.err.println("Cannot continue without selecting an access point!");	
+			Log.error("Cannot continue without selecting an access point!");	
 			return null;
 		}
 		int chosenIndex = choice-1;
 		AccessPoint iwAP = accessPointsList.get(chosenIndex);
-		//System.out.println(iwAP);
+		//Log.info(iwAP);
 		String blacklist = generateBlackList(accessPointsList, iwAP);
 		FileUtils.writeToFile(BLACKLIST_PATH, blacklist);
 		/*List<String> output = airmon.startMonitorMode(chosenWirelessInterface);
@@ -191,20 +220,30 @@ public class Main {
 			usingInterface=monitorInterface;
 		else
 			usingInterface=chosenWirelessInterface;
-		System.out.println("Using interface: "+usingInterface);*/	   
-		changeToMonnitorMode(chosenWirelessInterface, ip, iw);
-		//Airodump airodump = new Airodump();
-		//airodump.startScan(usingInterface,CAPTURE_INCOMPLETE_FILE_PATH,"pcap", iwAP.getBssid(),String.valueOf(iwAP.getChannel()));
-		iw.setChannel(chosenWirelessInterface, String.valueOf(iwAP.getChannel()));
+		Log.info("Using interface: "+usingInterface);*/	   
+		RunMetrics.stage("monitor-mode", () -> {
+			changeToMonnitorMode(chosenWirelessInterface, ip, iw);
+			//Airodump airodump = new Airodump();
+			//airodump.startScan(usingInterface,CAPTURE_INCOMPLETE_FILE_PATH,"pcap", iwAP.getBssid(),String.valueOf(iwAP.getChannel()));
+			iw.setChannel(chosenWirelessInterface, String.valueOf(iwAP.getChannel()));
+		});
 		//TODO I should check if tshark is installed
 		Tshark tshark = new Tshark();
-		tshark.startScan(chosenWirelessInterface, CAPTURE_FULL_PATH, iwAP.getBssid());
-		List<String> outputTshark = tshark.analyzeWithFilters(CAPTURE_FULL_PATH);
-		AccessPoint tsharkAP = TsharkParser.parseFromTsharkOutput(outputTshark);
-		System.out.println(tsharkAP);
+		TsharkStreamParser tsharkParser = new TsharkStreamParser();
+		RunMetrics.stage("capture-and-dissect", () -> tshark.captureAndAnalyze(chosenWirelessInterface, CAPTURE_FULL_PATH, iwAP.getBssid(), tsharkParser));
+		AccessPoint tsharkAP = tsharkParser.getAccessPoint();
+		if(tsharkAP==null)
+		{
+			tsharkAP = RunMetrics.stageResult("pcap-dissection", () -> PcapParser.parseFromCaptureFile(CAPTURE_FULL_PATH));
+		}
+		else
+		{
+			Log.info("Duplicate frames skipped: "+tsharkParser.getDuplicateRows()+", "+tsharkParser.getSignalStatistics(tsharkAP.getBssid()));
+		}
+		Log.info(String.valueOf(tsharkAP));
 		//deleteFile(CAPTURE_FULL_FILE_PATH);
 		//airmon.stopMonitorMode(usingInterface);
-		changeToManagedMode(chosenWirelessInterface, ip, iw);
+		RunMetrics.stage("managed-mode", () -> changeToManagedMode(chosenWirelessInterface, ip, iw));
 
 		return tsharkAP;
 	}
@@ -212,7 +251,7 @@ public class Main {
 
 	private static void cleanUpCerts(String certsPath)
 	{
-		System.out.println("Cleanup of certs folder...");
+		Log.info("Cleanup of certs folder...");
 
 		File dir = new File(certsPath);
 		File[] files = dir.listFiles();
@@ -233,17 +272,17 @@ public class Main {
 
 	private static String chooseInterface(List<String> interfacesNames, OptionChooser optionChooser)
 	{
-		System.out.println("Available interfaces");
+		Log.info("Available interfaces");
 		for(int i=0;i<interfacesNames.size();i++)
 		{
-			System.out.println(i+1+" for "+interfacesNames.get(i));
+			Log.info(i+1+" for "+interfacesNames.get(i));
 		}
-		System.out.println("Choose an interface:");
+		Log.info("Choose an interface:");
 		int choice = optionChooser.choose(interfacesNames.size());
 		if(choice==0)
 			return null;
 		String chosenInterface = interfacesNames.get(choice-1);
-		System.out.println("Chosen interface: "+chosenInterface);
+		Log.info("Chosen interface: "+chosenInterface);
 		return chosenInterface;
 	}
 
@@ -253,7 +292,8 @@ public class Main {
 		StringBuilder stringBuilder = new StringBuilder();		
 		for(int i=0;i<accessPointsList.size();i++)
 		{
-			if(accessPointsList.get(i).getSsid().equals(chosenAP.getSsid()) /*&& i!=chosenIndex*/)
+			// hidden networks have no SSID
+			if(Objects.equals(accessPointsList.get(i).getSsid(), chosenAP.getSsid()) /*&& i!=chosenIndex*/)
 				stringBuilder.append(accessPointsList.get(i).getBssid()).append("\n");
 		}
 		return stringBuilder.toString();
@@ -277,22 +317,29 @@ public class Main {
 
 
 	public static void main(String[] args) {
-		System.out.println("Educational purposes only!");
+		Log.info("Educational purposes only!");
+		String replayDirectory = System.getProperty(REPLAY_DIRECTORY_PROPERTY);
+		if(replayDirectory != null)
+		{
+			double latencyScale = Double.parseDouble(System.getProperty(REPLAY_LATENCY_PROPERTY, "1"));
+			AbstractCommand.setCommandRunner(ReplayCommandRunner.fromDirectory(Paths.get(replayDirectory), latencyScale));
+			Log.info("Replaying recorded command output from "+replayDirectory);
+		}
 		if(!LINUX_PATTERN.matcher(System.getProperty("os.name")).find())
 		{
-			System.out.println("This software currently works only on linux.");
+			Log.info("This software currently works only on linux.");
 			return;
 		}
 		
-		System.out.println("This software requires root access to work.");
+		Log.info("This software requires root access to work.");
 		Id id = new Id();
-		List<String> idOutputLines = id.printUserId();
+		List<String> idOutputLines = RunMetrics.stageResult("root-check", id::printUserId);
 		int userId = Integer.parseInt(idOutputLines.getFirst());
 		if(userId==0)
-			System.out.println("Root access detected!");
+			Log.info("Root access detected!");
 		else
 		{
-			System.out.println("Root access NOT detected!");
+			Log.info("Root access NOT detected!");
 			return;
 		}
 		printRequiredTools();
@@ -300,45 +347,61 @@ public class Main {
 		if(!outputDir.exists())
 			outputDir.mkdir();
 
-		System.out.println("conf-weaver starting...");
+		Log.info("conf-weaver starting...");
 		//TODO should I use java.net?
 		//List<String> wirelessInterfaces = NetworkInterfaceManager.getNetworkInterfacesNames(NetworkType.WIFI);
 		Systemctl systemctl = new Systemctl();
-		systemctl.stopNetworkManagerAndWpaSupplicant();
+		RunMetrics.stage("stop-network-manager", systemctl::stopNetworkManagerAndWpaSupplicant);
 		Iw iw = new Iw();
 		//Airmon airmon = new Airmon();
 		//airmon.checkKill();
 		//List<String> output = airmon.listWirelessInterfaces();
-		List<String> output = iw.listWirelessInterfaces();
-		List<String> wirelessInterfaces = IwParser.parseInterfaceNames(output);
 		OptionChooser optionChooser = new OptionChooser();		
-		String chosenWirelessInterface = chooseInterface(wirelessInterfaces, optionChooser);
+		String chosenWirelessInterface = RunMetrics.stageResult("interface-selection", () -> {
+			List<String> output = iw.listWirelessInterfaces();
+			List<String> wirelessInterfaces = IwParser.parseInterfaceNames(output);
+			return chooseInterface(wirelessInterfaces, optionChooser);
+		});
 		if(chosenWirelessInterface!=null)
 		{
 			Ip ip = new Ip();
-			ip.down(chosenWirelessInterface);
-			ip.up(chosenWirelessInterface);
+			RunMetrics.stage("interface-reset", () -> {
+				ip.down(chosenWirelessInterface);
+				ip.up(chosenWirelessInterface);
+			});
 			AccessPoint accessPoint = analyzeNetworkGenerateBlacklistAndGetAccessPointData(chosenWirelessInterface, optionChooser, iw, ip);
 			//optionChooser.closeScanner();
 			if(accessPoint!=null) {
 				accessPoint.setBssid(MacAddressChanger.randomizeLastByte(accessPoint.getBssid()));
 				HostapdConfGenerator hostapdConfGenerator = new HostapdConfGenerator(chosenWirelessInterface, WIFI_DRIVER_BACKEND, accessPoint);
-				hostapdConfGenerator.writeToFile(TMP_PATH);
+				// independent of the certificates, so it is written while they are retrieved
+				CompletableFuture<Void> hostapdConf = CompletableFuture.runAsync(
+						() -> RunMetrics.stage("hostapd-config", () -> hostapdConfGenerator.writeToFile(TMP_PATH)));
 
 				if(accessPoint.supportsIeee8021x()) {
-					List<CertificateInfo> certificatesList = retrieveRadiusCertificates(accessPoint.getSsid(),accessPoint.getIeee80211w(),chosenWirelessInterface);
+					List<CertificateInfo> certificatesList = RunMetrics.stageResult("certificate-retrieval",
+							() -> retrieveRadiusCertificates(accessPoint.getSsid(),accessPoint.getIeee80211w(),chosenWirelessInterface));
 					if(certificatesList!=null) {
-						cleanUpCertsAndGenerateNewCertificates(FREERADIUS_CERTS_PATH, certificatesList);
+						RunMetrics.stage("certificate-generation", () -> cleanUpCertsAndGenerateNewCertificates(FREERADIUS_CERTS_PATH, certificatesList));
 					}
 				}
+				hostapdConf.join();
 			}
 		}
 		else {
-			System.err.println("Cannot continue without selecting an interface!");
+			Log.error("Cannot continue without selecting an interface!");
 		}
 
-		optionChooser.closeScanner();
-		systemctl.restartNetworkManager();
+		CommandResult restartResult = RunMetrics.stageResult("restart-network-manager", () -> {
+			CompletableFuture<CommandResult> networkManagerRestart = systemctl.restartNetworkManagerAsync();
+			optionChooser.closeScanner();
+			return networkManagerRestart.join();
+		});
+		if(!restartResult.isSuccess())
+			Log.error("NetworkManager restart failed: "+restartResult);
+
+		if(RunMetrics.writeReport(RUN_REPORT_PATH))
+			Log.info("Run report written to "+RUN_REPORT_PATH);
 	}
 
 
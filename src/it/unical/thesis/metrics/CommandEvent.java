@@ -0,0 +1,35 @@
+package it.unical.thesis.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A child process started by AbstractCommand.execute, from start to exit. It is committed
+ * once the output has also been drained, so outputBytes is complete.
+ */
+@Name("it.unical.thesis.Command")
+@Label("Command Execution")
+@Category({"Conf Weaver", "Process"})
+@StackTrace(false)
+public class CommandEvent extends jdk.jfr.Event {
+
+	@Label("Command")
+	public String command;
+
+	@Label("PID")
+	public long pid;
+
+	@Label("Exit Code")
+	public int exitCode;
+
+	@Label("Output Bytes")
+	@Description("Bytes read from the merged stdout/stderr, 0 if nobody read it")
+	@DataAmount
+	public long outputBytes;
+
+
+}
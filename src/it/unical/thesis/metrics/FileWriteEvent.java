@@ -0,0 +1,24 @@
+package it.unical.thesis.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("it.unical.thesis.FileWrite")
+@Label("File Write")
+@Category({"Conf Weaver", "File"})
+@StackTrace(false)
+public class FileWriteEvent extends jdk.jfr.Event {
+
+	@Label("Path")
+	public String path;
+
+	@Label("Characters")
+	public int characters;
+
+	@Label("Success")
+	public boolean success;
+
+
+}
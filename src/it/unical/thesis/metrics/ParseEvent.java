@@ -0,0 +1,41 @@
+package it.unical.thesis.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One batch parser invocation. Streaming parsers run inside a ProcessReader consumer and
+ * show up as its consumer time instead.
+ */
+@Name("it.unical.thesis.Parse")
+@Label("Parse")
+@Category({"Conf Weaver", "Parser"})
+@StackTrace(false)
+public class ParseEvent extends jdk.jfr.Event {
+
+	@Label("Parser")
+	public String parser;
+
+	@Label("Input Lines")
+	public int inputLines;
+
+	@Label("Output Objects")
+	public int outputObjects;
+
+
+	public void finish(String parser, int inputLines, int outputObjects)
+	{
+		end();
+		if(shouldCommit())
+		{
+			this.parser = parser;
+			this.inputLines = inputLines;
+			this.outputObjects = outputObjects;
+			commit();
+		}
+	}
+
+
+}
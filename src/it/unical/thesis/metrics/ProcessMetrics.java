@@ -0,0 +1,142 @@
+package it.unical.thesis.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Resource usage of one child process. CPU time and peak RSS are sampled from
+ * ProcessHandle.Info and /proc/<pid> while the process is alive, since both disappear as
+ * soon as it is reaped, so the last few milliseconds of CPU may be missing.
+ */
+public class ProcessMetrics {
+
+	// USER_HZ, the unit of the /proc/<pid>/stat times, is 100 on every Linux ABI
+	private static final long MILLIS_PER_TICK = 10;
+
+	// utime, stime, cutime and cstime, counted from the state field after the command name
+	private static final int STAT_CHILDREN_USER_TIME = 13;
+
+	private static final int STAT_CHILDREN_SYSTEM_TIME = 14;
+
+	private final String stage;
+
+	private final String command;
+
+	private final long pid;
+
+	private final long startNanos;
+
+	private volatile long endNanos;
+
+	private volatile Integer exitCode;
+
+	private volatile long cpuMillis;
+
+	private volatile long childrenCpuMillis;
+
+	private volatile long peakRssKb;
+
+
+	ProcessMetrics(String stage, String[] command, Process process)
+	{
+		this.stage = stage;
+		this.command = String.join(" ", command);
+		this.pid = process.pid();
+		this.startNanos = System.nanoTime();
+	}
+
+
+	/**
+	 * Reads the current counters, keeping the previous values if the process is already gone.
+	 */
+	void sample(ProcessHandle handle)
+	{
+		handle.info().totalCpuDuration().map(Duration::toMillis).ifPresent(cpu -> cpuMillis = Math.max(cpuMillis, cpu));
+
+		try {
+			String stat = Files.readString(Paths.get("/proc", String.valueOf(pid), "stat"));
+			String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+			long childrenTicks = Long.parseLong(fields[STAT_CHILDREN_USER_TIME]) + Long.parseLong(fields[STAT_CHILDREN_SYSTEM_TIME]);
+			childrenCpuMillis = Math.max(childrenCpuMillis, childrenTicks * MILLIS_PER_TICK);
+		} catch (IOException | RuntimeException e) {
+			// exited between two samples, or not a Linux /proc
+		}
+		peakRssKb = Math.max(peakRssKb, readPeakRssKb(pid));
+	}
+
+
+	/**
+	 * The VmHWM of the process, or 0 if it cannot be read.
+	 */
+	public static long readPeakRssKb(long pid)
+	{
+		try {
+			for(String line: Files.readAllLines(Paths.get("/proc", String.valueOf(pid), "status")))
+			{
+				if(line.startsWith("VmHWM:"))
+					return Long.parseLong(line.substring(6).replace("kB", "").trim());
+			}
+		} catch (IOException | RuntimeException e) {
+			// exited between two samples, or not a Linux /proc
+		}
+		return 0;
+	}
+
+
+	void finish(Process process)
+	{
+		this.endNanos = System.nanoTime();
+		this.exitCode = process.exitValue();
+	}
+
+
+	public String getStage() {
+		return stage;
+	}
+
+
+	public String getCommand() {
+		return command;
+	}
+
+
+	public long getPid() {
+		return pid;
+	}
+
+
+	/**
+	 * Wall time until exit, or until now for a process that is still running.
+	 */
+	public long getWallMillis() {
+		long end = endNanos != 0 ? endNanos : System.nanoTime();
+		return (end - startNanos) / 1_000_000;
+	}
+
+
+	public Integer getExitCode() {
+		return exitCode;
+	}
+
+
+	public long getCpuMillis() {
+		return cpuMillis;
+	}
+
+
+	/**
+	 * CPU of descendants the process has already waited for, e.g. openssl under bootstrap.
+	 */
+	public long getChildrenCpuMillis() {
+		return childrenCpuMillis;
+	}
+
+
+	public long getPeakRssKb() {
+		return peakRssKb;
+	}
+
+
+}
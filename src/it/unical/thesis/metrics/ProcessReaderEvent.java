@@ -0,0 +1,37 @@
+package it.unical.thesis.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One ProcessReader draining a child's output, from the first read to end of stream.
+ */
+@Name("it.unical.thesis.ProcessReader")
+@Label("Process Output Reader")
+@Category({"Conf Weaver", "Process"})
+@StackTrace(false)
+public class ProcessReaderEvent extends jdk.jfr.Event {
+
+	@Label("Lines")
+	public long lines;
+
+	@Label("Dropped Lines")
+	@Description("Lines rejected by the line filter before being decoded")
+	public long droppedLines;
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+	@Label("Consumer Time")
+	@Description("Time spent handing lines to the consumer, during which the pipe is not drained")
+	@Timespan
+	public long consumerTime;
+
+
+}
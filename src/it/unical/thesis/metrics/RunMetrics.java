@@ -0,0 +1,228 @@
+package it.unical.thesis.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.management.ThreadMXBean;
+
+import it.unical.thesis.utils.FileUtils;
+
+/**
+ * Records per-stage and per-child-process resource usage for one run and writes it out as a
+ * JSON run report. The current stage is inherited by threads started inside it, so commands run
+ * asynchronously are attributed to the stage that launched them. CPU and allocation are process
+ * wide, so stages that overlap each include the other's share.
+ */
+public final class RunMetrics {
+
+	private static final int SAMPLE_INTERVAL_MILLIS = 100;
+
+	private static final ThreadMXBean THREAD_BEAN = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static final OperatingSystemMXBean OS_BEAN = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+	private static final Instant STARTED = Instant.now();
+
+	private static final long START_NANOS = System.nanoTime();
+
+	private static final List<StageMetrics> stages = new ArrayList<>();
+
+	private static final List<ProcessMetrics> processes = new ArrayList<>();
+
+	private static final InheritableThreadLocal<String> currentStage = new InheritableThreadLocal<>();
+
+	private static ScheduledExecutorService sampler;
+
+	static {
+		if(THREAD_BEAN.isThreadAllocatedMemorySupported())
+		{
+			THREAD_BEAN.setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+
+	private RunMetrics()
+	{
+
+	}
+
+
+	public static void stage(String name, Runnable body)
+	{
+		stageResult(name, () -> {
+			body.run();
+			return null;
+		});
+	}
+
+
+	public static <T> T stageResult(String name, Supplier<T> body)
+	{
+		String outerStage = currentStage.get();
+		currentStage.set(name);
+		long cpuBefore = OS_BEAN.getProcessCpuTime();
+		long allocatedBefore = THREAD_BEAN.getTotalThreadAllocatedBytes();
+		long start = System.nanoTime();
+		try {
+			return body.get();
+		}
+		finally {
+			long wallMillis = (System.nanoTime() - start) / 1_000_000;
+			long cpuMillis = (OS_BEAN.getProcessCpuTime() - cpuBefore) / 1_000_000;
+			long allocated = THREAD_BEAN.getTotalThreadAllocatedBytes() - allocatedBefore;
+			synchronized(stages)
+			{
+				stages.add(new StageMetrics(name, wallMillis, cpuMillis, allocated));
+			}
+			currentStage.set(outerStage);
+		}
+	}
+
+
+	/**
+	 * Starts sampling a freshly started child process until it exits. Processes without an OS
+	 * handle are timed but not sampled.
+	 */
+	public static void processStarted(Process process, String... command)
+	{
+		ProcessMetrics metrics = new ProcessMetrics(currentStage.get(), command, process);
+		synchronized(processes)
+		{
+			processes.add(metrics);
+		}
+
+		ProcessHandle handle;
+		try {
+			handle = process.toHandle();
+		} catch (UnsupportedOperationException e) {
+			// a replayed process: only its wall time and exit code are known
+			process.onExit().thenRun(() -> metrics.finish(process));
+			return;
+		}
+		metrics.sample(handle);
+		ScheduledFuture<?> sampling = sampler().scheduleAtFixedRate(() -> metrics.sample(handle),
+				SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		process.onExit().thenRun(() -> {
+			sampling.cancel(false);
+			metrics.finish(process);
+		});
+	}
+
+
+	public static List<StageMetrics> getStages()
+	{
+		synchronized(stages)
+		{
+			return new ArrayList<>(stages);
+		}
+	}
+
+
+	public static List<ProcessMetrics> getProcesses()
+	{
+		synchronized(processes)
+		{
+			return new ArrayList<>(processes);
+		}
+	}
+
+
+	public static boolean writeReport(String filePath)
+	{
+		return FileUtils.writeToFile(filePath, toJson());
+	}
+
+
+	public static String toJson()
+	{
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"started\": ").append(quote(STARTED.toString())).append(",\n");
+		json.append("  \"wallMillis\": ").append((System.nanoTime() - START_NANOS) / 1_000_000).append(",\n");
+		json.append("  \"cpuMillis\": ").append(OS_BEAN.getProcessCpuTime() / 1_000_000).append(",\n");
+		json.append("  \"allocatedBytes\": ").append(THREAD_BEAN.getTotalThreadAllocatedBytes()).append(",\n");
+
+		json.append("  \"stages\": [");
+		List<StageMetrics> stageList = getStages();
+		for(int i=0; i<stageList.size(); i++)
+		{
+			StageMetrics stage = stageList.get(i);
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    {\"name\": ").append(quote(stage.getName()))
+				.append(", \"wallMillis\": ").append(stage.getWallMillis())
+				.append(", \"cpuMillis\": ").append(stage.getCpuMillis())
+				.append(", \"allocatedBytes\": ").append(stage.getAllocatedBytes()).append("}");
+		}
+		json.append(stageList.isEmpty() ? "],\n" : "\n  ],\n");
+
+		json.append("  \"processes\": [");
+		List<ProcessMetrics> processList = getProcesses();
+		for(int i=0; i<processList.size(); i++)
+		{
+			ProcessMetrics process = processList.get(i);
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    {\"stage\": ").append(quote(process.getStage()))
+				.append(", \"command\": ").append(quote(process.getCommand()))
+				.append(", \"pid\": ").append(process.getPid())
+				.append(", \"exitCode\": ").append(process.getExitCode())
+				.append(", \"wallMillis\": ").append(process.getWallMillis())
+				.append(", \"cpuMillis\": ").append(process.getCpuMillis())
+				.append(", \"childrenCpuMillis\": ").append(process.getChildrenCpuMillis())
+				.append(", \"peakRssKb\": ").append(process.getPeakRssKb()).append("}");
+		}
+		json.append(processList.isEmpty() ? "]\n" : "\n  ]\n");
+		json.append("}\n");
+		return json.toString();
+	}
+
+
+	private static synchronized ScheduledExecutorService sampler()
+	{
+		if(sampler == null)
+		{
+			sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "process-sampler");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return sampler;
+	}
+
+
+	private static String quote(String value)
+	{
+		if(value == null)
+			return "null";
+
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for(int i=0; i<value.length(); i++)
+		{
+			char c = value.charAt(i);
+			switch(c)
+			{
+			case '"': quoted.append("\\\""); break;
+			case '\\': quoted.append("\\\\"); break;
+			case '\n': quoted.append("\\n"); break;
+			case '\r': quoted.append("\\r"); break;
+			case '\t': quoted.append("\\t"); break;
+			default:
+				if(c < 0x20)
+					quoted.append(String.format("\\u%04x", (int) c));
+				else
+					quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+
+}
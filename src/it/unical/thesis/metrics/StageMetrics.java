@@ -0,0 +1,47 @@
+package it.unical.thesis.metrics;
+
+/**
+ * Wall time, JVM CPU time and heap allocation of one pipeline stage. CPU and allocation are
+ * process wide, so they include reader and parser threads started by the stage.
+ */
+public class StageMetrics {
+
+	private final String name;
+
+	private final long wallMillis;
+
+	private final long cpuMillis;
+
+	private final long allocatedBytes;
+
+
+	StageMetrics(String name, long wallMillis, long cpuMillis, long allocatedBytes)
+	{
+		this.name = name;
+		this.wallMillis = wallMillis;
+		this.cpuMillis = cpuMillis;
+		this.allocatedBytes = allocatedBytes;
+	}
+
+
+	public String getName() {
+		return name;
+	}
+
+
+	public long getWallMillis() {
+		return wallMillis;
+	}
+
+
+	public long getCpuMillis() {
+		return cpuMillis;
+	}
+
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+
+}
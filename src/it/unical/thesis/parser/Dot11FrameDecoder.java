@@ -0,0 +1,608 @@
+package it.unical.thesis.parser;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import it.unical.thesis.data.AccessPoint;
+import it.unical.thesis.utils.HexCodec;
+
+/**
+ * Decodes radiotap + 802.11 management frames (beacon, probe response, association response)
+ * straight from a capture buffer into an AccessPoint. Element values are kept as the numbers
+ * found in the frame and mapped with the same TsharkParser helpers the tshark rows go through,
+ * so both paths agree on formats and defaults without a text round trip.
+ *
+ * decode() only reads the headers and builds a fingerprint of the frame; the information
+ * elements are decoded by toAccessPoint(), which callers skip for frames already seen.
+ */
+final class Dot11FrameDecoder {
+
+    static final int LINKTYPE_IEEE802_11 = 105;
+    static final int LINKTYPE_IEEE802_11_RADIOTAP = 127;
+
+    private static final int SUBTYPE_ASSOC_RESP = 1;
+    private static final int SUBTYPE_PROBE_RESP = 5;
+    private static final int SUBTYPE_BEACON = 8;
+
+    private static final int OUI_MICROSOFT = 0x0050f2;
+    private static final int OUI_WFA = 0x506f9a;
+
+    private static final int ABSENT = -1;
+
+    private final StringBuilder hexBuilder = new StringBuilder(64);
+    private final StringBuilder vendorData = new StringBuilder(64);
+    private final int[] hePhyBytes = new int[5];
+
+    private byte[] fingerprint = new byte[256];
+    private int fingerprintLength;
+    private ByteBuffer buffer;
+    private int elementsStart;
+    private int elementsEnd;
+
+    private int[] rates = new int[16];
+    private int rateCount;
+    private int[] akms = new int[4];
+    private int akmCount;
+    private int[] pairwiseCiphers = new int[4];
+    private int pairwiseCipherCount;
+
+    private String bssid;
+    private String ssid;
+    private int signal;
+    private boolean hasSignal;
+
+    private int frequency;
+    private int channelFlags;
+    private int radioChannel;
+    private int dsChannel;
+    private int beaconInterval;
+    private int dtimPeriod;
+    private int capabilities;
+    private int htCapabilities;
+    private long vhtCapabilities;
+    private int vhtChannelWidth;
+    private String countryCode;
+    private boolean rsn;
+    private boolean mfpc;
+    private boolean mfpr;
+    private int groupMgmtCipher;
+    private boolean rmCapabilities;
+    private int wpsVersion;
+    private int extensionCount;
+    private int firstExtension;
+    private boolean hasHeCapabilities;
+    private long heMacCapabilities;
+    private int heBssColor;
+    private int hePeDuration;
+    private int ssidPos;
+    private int ssidLength;
+    private int elementCount;
+    private int firstElementLength;
+
+    /**
+     * Returns true when the packet is a beacon, probe response or association response
+     * and its headers and fingerprint have been read.
+     */
+    boolean decode(ByteBuffer buffer, int offset, int length, int linkType) {
+        resetFrame();
+
+        int end = offset + length;
+        int frame = offset;
+
+        if (linkType == LINKTYPE_IEEE802_11_RADIOTAP) {
+            if (length < 8) return false;
+            int radiotapLength = u16le(buffer, offset + 2);
+            if (radiotapLength < 8 || radiotapLength > length) return false;
+            boolean hasFcs = decodeRadiotap(buffer, offset, radiotapLength);
+            frame = offset + radiotapLength;
+            if (hasFcs) end -= 4;
+        } else if (linkType != LINKTYPE_IEEE802_11) {
+            return false;
+        }
+
+        if (end - frame < 24) return false;
+
+        int frameControl = u16le(buffer, frame);
+        int type = (frameControl >> 2) & 0x03;
+        int subtype = (frameControl >> 4) & 0x0f;
+        if (type != 0) return false;
+
+        int fixedLength;
+        int capabilitiesOffset;
+        if (subtype == SUBTYPE_BEACON || subtype == SUBTYPE_PROBE_RESP) {
+            fixedLength = 12;
+            capabilitiesOffset = frame + 24 + 10;
+            if (end - frame < 24 + fixedLength) return false;
+            beaconInterval = u16le(buffer, frame + 24 + 8);
+        } else if (subtype == SUBTYPE_ASSOC_RESP) {
+            fixedLength = 6;
+            capabilitiesOffset = frame + 24;
+            if (end - frame < 24 + fixedLength) return false;
+        } else {
+            return false;
+        }
+
+        bssid = mac(buffer, frame + 16);
+        capabilities = u16le(buffer, capabilitiesOffset);
+
+        this.buffer = buffer;
+        this.elementsStart = frame + 24 + fixedLength;
+        this.elementsEnd = end;
+        buildFingerprint(buffer, frame);
+        return true;
+    }
+
+    String getBssid() {
+        return bssid;
+    }
+
+    boolean hasSignal() {
+        return hasSignal;
+    }
+
+    /**
+     * Radiotap antenna signal in dBm, valid when hasSignal() is true.
+     */
+    int getSignal() {
+        return signal;
+    }
+
+    /**
+     * Everything in the frame that can change the AccessPoint built from it, in
+     * fingerprint[0, getFingerprintLength()). Frames with equal fingerprints give equal
+     * AccessPoints.
+     */
+    byte[] getFingerprint() {
+        return fingerprint;
+    }
+
+    int getFingerprintLength() {
+        return fingerprintLength;
+    }
+
+    /**
+     * The last decoded frame as an AccessPoint, with the defaults TsharkParser.parseFields applies.
+     */
+    AccessPoint toAccessPoint() {
+        resetElements();
+        decodeElements(buffer, elementsStart, elementsEnd);
+        ssid = ssidLength > 0 ? ssid(buffer, ssidPos, ssidLength) : null;
+
+        AccessPoint ap = new AccessPoint();
+        ap.setBssid(bssid);
+        ap.setSsid(ssid);
+
+        Integer channel = dsChannel != ABSENT ? Integer.valueOf(dsChannel)
+                : radioChannel != ABSENT ? Integer.valueOf(radioChannel) : null;
+        ap.setChannel(channel);
+        ap.setHwMode(TsharkParser.determineHwMode(frequency, (channelFlags & 0x0080) != 0,
+                (channelFlags & 0x0100) != 0, channel));
+
+        if (beaconInterval != ABSENT) ap.setBeaconInt(beaconInterval);
+        if (dtimPeriod != ABSENT) ap.setDtimPeriod(dtimPeriod);
+
+        if (htCapabilities != ABSENT) {
+            ap.setIeee80211n(true);
+            ap.setHtCapab(TsharkParser.formatHtCapabilities(htCapabilities, (htCapabilities & 0x0001) != 0));
+        }
+
+        if (vhtCapabilities != ABSENT || vhtChannelWidth != ABSENT) {
+            ap.setIeee80211ac(true);
+            if (vhtCapabilities != ABSENT) {
+                ap.setVhtCapab(TsharkParser.formatVhtCapabilities(vhtCapabilities));
+            }
+            if (vhtChannelWidth != ABSENT) {
+                ap.setVhtOperChwidth(vhtChannelWidth);
+            }
+        }
+
+        String formattedRates = TsharkParser.formatSupportedRates(rates, rateCount);
+        if (formattedRates != null) ap.setSupportedRates(formattedRates);
+
+        if (countryCode != null && !countryCode.isEmpty()) {
+            ap.setCountryCode(countryCode);
+            ap.setIeee80211d(true);
+            ap.setIeee80211h(true);
+        }
+
+        ap.setWpa(TsharkParser.determineWpaLevel((capabilities & 0x0010) != 0, rsn));
+
+        if (akmCount > 0) {
+            String keyMgmt = TsharkParser.formatKeyManagement(akms, akmCount);
+            ap.setWpaKeyMgmt(keyMgmt);
+            ap.setIeee8021x(TsharkParser.usesEap(keyMgmt));
+        }
+        if (pairwiseCipherCount > 0) {
+            ap.setRsnPairwise(TsharkParser.mapPairwiseCipherType(pairwiseCiphers, pairwiseCipherCount));
+        }
+        if (groupMgmtCipher != ABSENT) {
+            ap.setGroupMgmtCipher(TsharkParser.mapGroupMgmtCipherType(groupMgmtCipher));
+        }
+        ap.setIeee80211w(TsharkParser.determinePmfLevel(mfpc, mfpr));
+
+        if ((capabilities & 0x1000) != 0 || rmCapabilities) {
+            ap.setRrmNeighborReport(true);
+            ap.setRrmBeaconReport(true);
+        }
+
+        if (wpsVersion != ABSENT) ap.setWpsState(TsharkParser.mapWpsState(wpsVersion));
+
+        // tshark lists every extension tag, so a lone 35 or 36 is what marks HE there
+        boolean singleHeTag = extensionCount == 1 && (firstExtension == 35 || firstExtension == 36);
+        if (singleHeTag || hasHeCapabilities) {
+            ap.setIeee80211ax(true);
+            if (hasHeCapabilities) {
+                ap.setHeCapab(TsharkParser.formatHeCapabilities(heMacCapabilities, hePhyBytes));
+            }
+            if (heBssColor != ABSENT) ap.setHeBssColor(heBssColor);
+            if (hePeDuration != ABSENT) ap.setHeDefaultPeDuration(hePeDuration);
+        }
+
+        if (vendorData.length() > 0) {
+            ap.setVendorElements(TsharkParser.formatVendorElements(vendorData.toString()));
+        }
+
+        if (elementCount == 1 && firstElementLength == 0 && (ap.getSsid() == null || ap.getSsid().isEmpty())) {
+            ap.setIgnoreBroadcastSsid(true);
+        }
+
+        TsharkParser.extractBasicRates(ap);
+        TsharkParser.setConsistentDefaults(ap);
+        return ap;
+    }
+
+    private void resetFrame() {
+        bssid = null;
+        hasSignal = false;
+        frequency = ABSENT;
+        channelFlags = 0;
+        radioChannel = ABSENT;
+        beaconInterval = ABSENT;
+        capabilities = 0;
+    }
+
+    private void resetElements() {
+        dsChannel = ABSENT;
+        dtimPeriod = ABSENT;
+        htCapabilities = ABSENT;
+        vhtCapabilities = ABSENT;
+        vhtChannelWidth = ABSENT;
+        countryCode = null;
+        rsn = false;
+        mfpc = false;
+        mfpr = false;
+        groupMgmtCipher = ABSENT;
+        rmCapabilities = false;
+        wpsVersion = ABSENT;
+        extensionCount = 0;
+        firstExtension = ABSENT;
+        hasHeCapabilities = false;
+        heBssColor = ABSENT;
+        hePeDuration = ABSENT;
+        ssidLength = 0;
+        elementCount = 0;
+        rateCount = 0;
+        akmCount = 0;
+        pairwiseCipherCount = 0;
+        vendorData.setLength(0);
+    }
+
+    /**
+     * The radiotap channel, frame subtype, BSSID, beacon interval, capability information and
+     * the information elements. Left out are what changes from one beacon to the next without
+     * changing the AccessPoint: the other radiotap fields (signal, antenna, TSFT), duration,
+     * receiver and transmitter addresses, sequence number, the TSF timestamp and the DTIM count
+     * and traffic bitmap of the TIM element.
+     */
+    private void buildFingerprint(ByteBuffer buffer, int frame) {
+        fingerprintLength = 0;
+        addShort(frequency);
+        addShort(channelFlags);
+        addByte(buffer.get(frame));
+        for (int i = 16; i < 22; i++) {
+            addByte(buffer.get(frame + i));
+        }
+        addShort(beaconInterval);
+        addShort(capabilities);
+
+        int pos = elementsStart;
+        while (pos + 2 <= elementsEnd) {
+            int id = buffer.get(pos) & 0xff;
+            int length = buffer.get(pos + 1) & 0xff;
+            if (id == 5 && length >= 2 && pos + 2 + length <= elementsEnd) {
+                addByte(id);
+                addByte(length);
+                addByte(buffer.get(pos + 3));
+            } else {
+                for (int i = pos; i < Math.min(pos + 2 + length, elementsEnd); i++) {
+                    addByte(buffer.get(i));
+                }
+            }
+            pos += 2 + length;
+        }
+        if (pos < elementsEnd) addByte(buffer.get(pos));
+    }
+
+    private void addShort(int value) {
+        addByte(value >> 8);
+        addByte(value);
+    }
+
+    private void addByte(int value) {
+        if (fingerprintLength == fingerprint.length) {
+            fingerprint = Arrays.copyOf(fingerprint, fingerprintLength * 2);
+        }
+        fingerprint[fingerprintLength++] = (byte) value;
+    }
+
+    private boolean decodeRadiotap(ByteBuffer buffer, int start, int radiotapLength) {
+        int present = u32le(buffer, start + 4);
+        int pos = start + 8;
+
+        int word = present;
+        while ((word & 0x80000000) != 0 && pos + 4 <= start + radiotapLength) {
+            word = u32le(buffer, pos);
+            pos += 4;
+        }
+
+        boolean hasFcs = false;
+        int end = start + radiotapLength;
+
+        for (int bit = 0; bit <= 11; bit++) {
+            if ((present & (1 << bit)) == 0) continue;
+
+            int align;
+            int size;
+            switch (bit) {
+                case 0: align = 8; size = 8; break;
+                case 3: align = 2; size = 4; break;
+                case 4: align = 1; size = 2; break;
+                case 7: case 8: case 9: align = 2; size = 2; break;
+                default: align = 1; size = 1; break;
+            }
+
+            pos = start + ((pos - start + align - 1) & ~(align - 1));
+            if (pos + size > end) break;
+
+            switch (bit) {
+                case 1:
+                    hasFcs = (buffer.get(pos) & 0x10) != 0;
+                    break;
+                case 3:
+                    frequency = u16le(buffer, pos);
+                    channelFlags = u16le(buffer, pos + 2);
+                    int channel = channelFromFrequency(frequency);
+                    if (channel > 0) radioChannel = channel;
+                    break;
+                case 5:
+                    signal = buffer.get(pos);
+                    hasSignal = true;
+                    break;
+                default:
+                    break;
+            }
+            pos += size;
+        }
+
+        return hasFcs;
+    }
+
+    private void decodeElements(ByteBuffer buffer, int pos, int end) {
+        while (pos + 2 <= end) {
+            int id = buffer.get(pos) & 0xff;
+            int length = buffer.get(pos + 1) & 0xff;
+            int body = pos + 2;
+            if (body + length > end) break;
+
+            if (elementCount++ == 0) firstElementLength = length;
+
+            switch (id) {
+                case 0:
+                    // an empty SSID element does not replace one seen earlier in the frame
+                    if (length > 0) {
+                        ssidPos = body;
+                        ssidLength = length;
+                    }
+                    break;
+                case 1:
+                case 50:
+                    for (int i = 0; i < length; i++) {
+                        rates = add(rates, rateCount++, buffer.get(body + i) & 0xff);
+                    }
+                    break;
+                case 3:
+                    if (length >= 1) dsChannel = buffer.get(body) & 0xff;
+                    break;
+                case 5:
+                    if (length >= 2) dtimPeriod = buffer.get(body + 1) & 0xff;
+                    break;
+                case 7:
+                    if (length >= 3) countryCode = ascii(buffer, body, 2).trim();
+                    break;
+                case 45:
+                    if (length >= 2) htCapabilities = u16le(buffer, body);
+                    break;
+                case 48:
+                    decodeRsn(buffer, body, length);
+                    break;
+                case 70:
+                    if (length >= 1) rmCapabilities = true;
+                    break;
+                case 191:
+                    if (length >= 4) vhtCapabilities = u32le(buffer, body) & 0xffffffffL;
+                    break;
+                case 192:
+                    if (length >= 1) vhtChannelWidth = buffer.get(body) & 0xff;
+                    break;
+                case 221:
+                    decodeVendor(buffer, body, length);
+                    break;
+                case 255:
+                    decodeExtension(buffer, body, length);
+                    break;
+                default:
+                    break;
+            }
+
+            pos = body + length;
+        }
+    }
+
+    private void decodeRsn(ByteBuffer buffer, int body, int length) {
+        int end = body + length;
+        if (length < 2) return;
+        rsn = true;
+
+        // the group data cipher is not part of the AccessPoint
+        int pos = body + 2;
+        if (pos + 4 > end) return;
+        pos += 4;
+
+        if (pos + 2 > end) return;
+        int count = u16le(buffer, pos);
+        pos += 2;
+        for (int i = 0; i < count; i++) {
+            if (pos + 4 > end) return;
+            pairwiseCiphers = add(pairwiseCiphers, pairwiseCipherCount++, buffer.get(pos + 3) & 0xff);
+            pos += 4;
+        }
+
+        if (pos + 2 > end) return;
+        count = u16le(buffer, pos);
+        pos += 2;
+        for (int i = 0; i < count; i++) {
+            if (pos + 4 > end) return;
+            akms = add(akms, akmCount++, buffer.get(pos + 3) & 0xff);
+            pos += 4;
+        }
+
+        if (pos + 2 > end) return;
+        int rsnCapabilities = u16le(buffer, pos);
+        mfpc = (rsnCapabilities & 0x0080) != 0;
+        mfpr = (rsnCapabilities & 0x0040) != 0;
+        pos += 2;
+
+        if (pos + 2 > end) return;
+        int pmkidCount = u16le(buffer, pos);
+        pos += 2 + pmkidCount * 16;
+
+        if (pos + 4 > end) return;
+        groupMgmtCipher = buffer.get(pos + 3) & 0xff;
+    }
+
+    private void decodeVendor(ByteBuffer buffer, int body, int length) {
+        if (length < 4) return;
+
+        int oui = ((buffer.get(body) & 0xff) << 16) | ((buffer.get(body + 1) & 0xff) << 8) | (buffer.get(body + 2) & 0xff);
+        int ouiType = buffer.get(body + 3) & 0xff;
+
+        if (oui == OUI_MICROSOFT) {
+            if (ouiType == 4) decodeWps(buffer, body + 4, body + length);
+        } else if (oui != OUI_WFA && length > 4) {
+            // AccessPoint keeps vendor elements as hex, so this is the stored form, not an intermediate one
+            for (int i = 4; i < length; i++) {
+                HexCodec.appendByte(vendorData, buffer.get(body + i), false);
+            }
+        }
+    }
+
+    private void decodeWps(ByteBuffer buffer, int pos, int end) {
+        while (pos + 4 <= end) {
+            int type = u16be(buffer, pos);
+            int length = u16be(buffer, pos + 2);
+            int body = pos + 4;
+            if (body + length > end) break;
+
+            if (type == 0x104a && length >= 1) {
+                wpsVersion = buffer.get(body) & 0xff;
+            }
+
+            pos = body + length;
+        }
+    }
+
+    private void decodeExtension(ByteBuffer buffer, int body, int length) {
+        if (length < 1) return;
+
+        int extensionId = buffer.get(body) & 0xff;
+        if (extensionCount++ == 0) firstExtension = extensionId;
+
+        if (extensionId == 35 && length >= 1 + 6 + 11) {
+            long macCapabilities = 0;
+            for (int i = 5; i >= 0; i--) {
+                macCapabilities = (macCapabilities << 8) | (buffer.get(body + 1 + i) & 0xff);
+            }
+            heMacCapabilities = macCapabilities;
+            for (int i = 0; i < hePhyBytes.length; i++) {
+                hePhyBytes[i] = buffer.get(body + 7 + i) & 0xff;
+            }
+            hasHeCapabilities = true;
+        } else if (extensionId == 36 && length >= 1 + 3 + 1) {
+            hePeDuration = buffer.get(body + 1) & 0x07;
+            heBssColor = buffer.get(body + 4) & 0x3f;
+        }
+    }
+
+    /**
+     * Same rule as TsharkParser.hexToString: printable ASCII is kept, a NUL ends the SSID and
+     * anything else is skipped.
+     */
+    private String ssid(ByteBuffer buffer, int pos, int length) {
+        hexBuilder.setLength(0);
+        for (int i = 0; i < length; i++) {
+            int value = buffer.get(pos + i) & 0xff;
+            if (value >= 32 && value <= 126) {
+                hexBuilder.append((char) value);
+            } else if (value == 0) {
+                break;
+            }
+        }
+        return hexBuilder.length() > 0 ? hexBuilder.toString() : null;
+    }
+
+    private String mac(ByteBuffer buffer, int pos) {
+        hexBuilder.setLength(0);
+        for (int i = 0; i < 6; i++) {
+            if (i > 0) hexBuilder.append(':');
+            HexCodec.appendByte(hexBuilder, buffer.get(pos + i), false);
+        }
+        return hexBuilder.toString();
+    }
+
+    private static int[] add(int[] values, int index, int value) {
+        if (index == values.length) {
+            values = Arrays.copyOf(values, index * 2);
+        }
+        values[index] = value;
+        return values;
+    }
+
+    private static String ascii(ByteBuffer buffer, int pos, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get(pos + i) & 0xff);
+        }
+        return new String(chars);
+    }
+
+    private static int channelFromFrequency(int freq) {
+        if (freq == 2484) return 14;
+        if (freq >= 2412 && freq < 2484) return (freq - 2407) / 5;
+        if (freq >= 5950 && freq <= 7115) return (freq - 5950) / 5;
+        if (freq >= 5000 && freq < 5950) return (freq - 5000) / 5;
+        return -1;
+    }
+
+    private static int u16le(ByteBuffer buffer, int pos) {
+        return (buffer.get(pos) & 0xff) | ((buffer.get(pos + 1) & 0xff) << 8);
+    }
+
+    private static int u16be(ByteBuffer buffer, int pos) {
+        return ((buffer.get(pos) & 0xff) << 8) | (buffer.get(pos + 1) & 0xff);
+    }
+
+    private static int u32le(ByteBuffer buffer, int pos) {
+        return (buffer.get(pos) & 0xff) | ((buffer.get(pos + 1) & 0xff) << 8)
+                | ((buffer.get(pos + 2) & 0xff) << 16) | ((buffer.get(pos + 3) & 0xff) << 24);
+    }
+}
@@ -4,31 +4,128 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import it.unical.thesis.data.AccessPoint;
+import it.unical.thesis.metrics.ParseEvent;
 
 public class IwParser {
 	
+    private static final Pattern BSSID_PATTERN = Pattern.compile("([a-fA-F0-9]{2}:[a-fA-F0-9]{2}:[a-fA-F0-9]{2}:[a-fA-F0-9]{2}:[a-fA-F0-9]{2}:[a-fA-F0-9]{2})");
+    private static final Pattern FREQ_PATTERN = Pattern.compile("freq: ([0-9.]+)");
+    private static final Pattern DS_CHANNEL_PATTERN = Pattern.compile("channel (\\d+)");
+    private static final Pattern COUNTRY_PATTERN = Pattern.compile("Country: ([A-Z]{2})");
+    private static final Pattern BEACON_INTERVAL_PATTERN = Pattern.compile("(\\d+) TUs");
+    private static final Pattern DTIM_PERIOD_PATTERN = Pattern.compile("DTIM Period (\\d+)");
+    private static final Pattern WPS_STATE_PATTERN = Pattern.compile("State: (\\d+)");
+    private static final Pattern CENTER_FREQ_SEGMENT_PATTERN = Pattern.compile("center freq segment 1: (\\d+)");
+    private static final Pattern INTERFACE_PATTERN = Pattern.compile("^\\s+Interface\\s+(\\w+)\\s*$");
+    
 	private IwParser()
 	{
 		
 	}
+	
+	
+    /**
+     * Matchers bound to the static patterns, reset on every line instead of being recreated.
+     */
+    private static final class Matchers {
+        private final Matcher bssid = BSSID_PATTERN.matcher("");
+        private final Matcher freq = FREQ_PATTERN.matcher("");
+        private final Matcher dsChannel = DS_CHANNEL_PATTERN.matcher("");
+        private final Matcher country = COUNTRY_PATTERN.matcher("");
+        private final Matcher beaconInterval = BEACON_INTERVAL_PATTERN.matcher("");
+        private final Matcher dtimPeriod = DTIM_PERIOD_PATTERN.matcher("");
+        private final Matcher wpsState = WPS_STATE_PATTERN.matcher("");
+        private final Matcher centerFreqSegment = CENTER_FREQ_SEGMENT_PATTERN.matcher("");
+    }
 
-	public static HashMap<String, AccessPoint> parseIwScanOutput(List<String> scanLines) {
-        HashMap<String, AccessPoint> accessPoints = new HashMap<>();
+    private enum Section { NONE, RSN, WPA, HT, VHT, RRM }
+    
+    /**
+     * Single-pass parser state: every line is looked at once, and lines indented below a
+     * section header (RSN, WPA, HT/VHT, RM) are handed only to that section.
+     */
+    static final class ScanState {
+        private final HashMap<String, AccessPoint> accessPoints = new HashMap<>();
+        private final Consumer<AccessPoint> accessPointConsumer;
+        private final Matchers matchers = new Matchers();
+        private final StringBuilder htCapab = new StringBuilder();
+        private final StringBuilder vhtCapab = new StringBuilder();
+        private AccessPoint current;
+        private Section section = Section.NONE;
         
-        List<List<String>> bssEntries = splitIntoBSSEntries(scanLines);
+        ScanState(Consumer<AccessPoint> accessPointConsumer) {
+            this.accessPointConsumer = accessPointConsumer;
+        }
         
-        for (List<String> entry : bssEntries) {
-            AccessPoint ap = parseBSSEntry(entry);
-            if (ap != null && ap.getBssid() != null) {
-                accessPoints.put(ap.getBssid(), ap);
+        void accept(String rawLine) {
+            String line = rawLine.trim();
+            
+            if (line.startsWith("BSS ")) {
+                finishEntry();
+                String bssid = extractBSSID(line, matchers);
+                if (bssid != null) {
+                    current = new AccessPoint();
+                    current.setBssid(bssid);
+                }
+                return;
+            }
+            if (current == null) return;
+            
+            if (indentation(rawLine) <= 1) {
+                section = Section.NONE;
+            }
+            parseEntryLine(line, this);
+            
+            switch (section) {
+                case RSN: parseRSNLine(line, current); break;
+                case WPA: parseWPALine(line, current); break;
+                case HT: parseHTCapabilitiesLine(line, htCapab); break;
+                case VHT: parseVHTCapabilitiesLine(line, current, vhtCapab, matchers); break;
+                case RRM: parseRRMCapabilitiesLine(line, current); break;
+                default: break;
             }
         }
         
-        return accessPoints;
+        void finishEntry() {
+            if (current != null) {
+                if (htCapab.length() > 0) current.setHtCapab(htCapab.toString());
+                if (vhtCapab.length() > 0) current.setVhtCapab(vhtCapab.toString());
+                if (current.getHwMode() == null && current.getChannel() != null) {
+                    current.setHwMode(current.getChannel() <= 14 ? "g" : "a");
+                }
+                boolean firstSeen = accessPoints.put(current.getBssid(), current) == null;
+                if (firstSeen && accessPointConsumer != null) {
+                    accessPointConsumer.accept(current);
+                }
+            }
+            current = null;
+            section = Section.NONE;
+            htCapab.setLength(0);
+            vhtCapab.setLength(0);
+        }
+        
+        HashMap<String, AccessPoint> getAccessPoints() {
+            return accessPoints;
+        }
+    }
+
+	public static HashMap<String, AccessPoint> parseIwScanOutput(List<String> scanLines) {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        ScanState state = new ScanState(null);
+        
+        for (String line : scanLines) {
+            state.accept(line);
+        }
+        state.finishEntry();
+        
+        event.finish("iw", scanLines.size(), state.getAccessPoints().size());
+        return state.getAccessPoints();
     }
     
     public static HashMap<String, AccessPoint> parseIwScanOutput(String scanOutput) {
@@ -36,132 +133,102 @@ public class IwParser {
         return parseIwScanOutput(lines);
     }
     
-    private static List<List<String>> splitIntoBSSEntries(List<String> lines) {
-        List<List<String>> bssEntries = new ArrayList<>();
-        List<String> currentEntry = new ArrayList<>();
+    private static int indentation(String line) {
+        int depth = 0;
+        while (depth < line.length() && line.charAt(depth) == '\t') depth++;
+        return depth;
+    }
+    
+    private static void parseEntryLine(String line, ScanState state) {
+        AccessPoint ap = state.current;
+        Matchers matchers = state.matchers;
         
-        for (String line : lines) {
-            if (line.trim().startsWith("BSS ")) {
-                if (!currentEntry.isEmpty()) {
-                    bssEntries.add(new ArrayList<>(currentEntry));
-                    currentEntry.clear();
-                }
-                currentEntry.add(line.trim());
-            } else if (!currentEntry.isEmpty()) {
-                currentEntry.add(line);
+        if (line.startsWith("freq:")) {
+            Double freq = extractFreq(line, matchers);
+            Integer channel = extractChannelFromFreq(freq);
+            if (channel != null) {
+                ap.setChannel(channel);
+                ap.setHwMode(getHwModeFromFreq(freq));
             }
         }
-        
-        if (!currentEntry.isEmpty()) {
-            bssEntries.add(currentEntry);
+        else if (line.startsWith("SSID:")) {
+            String ssid = line.substring(5).trim();
+            if (!ssid.isEmpty()) {
+                ap.setSsid(ssid);
+            }
+        }
+        else if (line.startsWith("DS Parameter set: channel")) {
+            Integer channel = extractNumber(line, matchers.dsChannel);
+            if (channel != null) ap.setChannel(channel);
+        }
+        else if (line.startsWith("Country:")) {
+            String country = extractCountryCode(line, matchers);
+            if (country != null) {
+                ap.setCountryCode(country);
+                ap.setIeee80211d(true);
+            }
+        }
+        else if (line.startsWith("beacon interval:")) {
+            Integer beaconInt = extractNumber(line, matchers.beaconInterval);
+            if (beaconInt != null) ap.setBeaconInt(beaconInt);
+        }
+        else if (line.contains("DTIM Period")) {
+            Integer dtimPeriod = extractNumber(line, matchers.dtimPeriod);
+            if (dtimPeriod != null) ap.setDtimPeriod(dtimPeriod);
         }
         
-        return bssEntries;
-    }
-    
-    private static AccessPoint parseBSSEntry(List<String> lines) {
-        AccessPoint ap = new AccessPoint();
-        
-        if (lines.isEmpty()) return null;
+        else if (line.startsWith("RSN:")) {
+            ap.setWpa(2);
+            state.section = Section.RSN;
+        }
+        else if (line.startsWith("WPA:")) {
+            if (ap.getWpa() == null) ap.setWpa(1); // WPA1
+            state.section = Section.WPA;
+        }
         
-        String firstLine = lines.get(0);
-        String bssid = extractBSSID(firstLine);
-        if (bssid == null) return null;
+        else if (line.startsWith("HT capabilities:")) {
+            ap.setIeee80211n(true);
+            state.section = Section.HT;
+        }
+        else if (line.startsWith("VHT capabilities:")) {
+            ap.setIeee80211ac(true);
+            state.section = Section.VHT;
+        }
+        else if (line.startsWith("VHT operation:")) {
+            state.section = Section.VHT;
+        }
+        else if (line.startsWith("HE capabilities:")) {
+            ap.setIeee80211ax(true);
+        }
         
-        ap.setBssid(bssid);
+        else if (line.startsWith("WMM:")) {
+            ap.setWmmEnabled(true);
+        }
         
-        for (String line : lines) {
-            line = line.trim();
-            
-            if (line.startsWith("freq:")) {
-                Integer channel = extractChannelFromFreq(line);
-                if (channel != null) {
-                    ap.setChannel(channel);
-                    ap.setHwMode(getHwModeFromFreq(extractFreq(line)));
-                }
-            }
-            else if (line.startsWith("SSID:")) {
-                String ssid = line.substring(5).trim();
-                if (!ssid.isEmpty()) {
-                    ap.setSsid(ssid);
-                }
-            }
-            else if (line.startsWith("DS Parameter set: channel")) {
-                Integer channel = extractNumber(line, "channel (\\d+)");
-                if (channel != null) ap.setChannel(channel);
-            }
-            else if (line.startsWith("Country:")) {
-                String country = extractCountryCode(line);
-                if (country != null) {
-                    ap.setCountryCode(country);
-                    ap.setIeee80211d(true);
-                }
-            }
-            else if (line.startsWith("beacon interval:")) {
-                Integer beaconInt = extractNumber(line, "(\\d+) TUs");
-                if (beaconInt != null) ap.setBeaconInt(beaconInt);
-            }
-            else if (line.contains("DTIM Period")) {
-                Integer dtimPeriod = extractNumber(line, "DTIM Period (\\d+)");
-                if (dtimPeriod != null) ap.setDtimPeriod(dtimPeriod);
-            }
-            
-            else if (line.startsWith("RSN:")) {
-                parseRSNInfo(lines, ap);
-            }
-            else if (line.startsWith("WPA:")) {
-                parseWPAInfo(lines, ap);
-            }
-            
-            else if (line.startsWith("HT capabilities:")) {
-                ap.setIeee80211n(true);
-                parseHTCapabilities(lines, ap);
-            }
-            else if (line.startsWith("VHT capabilities:")) {
-                ap.setIeee80211ac(true);
-                parseVHTCapabilities(lines, ap);
-            }
-            else if (line.startsWith("HE capabilities:")) {
-                ap.setIeee80211ax(true);
-            }
-            
-            else if (line.startsWith("WMM:")) {
-                ap.setWmmEnabled(true);
-            }
-            
-            else if (line.contains("Wi-Fi Protected Setup State:")) {
-                Integer wpsState = extractNumber(line, "State: (\\d+)");
-                if (wpsState != null) ap.setWpsState(wpsState);
-            }
-            
-            else if (line.startsWith("RM enabled capabilities:")) {
-                parseRRMCapabilities(lines, ap);
-            }
-            
-            else if (line.startsWith("Supported rates:")) {
-                String rates = extractSupportedRates(line);
-                if (rates != null) {
-                    ap.setSupportedRates(rates);
-                    ap.setBasicRates(extractBasicRates(line));
-                }
-            }
+        else if (line.contains("Wi-Fi Protected Setup State:")) {
+            Integer wpsState = extractNumber(line, matchers.wpsState);
+            if (wpsState != null) ap.setWpsState(wpsState);
         }
         
-        if (ap.getHwMode() == null && ap.getChannel() != null) {
-            ap.setHwMode(ap.getChannel() <= 14 ? "g" : "a");
+        else if (line.startsWith("RM enabled capabilities:")) {
+            state.section = Section.RRM;
         }
         
-        return ap;
+        else if (line.startsWith("Supported rates:")) {
+            String rates = extractSupportedRates(line);
+            if (rates != null) {
+                ap.setSupportedRates(rates);
+                ap.setBasicRates(extractBasicRates(line));
+            }
+        }
     }
     
-    private static String extractBSSID(String line) {
-        Pattern pattern = Pattern.compile("([a-fA-F0-9]{2}:[a-fA-F0-9]{2}:[a-fA-F0-9]{2}:[a-fA-F0-9]{2}:[a-fA-F0-9]{2}:[a-fA-F0-9]{2})");
-        Matcher matcher = pattern.matcher(line);
+    private static String extractBSSID(String line, Matchers matchers) {
+        Matcher matcher = matchers.bssid.reset(line);
         return matcher.find() ? matcher.group(1) : null;
     }
     
-    private static Integer extractChannelFromFreq(String line) {
-        Double freq = extractFreq(line);
+    private static Integer extractChannelFromFreq(Double freq) {
         if (freq == null) return null;
         
         if (freq >= 2412 && freq <= 2484) {
@@ -173,9 +240,8 @@ public class IwParser {
         return null;
     }
     
-    private static Double extractFreq(String line) {
-        Pattern pattern = Pattern.compile("freq: ([0-9.]+)");
-        Matcher matcher = pattern.matcher(line);
+    private static Double extractFreq(String line, Matchers matchers) {
+        Matcher matcher = matchers.freq.reset(line);
         return matcher.find() ? Double.parseDouble(matcher.group(1)) : null;
     }
     
@@ -186,119 +252,86 @@ public class IwParser {
         return "g"; // default
     }
     
-    private static Integer extractNumber(String text, String pattern) {
-        Pattern p = Pattern.compile(pattern);
-        Matcher matcher = p.matcher(text);
+    private static Integer extractNumber(String text, Matcher matcher) {
+        matcher.reset(text);
         return matcher.find() ? Integer.parseInt(matcher.group(1)) : null;
     }
     
-    private static String extractCountryCode(String line) {
-        Pattern pattern = Pattern.compile("Country: ([A-Z]{2})");
-        Matcher matcher = pattern.matcher(line);
+    private static String extractCountryCode(String line, Matchers matchers) {
+        Matcher matcher = matchers.country.reset(line);
         return matcher.find() ? matcher.group(1) : null;
     }
     
-    private static void parseRSNInfo(List<String> lines, AccessPoint ap) {
-        ap.setWpa(2);
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (line.contains("Authentication suites:")) {
-                if (line.contains("PSK")) {
-                    ap.setWpaKeyMgmt("WPA-PSK");
-                }
-                if (line.contains("SAE")) {
-                    if (ap.getWpaKeyMgmt() != null) {
-                        ap.setWpaKeyMgmt(ap.getWpaKeyMgmt() + " SAE");
-                    } else {
-                        ap.setWpaKeyMgmt("SAE");
-                    }
-                }
+    private static void parseRSNLine(String line, AccessPoint ap) {
+        if (line.contains("Authentication suites:")) {
+            if (line.contains("PSK")) {
+                ap.setWpaKeyMgmt("WPA-PSK");
             }
-            else if (line.contains("Pairwise ciphers:")) {
-                if (line.contains("CCMP")) {
-                    ap.setRsnPairwise("CCMP");
+            if (line.contains("SAE")) {
+                if (ap.getWpaKeyMgmt() != null) {
+                    ap.setWpaKeyMgmt(ap.getWpaKeyMgmt() + " SAE");
+                } else {
+                    ap.setWpaKeyMgmt("SAE");
                 }
             }
-            else if (line.contains("MFP-capable") || line.contains("MFP-required")) {
-                ap.setIeee80211w(1);
-                if (line.contains("MFP-required")) {
-                    ap.setIeee80211w(2);
-                }
+        }
+        else if (line.contains("Pairwise ciphers:")) {
+            if (line.contains("CCMP")) {
+                ap.setRsnPairwise("CCMP");
             }
         }
-    }
-    
-    private static void parseWPAInfo(List<String> lines, AccessPoint ap) {
-        if (ap.getWpa() == null) ap.setWpa(1); // WPA1
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (line.contains("Pairwise ciphers:") && line.contains("TKIP")) {
-                ap.setWpaPairwise("TKIP");
+        else if (line.contains("MFP-capable") || line.contains("MFP-required")) {
+            ap.setIeee80211w(1);
+            if (line.contains("MFP-required")) {
+                ap.setIeee80211w(2);
             }
         }
     }
     
-    private static void parseHTCapabilities(List<String> lines, AccessPoint ap) {
-        StringBuilder htCapab = new StringBuilder();
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (line.contains("HT20/HT40")) htCapab.append("[HT40+][HT40-]");
-            else if (line.contains("HT20")) htCapab.append("[HT20]");
-            
-            if (line.contains("RX HT20 SGI")) htCapab.append("[SHORT-GI-20]");
-            if (line.contains("RX HT40 SGI")) htCapab.append("[SHORT-GI-40]");
-            if (line.contains("TX STBC")) htCapab.append("[TX-STBC]");
-            if (line.contains("RX STBC")) htCapab.append("[RX-STBC]");
-            if (line.contains("RX LDPC")) htCapab.append("[LDPC]");
-            if (line.contains("DSSS/CCK HT40")) htCapab.append("[DSSS_CCK-40]");
+    private static void parseWPALine(String line, AccessPoint ap) {
+        if (line.contains("Pairwise ciphers:") && line.contains("TKIP")) {
+            ap.setWpaPairwise("TKIP");
         }
+    }
+    
+    private static void parseHTCapabilitiesLine(String line, StringBuilder htCapab) {
+        if (line.contains("HT20/HT40")) htCapab.append("[HT40+][HT40-]");
+        else if (line.contains("HT20")) htCapab.append("[HT20]");
         
-        if (htCapab.length() > 0) {
-            ap.setHtCapab(htCapab.toString());
-        }
+        if (line.contains("RX HT20 SGI")) htCapab.append("[SHORT-GI-20]");
+        if (line.contains("RX HT40 SGI")) htCapab.append("[SHORT-GI-40]");
+        if (line.contains("TX STBC")) htCapab.append("[TX-STBC]");
+        if (line.contains("RX STBC")) htCapab.append("[RX-STBC]");
+        if (line.contains("RX LDPC")) htCapab.append("[LDPC]");
+        if (line.contains("DSSS/CCK HT40")) htCapab.append("[DSSS_CCK-40]");
     }
     
-    private static void parseVHTCapabilities(List<String> lines, AccessPoint ap) {
-        StringBuilder vhtCapab = new StringBuilder();
+    private static void parseVHTCapabilitiesLine(String line, AccessPoint ap, StringBuilder vhtCapab, Matchers matchers) {
+        if (line.contains("short GI (80 MHz)")) vhtCapab.append("[SHORT-GI-80]");
+        if (line.contains("TX STBC")) vhtCapab.append("[TX-STBC-2BY1]");
+        if (line.contains("RX LDPC")) vhtCapab.append("[RXLDPC]");
+        if (line.contains("SU Beamformer")) vhtCapab.append("[SU-BEAMFORMER]");
+        if (line.contains("SU Beamformee")) vhtCapab.append("[SU-BEAMFORMEE]");
+        if (line.contains("MU Beamformer")) vhtCapab.append("[MU-BEAMFORMER]");
         
-        for (String line : lines) {
-            line = line.trim();
-            if (line.contains("short GI (80 MHz)")) vhtCapab.append("[SHORT-GI-80]");
-            if (line.contains("TX STBC")) vhtCapab.append("[TX-STBC-2BY1]");
-            if (line.contains("RX LDPC")) vhtCapab.append("[RXLDPC]");
-            if (line.contains("SU Beamformer")) vhtCapab.append("[SU-BEAMFORMER]");
-            if (line.contains("SU Beamformee")) vhtCapab.append("[SU-BEAMFORMEE]");
-            if (line.contains("MU Beamformer")) vhtCapab.append("[MU-BEAMFORMER]");
-            
-            if (line.contains("channel width: 0")) {
-                ap.setVhtOperChwidth(0); // 20/40 MHz
-            } else if (line.contains("channel width: 1")) {
-                ap.setVhtOperChwidth(1); // 80 MHz
-            }
-            
-            if (line.contains("center freq segment 1:")) {
-                Integer centerFreq = extractNumber(line, "center freq segment 1: (\\d+)");
-                if (centerFreq != null) ap.setVhtOperCentrFreqSeg0Idx(centerFreq);
-            }
+        if (line.contains("channel width: 0")) {
+            ap.setVhtOperChwidth(0); // 20/40 MHz
+        } else if (line.contains("channel width: 1")) {
+            ap.setVhtOperChwidth(1); // 80 MHz
         }
         
-        if (vhtCapab.length() > 0) {
-            ap.setVhtCapab(vhtCapab.toString());
+        if (line.contains("center freq segment 1:")) {
+            Integer centerFreq = extractNumber(line, matchers.centerFreqSegment);
+            if (centerFreq != null) ap.setVhtOperCentrFreqSeg0Idx(centerFreq);
         }
     }
     
-    private static void parseRRMCapabilities(List<String> lines, AccessPoint ap) {
-        for (String line : lines) {
-            line = line.trim();
-            if (line.contains("Neighbor Report")) {
-                ap.setRrmNeighborReport(true);
-            }
-            if (line.contains("Beacon") && (line.contains("Passive") || line.contains("Active"))) {
-                ap.setRrmBeaconReport(true);
-            }
+    private static void parseRRMCapabilitiesLine(String line, AccessPoint ap) {
+        if (line.contains("Neighbor Report")) {
+            ap.setRrmNeighborReport(true);
+        }
+        if (line.contains("Beacon") && (line.contains("Passive") || line.contains("Active"))) {
+            ap.setRrmBeaconReport(true);
         }
     }
     
@@ -325,10 +358,10 @@ public class IwParser {
     public static List<String> parseInterfaceNames(List<String> lines) {
         List<String> interfaces = new ArrayList<>();
         
-        Pattern interfacePattern = Pattern.compile("^\\s+Interface\\s+(\\w+)\\s*$");
+        Matcher matcher = INTERFACE_PATTERN.matcher("");
         
         for (String line : lines) {
-            Matcher matcher = interfacePattern.matcher(line);
+            matcher.reset(line);
             if (matcher.find()) {
                 String interfaceName = matcher.group(1);
                 interfaces.add(interfaceName);
@@ -0,0 +1,33 @@
+package it.unical.thesis.parser;
+
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+import it.unical.thesis.data.AccessPoint;
+
+/**
+ * Incremental counterpart of {@link IwParser#parseIwScanOutput}: lines are consumed as
+ * "iw dev &lt;if&gt; scan" prints them and each access point is handed to the callback as
+ * soon as the next BSS header (or {@link #finish()}) closes its entry.
+ */
+public class IwScanStreamParser implements Consumer<String> {
+
+    private final IwParser.ScanState state;
+
+    public IwScanStreamParser(Consumer<AccessPoint> accessPointConsumer) {
+        this.state = new IwParser.ScanState(accessPointConsumer);
+    }
+
+    @Override
+    public void accept(String line) {
+        state.accept(line);
+    }
+
+    public void finish() {
+        state.finishEntry();
+    }
+
+    public HashMap<String, AccessPoint> getAccessPoints() {
+        return state.getAccessPoints();
+    }
+}
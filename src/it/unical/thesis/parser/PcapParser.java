@@ -0,0 +1,133 @@
+package it.unical.thesis.parser;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unical.thesis.data.AccessPoint;
+import it.unical.thesis.utils.Log;
+
+/**
+ * Reads a pcap or pcapng capture written by tshark and builds the AccessPoint without
+ * spawning a second tshark to dissect it.
+ */
+public class PcapParser {
+
+    private static final int PCAP_MAGIC_MICROS = 0xa1b2c3d4;
+    private static final int PCAP_MAGIC_NANOS = 0xa1b23c4d;
+    private static final int PCAP_GLOBAL_HEADER_LENGTH = 24;
+    private static final int PCAP_RECORD_HEADER_LENGTH = 16;
+
+    private static final int PCAPNG_SECTION_HEADER_BLOCK = 0x0a0d0d0a;
+    private static final int PCAPNG_INTERFACE_DESCRIPTION_BLOCK = 0x00000001;
+    private static final int PCAPNG_SIMPLE_PACKET_BLOCK = 0x00000003;
+    private static final int PCAPNG_ENHANCED_PACKET_BLOCK = 0x00000006;
+    private static final int PCAPNG_BYTE_ORDER_MAGIC = 0x1a2b3c4d;
+
+    private PcapParser() {
+    }
+
+    public static AccessPoint parseFromCaptureFile(String filePath) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (channel.size() < 4 || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            TsharkStreamParser streamParser = new TsharkStreamParser();
+
+            int magic = buffer.order(ByteOrder.BIG_ENDIAN).getInt(0);
+            if (magic == PCAPNG_SECTION_HEADER_BLOCK) {
+                readPcapng(buffer, streamParser);
+            } else if (!readPcap(buffer, streamParser)) {
+                Log.error("Unsupported capture format: " + filePath);
+                return null;
+            }
+
+            return streamParser.getAccessPoint();
+
+        } catch (IOException e) {
+            Log.error("Cannot read capture file " + filePath, e);
+            return null;
+        }
+    }
+
+    private static boolean readPcap(MappedByteBuffer buffer, TsharkStreamParser streamParser) {
+        int magic = buffer.getInt(0);
+        if (magic != PCAP_MAGIC_MICROS && magic != PCAP_MAGIC_NANOS) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            magic = buffer.getInt(0);
+            if (magic != PCAP_MAGIC_MICROS && magic != PCAP_MAGIC_NANOS) {
+                return false;
+            }
+        }
+        if (buffer.limit() < PCAP_GLOBAL_HEADER_LENGTH) return false;
+
+        int linkType = buffer.getInt(20);
+
+        Dot11FrameDecoder decoder = new Dot11FrameDecoder();
+        int pos = PCAP_GLOBAL_HEADER_LENGTH;
+
+        while (pos + PCAP_RECORD_HEADER_LENGTH <= buffer.limit()) {
+            int capturedLength = buffer.getInt(pos + 8);
+            pos += PCAP_RECORD_HEADER_LENGTH;
+
+            if (capturedLength < 0 || pos + capturedLength > buffer.limit()) break;
+
+            if (decoder.decode(buffer, pos, capturedLength, linkType)) {
+                streamParser.acceptFrame(decoder);
+            }
+            pos += capturedLength;
+        }
+
+        return true;
+    }
+
+    private static void readPcapng(MappedByteBuffer buffer, TsharkStreamParser streamParser) {
+        Dot11FrameDecoder decoder = new Dot11FrameDecoder();
+        List<Integer> linkTypes = new ArrayList<>();
+        int pos = 0;
+
+        while (pos + 12 <= buffer.limit()) {
+            int blockType = buffer.getInt(pos);
+
+            if (blockType == PCAPNG_SECTION_HEADER_BLOCK) {
+                buffer.order(ByteOrder.BIG_ENDIAN);
+                if (buffer.getInt(pos + 8) != PCAPNG_BYTE_ORDER_MAGIC) {
+                    buffer.order(ByteOrder.LITTLE_ENDIAN);
+                }
+                linkTypes.clear();
+            }
+
+            int blockLength = buffer.getInt(pos + 4);
+            if (blockLength < 12 || pos + blockLength > buffer.limit()) break;
+
+            if (blockType == PCAPNG_INTERFACE_DESCRIPTION_BLOCK) {
+                linkTypes.add(buffer.getShort(pos + 8) & 0xffff);
+
+            } else if (blockType == PCAPNG_ENHANCED_PACKET_BLOCK && blockLength >= 32) {
+                int interfaceId = buffer.getInt(pos + 8);
+                if (interfaceId >= 0 && interfaceId < linkTypes.size()) {
+                    int capturedLength = Math.min(buffer.getInt(pos + 20), blockLength - 32);
+
+                    if (capturedLength > 0 && decoder.decode(buffer, pos + 28, capturedLength, linkTypes.get(interfaceId))) {
+                        streamParser.acceptFrame(decoder);
+                    }
+                }
+
+            } else if (blockType == PCAPNG_SIMPLE_PACKET_BLOCK && blockLength >= 16 && !linkTypes.isEmpty()) {
+                int capturedLength = Math.min(buffer.getInt(pos + 8), blockLength - 16);
+                if (capturedLength > 0 && decoder.decode(buffer, pos + 12, capturedLength, linkTypes.get(0))) {
+                    streamParser.acceptFrame(decoder);
+                }
+            }
+
+            pos += blockLength;
+        }
+    }
+}
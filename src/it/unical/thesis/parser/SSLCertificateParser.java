@@ -6,9 +6,20 @@ import java.util.regex.Pattern;
 
 import it.unical.thesis.data.CertificateInfo;
 import it.unical.thesis.data.DistinguishedName;
+import it.unical.thesis.metrics.ParseEvent;
+import it.unical.thesis.utils.HexCodec;
 
 public class SSLCertificateParser {
 
+	private static final String ALL_MARKER = "[ALL]";
+
+	private static final Pattern VERSION_PATTERN = Pattern.compile("Version:\\s*(\\d+)\\s*\\(0x\\d+\\)");
+	private static final Pattern SIGNATURE_ALGORITHM_PATTERN = Pattern.compile("Signature Algorithm:\\s*([\\w\\d]+(?:With[\\w\\d]+)?)");
+	private static final Pattern KEY_ALGORITHM_PATTERN = Pattern.compile("Public Key Algorithm:\\s*([\\w\\d]+)");
+	private static final Pattern KEY_SIZE_PATTERN = Pattern.compile("Public-Key:\\s*\\((\\d+)\\s*bit\\)");
+	private static final Pattern EXPONENT_PATTERN = Pattern.compile("Exponent:\\s*(\\d+)\\s*\\(0x([a-fA-F0-9]+)\\)");
+	private static final Pattern BASIC_CONSTRAINTS_PATTERN = Pattern.compile("CA:(TRUE|FALSE)(?:,\\s*pathlen:(\\d+))?", Pattern.CASE_INSENSITIVE);
+
 	public static CertificateInfo parseCertificate(String certificateText) {
 		return parseCertificate(Arrays.asList(certificateText.split("\n")));
 	}
@@ -19,412 +30,450 @@ public class SSLCertificateParser {
 	}
 
 	public static List<CertificateInfo> parseMultipleCertificates(List<String> lines) {
-		List<CertificateInfo> certificates = new ArrayList<>();
-		Map<Integer, List<List<String>>> certificateBlocks = splitCertificatesByDepth(lines);
-
-		for (Map.Entry<Integer, List<List<String>>> entry : certificateBlocks.entrySet()) {
-			Integer depth = entry.getKey();
-			for (List<String> block : entry.getValue()) {
-				CertificateInfo info = parseSingleCertificate(block);
-				info.setDepth(depth);
-				certificates.add(info);
-			}
-		}
-
-		certificates.sort(Comparator.comparing(CertificateInfo::getDepth));
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		SSLCertificateStreamParser parser = new SSLCertificateStreamParser();
+		lines.forEach(parser);
+		List<CertificateInfo> certificates = parser.getCertificates();
+		event.finish("ssl-certificate", lines.size(), certificates.size());
 		return certificates;
 	}
 
-	private static CertificateInfo parseSingleCertificate(List<String> lines) {
-		CertificateInfo info = new CertificateInfo();
-		String fullText = String.join("\n", lines);
+	static CertificateInfo parseSingleCertificate(List<String> lines) {
+		CertificateTextParser parser = new CertificateTextParser();
+		for (String line : lines) {
+			parser.accept(line);
+		}
+		return parser.finish();
+	}
 
-		extractVersion(fullText, info);
-		extractSerialNumber(lines, info);
-		extractSignatureAlgorithm(fullText, info);
-		extractIssuerAndSubject(lines, info);
-		extractValidityDates(lines, info);
-		extractPublicKeyInfo(fullText, lines, info);
-		extractX509Extensions(lines, fullText, info);
-		extractAuthorityInfoAccess(lines, info);
+	/**
+	 * Builds a CertificateInfo from an OpenSSL text dump in one traversal. Each line is cleaned
+	 * once, and multi-line values (serial, modulus, key identifiers, policies, AIA) and values
+	 * printed on the line after their header are tracked as small per-field states.
+	 */
+	private static final class CertificateTextParser {
+
+		private enum Block { PENDING, ACTIVE, DONE }
+
+		private Integer version;
+		private String serialNumber;
+		private Block serialBlock = Block.PENDING;
+		private final StringBuilder serialBuilder = new StringBuilder();
+		private String signatureAlgorithm;
+		private String issuer;
+		private String subject;
+		private String notBefore;
+		private String notAfter;
+
+		private String keyAlgorithm;
+		private Integer keySize;
+		private String publicKeyExponent;
+		private Block modulusBlock = Block.PENDING;
+		private final StringBuilder modulusBuilder = new StringBuilder();
+
+		private boolean basicConstraintsFound;
+		private boolean basicConstraintsPending;
+		private boolean basicConstraintsCritical;
+		private boolean isCA;
+		private Integer pathLengthConstraint;
+
+		private String subjectKeyIdentifier;
+		private boolean subjectKeyIdentifierPending;
+		private Block authorityKeyBlock = Block.PENDING;
+		private final StringBuilder authorityKeyBuilder = new StringBuilder();
+		private String crlDistributionPoints;
+
+		private final NextLineValue keyUsage = new NextLineValue("X509v3 Key Usage:");
+		private final NextLineValue extendedKeyUsage = new NextLineValue("X509v3 Extended Key Usage:");
+		private final NextLineValue subjectAltName = new NextLineValue("X509v3 Subject Alternative Name:");
+		private final NextLineValue issuerAltName = new NextLineValue("X509v3 Issuer Alternative Name:");
+
+		private Block policiesBlock = Block.PENDING;
+		private final StringBuilder policiesBuilder = new StringBuilder();
+		private Block authorityInfoBlock = Block.PENDING;
+		private final StringBuilder authorityInfoBuilder = new StringBuilder();
+
+		private void accept(String rawLine) {
+			String line = cleanLine(rawLine);
+
+			acceptSerialNumber(line);
+
+			if (line.isEmpty()) {
+				if (authorityKeyBlock == Block.ACTIVE) authorityKeyBlock = Block.DONE;
+				if (authorityInfoBlock == Block.ACTIVE) authorityInfoBlock = Block.DONE;
+				if (policiesBlock == Block.ACTIVE) policiesBlock = Block.DONE;
+				return;
+			}
 
-		return info;
-	}
+			if (version == null && line.contains("Version:")) {
+				Matcher m = VERSION_PATTERN.matcher(line);
+				if (m.find()) {
+					try {
+						version = Integer.parseInt(m.group(1));
+					} catch (NumberFormatException e) {
+						version = 3;
+					}
+				}
+			}
 
-	private static void extractVersion(String fullText, CertificateInfo info) {
-		Pattern versionPattern = Pattern.compile("Version:\\s*(\\d+)\\s*\\(0x\\d+\\)");
-		Matcher versionMatcher = versionPattern.matcher(fullText);
-		if (versionMatcher.find()) {
-			try {
-				info.setVersion(Integer.parseInt(versionMatcher.group(1)));
-			} catch (NumberFormatException e) {
-				info.setVersion(3);
+			if (signatureAlgorithm == null && line.contains("Signature Algorithm:")) {
+				Matcher m = SIGNATURE_ALGORITHM_PATTERN.matcher(line);
+				if (m.find()) signatureAlgorithm = m.group(1).trim();
 			}
-		}
-	}
 
-	private static void extractSignatureAlgorithm(String fullText, CertificateInfo info) {
-		Pattern sigAlgPattern = Pattern.compile("Signature Algorithm:\\s*([\\w\\d]+(?:With[\\w\\d]+)?)");
-		Matcher sigAlgMatcher = sigAlgPattern.matcher(fullText);
-		if (sigAlgMatcher.find()) {
-			info.setSignatureAlgorithm(sigAlgMatcher.group(1).trim());
-		}
-	}
+			String value = valueAfter(line, "Issuer:");
+			if (value != null) issuer = value;
+			value = valueAfter(line, "Subject:");
+			if (value != null) subject = value;
+			value = valueAfter(line, "Not Before:");
+			if (value != null) notBefore = value;
+			value = notAfterValue(line);
+			if (value != null) notAfter = value;
+
+			acceptPublicKey(line);
+			acceptBasicConstraints(line);
+			acceptSubjectKeyIdentifier(line);
+			acceptAuthorityKeyIdentifier(line);
+
+			if (crlDistributionPoints == null && line.contains("URI:")) {
+				crlDistributionPoints = uriValue(line);
+			}
 
-	private static void extractIssuerAndSubject(List<String> lines, CertificateInfo info) {
-		for (String line : lines) {
-			String cleanLine = cleanLine(line);
+			keyUsage.accept(line);
+			extendedKeyUsage.accept(line);
+			subjectAltName.accept(line);
+			issuerAltName.accept(line);
+
+			acceptCertificatePolicies(line);
+			acceptAuthorityInfoAccess(line);
+		}
 
-			if (cleanLine.contains("Issuer:")) {
-				String issuerString = extractFromLine(cleanLine, "Issuer:\\s*(.+)");
-				if (issuerString != null) {
-					info.setIssuer(new DistinguishedName(issuerString));
+		private void acceptSerialNumber(String line) {
+			if (serialBlock == Block.ACTIVE) {
+				if (!line.contains("Signature Algorithm:") && !line.contains("Issuer:")
+						&& !line.contains("Validity") && !line.isEmpty() && isHexColon(line, false)) {
+					serialBuilder.append(line);
+					return;
+				}
+				if (serialBuilder.length() > 0) {
+					serialNumber = serialBuilder.toString();
+					serialBlock = Block.DONE;
+				} else {
+					serialBlock = Block.PENDING;
 				}
 			}
 
-			if (cleanLine.contains("Subject:")) {
-				String subjectString = extractFromLine(cleanLine, "Subject:\\s*(.+)");
-				if (subjectString != null) {
-					info.setSubject(new DistinguishedName(subjectString));
+			if (serialBlock == Block.PENDING && line.contains("Serial Number:")) {
+				String sameLine = valueAfter(line, "Serial Number:");
+				if (sameLine != null && !sameLine.isEmpty() && !sameLine.contains("Signature")) {
+					serialNumber = sameLine;
+					serialBlock = Block.DONE;
+				} else {
+					serialBlock = Block.ACTIVE;
 				}
 			}
 		}
-	}
-
-	private static void extractValidityDates(List<String> lines, CertificateInfo info) {
-		for (String line : lines) {
-			String cleanLine = cleanLine(line);
 
-			if (cleanLine.contains("Not Before:")) {
-				String notBefore = extractFromLine(cleanLine, "Not Before:\\s*(.+)");
-				if (notBefore != null) {
-					info.setNotBefore(notBefore.trim());
-				}
+		private void acceptPublicKey(String line) {
+			if (keyAlgorithm == null && line.contains("Public Key Algorithm:")) {
+				Matcher m = KEY_ALGORITHM_PATTERN.matcher(line);
+				if (m.find()) keyAlgorithm = m.group(1).trim();
 			}
 
-			if (cleanLine.contains("Not After")) {
-				String notAfter = extractFromLine(cleanLine, "Not After\\s*:\\s*(.+)");
-				if (notAfter != null) {
-					info.setNotAfter(notAfter.trim());
+			if (keySize == null && line.contains("Public-Key:")) {
+				Matcher m = KEY_SIZE_PATTERN.matcher(line);
+				if (m.find()) {
+					try {
+						keySize = Integer.parseInt(m.group(1));
+					} catch (NumberFormatException e) {
+						keySize = 0;
+					}
 				}
 			}
-		}
-	}
 
-	private static void extractPublicKeyInfo(String fullText, List<String> lines, CertificateInfo info) {
-		Pattern keyAlgPattern = Pattern.compile("Public Key Algorithm:\\s*([\\w\\d]+)");
-		Matcher keyAlgMatcher = keyAlgPattern.matcher(fullText);
-		if (keyAlgMatcher.find()) {
-			info.setKeyAlgorithm(keyAlgMatcher.group(1).trim());
-		}
-
-		Pattern keySizePattern = Pattern.compile("Public-Key:\\s*\\((\\d+)\\s*bit\\)");
-		Matcher keySizeMatcher = keySizePattern.matcher(fullText);
-		if (keySizeMatcher.find()) {
-			try {
-				info.setKeySize(Integer.parseInt(keySizeMatcher.group(1)));
-			} catch (NumberFormatException e) {
-				info.setKeySize(0);
+			if (publicKeyExponent == null && line.contains("Exponent:")) {
+				Matcher m = EXPONENT_PATTERN.matcher(line);
+				if (m.find()) publicKeyExponent = m.group(1);
 			}
-		}
 
-		Pattern exponentPattern = Pattern.compile("Exponent:\\s*(\\d+)\\s*\\(0x([a-fA-F0-9]+)\\)");
-		Matcher exponentMatcher = exponentPattern.matcher(fullText);
-		if (exponentMatcher.find()) {
-			info.setPublicKeyExponent(exponentMatcher.group(1));
+			if (modulusBlock != Block.DONE && line.contains("Modulus:")) {
+				modulusBlock = Block.ACTIVE;
+			} else if (modulusBlock == Block.ACTIVE) {
+				if (isHexColon(line, false)) {
+					appendWithoutColons(modulusBuilder, line);
+				} else if (line.contains("Exponent:") || line.contains("X509v3")) {
+					modulusBlock = Block.DONE;
+				}
+			}
 		}
 
-		extractModulus(lines, info);
-	}
-
-	private static void extractModulus(List<String> lines, CertificateInfo info) {
-		StringBuilder modulusBuilder = new StringBuilder();
-		boolean inModulusSection = false;
-
-		for (String line : lines) {
-			String cleanLine = cleanLine(line);
+		private void acceptBasicConstraints(String line) {
+			if (basicConstraintsFound) return;
 
-			if (cleanLine.contains("Modulus:")) {
-				inModulusSection = true;
-				continue;
+			if (basicConstraintsPending) {
+				basicConstraintsPending = false;
+				if (parseBasicConstraintsValue(line)) return;
 			}
 
-			if (inModulusSection) {
-				if (cleanLine.matches("^[a-fA-F0-9:]+$")) {
-					modulusBuilder.append(cleanLine.replace(":", ""));
-				} else if (cleanLine.contains("Exponent:") || cleanLine.contains("X509v3")) {
-					break;
+			int index = indexOfIgnoreCase(line, "X509v3 Basic Constraints:");
+			if (index >= 0) {
+				String rest = line.substring(index + "X509v3 Basic Constraints:".length()).trim();
+				basicConstraintsCritical = rest.regionMatches(true, 0, "critical", 0, "critical".length());
+				if (basicConstraintsCritical) rest = rest.substring("critical".length()).trim();
+				if (rest.isEmpty()) {
+					basicConstraintsPending = true;
+				} else {
+					parseBasicConstraintsValue(rest);
 				}
 			}
 		}
 
-		if (modulusBuilder.length() > 0) {
-			info.setPublicKeyModulus(modulusBuilder.toString());
-		}
-	}
-
-	private static void extractX509Extensions(List<String> lines, String fullText, CertificateInfo info) {
-		extractBasicConstraints(fullText, info);
-		extractSubjectKeyIdentifier(lines, fullText, info);
-		extractAuthorityKeyIdentifier(lines, info);
-		extractCRLDistributionPoints(fullText, info);
-		extractKeyUsage(fullText, info);
-		extractExtendedKeyUsage(fullText, info);
-		extractSubjectAltName(fullText, info);
-		extractIssuerAltName(fullText, info);
-		extractCertificatePolicies(fullText, info);
-	}
-
-	private static void extractBasicConstraints(String fullText, CertificateInfo info) {
-		Pattern bcPattern = Pattern.compile("X509v3 Basic Constraints:\\s*(critical)?\\s*CA:(TRUE|FALSE)(?:,\\s*pathlen:(\\d+))?", 
-				Pattern.CASE_INSENSITIVE);
-		Matcher bcMatcher = bcPattern.matcher(fullText);
-		if (bcMatcher.find()) {
-			info.setBasicConstraintsCritical(bcMatcher.group(1) != null);
-			info.setCA("TRUE".equalsIgnoreCase(bcMatcher.group(2)));
+		private boolean parseBasicConstraintsValue(String value) {
+			Matcher m = BASIC_CONSTRAINTS_PATTERN.matcher(value);
+			if (!m.lookingAt()) return false;
 
-			if (bcMatcher.group(3) != null) {
+			basicConstraintsFound = true;
+			isCA = "TRUE".equalsIgnoreCase(m.group(1));
+			if (m.group(2) != null) {
 				try {
-					info.setPathLengthConstraint(Integer.parseInt(bcMatcher.group(3)));
+					pathLengthConstraint = Integer.parseInt(m.group(2));
 				} catch (NumberFormatException e) {
 				}
 			}
+			return true;
 		}
-	}
 
-	private static void extractSubjectKeyIdentifier(List<String> lines, String fullText, CertificateInfo info) {
-		Pattern subjectKeyPattern = Pattern.compile("X509v3 Subject Key Identifier:\\s*([A-F0-9:]+)");
-		Matcher subjectKeyMatcher = subjectKeyPattern.matcher(fullText);
-		if (subjectKeyMatcher.find()) {
-			info.setSubjectKeyIdentifier(subjectKeyMatcher.group(1).trim());
-		} else {
-			for (int i = 0; i < lines.size(); i++) {
-				if (lines.get(i).contains("X509v3 Subject Key Identifier:")) {
-					if (i + 1 < lines.size()) {
-						String nextLine = cleanLine(lines.get(i + 1));
-						if (nextLine.matches("[A-F0-9:]+")) {
-							info.setSubjectKeyIdentifier(nextLine);
-						}
-					}
-					break;
+		private void acceptSubjectKeyIdentifier(String line) {
+			if (subjectKeyIdentifier != null) return;
+
+			if (subjectKeyIdentifierPending) {
+				subjectKeyIdentifierPending = false;
+				String run = leadingHexColon(line);
+				if (!run.isEmpty()) {
+					subjectKeyIdentifier = run;
+					return;
 				}
 			}
-		}
-	}
-
-	private static void extractAuthorityKeyIdentifier(List<String> lines, CertificateInfo info) {
-		StringBuilder authKeyId = new StringBuilder();
-		boolean inAuthKeySection = false;
-
-		for (String line : lines) {
-			String cleanLine = cleanLine(line);
 
-			if (cleanLine.contains("X509v3 Authority Key Identifier:")) {
-				inAuthKeySection = true;
-				continue;
+			String rest = valueAfter(line, "X509v3 Subject Key Identifier:");
+			if (rest != null && !rest.isEmpty()) {
+				String run = leadingHexColon(rest);
+				if (!run.isEmpty()) subjectKeyIdentifier = run;
+			} else if (line.contains("X509v3 Subject Key Identifier:")) {
+				subjectKeyIdentifierPending = true;
 			}
+		}
 
-			if (inAuthKeySection) {
-				if (cleanLine.startsWith("keyid:") || cleanLine.startsWith("DirName:") || 
-						cleanLine.startsWith("serial:") || cleanLine.matches("^[A-F0-9:]+$")) {
-					if (authKeyId.length() > 0) authKeyId.append("\n");
-					authKeyId.append(cleanLine);
-				} else if (cleanLine.contains("X509v3") || cleanLine.isEmpty()) {
-					break;
+		private void acceptAuthorityKeyIdentifier(String line) {
+			if (authorityKeyBlock != Block.DONE && line.contains("X509v3 Authority Key Identifier:")) {
+				authorityKeyBlock = Block.ACTIVE;
+			} else if (authorityKeyBlock == Block.ACTIVE) {
+				if (line.startsWith("keyid:") || line.startsWith("DirName:") ||
+						line.startsWith("serial:") || isHexColon(line, true)) {
+					if (authorityKeyBuilder.length() > 0) authorityKeyBuilder.append("\n");
+					authorityKeyBuilder.append(line);
+				} else if (line.contains("X509v3")) {
+					authorityKeyBlock = Block.DONE;
 				}
 			}
 		}
 
-		if (authKeyId.length() > 0) {
-			info.setAuthorityKeyIdentifier(authKeyId.toString());
+		private void acceptCertificatePolicies(String line) {
+			if (policiesBlock == Block.PENDING && line.contains("X509v3 Certificate Policies:")) {
+				policiesBlock = Block.ACTIVE;
+				String rest = stripCritical(valueAfter(line, "X509v3 Certificate Policies:"));
+				if (!rest.isEmpty()) policiesBuilder.append(rest);
+			} else if (policiesBlock == Block.ACTIVE) {
+				if (line.contains("X509v3") || line.startsWith("Signature Algorithm:") || line.startsWith("Signature Value:")) {
+					policiesBlock = Block.DONE;
+				} else {
+					if (policiesBuilder.length() > 0) policiesBuilder.append(" ");
+					policiesBuilder.append(line);
+				}
+			}
 		}
-	}
 
-	private static void extractCRLDistributionPoints(String fullText, CertificateInfo info) {
-		Pattern crlPattern = Pattern.compile("URI:([^\\s\\n]+)");
-		Matcher crlMatcher = crlPattern.matcher(fullText);
-		if (crlMatcher.find()) {
-			info.setCrlDistributionPoints(crlMatcher.group(1).trim());
+		private void acceptAuthorityInfoAccess(String line) {
+			if (authorityInfoBlock != Block.DONE && line.contains("Authority Information Access")) {
+				authorityInfoBlock = Block.ACTIVE;
+			} else if (authorityInfoBlock == Block.ACTIVE) {
+				if (line.startsWith("OCSP") || line.startsWith("CA Issuers")) {
+					if (authorityInfoBuilder.length() > 0) authorityInfoBuilder.append("\n");
+					authorityInfoBuilder.append(line);
+				} else if (line.contains("X509v3")) {
+					authorityInfoBlock = Block.DONE;
+				}
+			}
 		}
-	}
 
-	private static void extractKeyUsage(String fullText, CertificateInfo info) {
-		Pattern keyUsagePattern = Pattern.compile("X509v3 Key Usage:(?:\\s*critical)?\\s*([^\\n]+)");
-		Matcher keyUsageMatcher = keyUsagePattern.matcher(fullText);
-		if (keyUsageMatcher.find()) {
-			info.setKeyUsage(keyUsageMatcher.group(1).trim());
+		private CertificateInfo finish() {
+			if (serialBlock == Block.ACTIVE && serialBuilder.length() > 0) {
+				serialNumber = serialBuilder.toString();
+			}
+
+			CertificateInfo info = new CertificateInfo();
+
+			if (version != null) info.setVersion(version);
+			if (serialNumber != null) info.setSerialNumber(serialNumber);
+			if (signatureAlgorithm != null) info.setSignatureAlgorithm(signatureAlgorithm);
+			if (issuer != null) info.setIssuer(new DistinguishedName(issuer));
+			if (subject != null) info.setSubject(new DistinguishedName(subject));
+			if (notBefore != null) info.setNotBefore(notBefore);
+			if (notAfter != null) info.setNotAfter(notAfter);
+
+			if (keyAlgorithm != null) info.setKeyAlgorithm(keyAlgorithm);
+			if (keySize != null) info.setKeySize(keySize);
+			if (publicKeyExponent != null) info.setPublicKeyExponent(publicKeyExponent);
+			if (modulusBuilder.length() > 0) info.setPublicKeyModulus(modulusBuilder.toString());
+
+			if (basicConstraintsFound) {
+				info.setBasicConstraintsCritical(basicConstraintsCritical);
+				info.setCA(isCA);
+				if (pathLengthConstraint != null) info.setPathLengthConstraint(pathLengthConstraint);
+			}
+			if (subjectKeyIdentifier != null) info.setSubjectKeyIdentifier(subjectKeyIdentifier);
+			if (authorityKeyBuilder.length() > 0) info.setAuthorityKeyIdentifier(authorityKeyBuilder.toString());
+			if (crlDistributionPoints != null) info.setCrlDistributionPoints(crlDistributionPoints);
+			if (keyUsage.value != null) info.setKeyUsage(keyUsage.value);
+			if (extendedKeyUsage.value != null) info.setExtendedKeyUsage(extendedKeyUsage.value);
+			if (subjectAltName.value != null) info.setSubjectAltName(subjectAltName.value);
+			if (issuerAltName.value != null) info.setIssuerAltName(issuerAltName.value);
+			if (policiesBuilder.length() > 0) info.setCertificatePolicies(policiesBuilder.toString());
+			if (authorityInfoBuilder.length() > 0) info.setAuthorityInfoAccess(authorityInfoBuilder.toString().trim());
+
+			return info;
 		}
 	}
 
-	private static void extractExtendedKeyUsage(String fullText, CertificateInfo info) {
-		Pattern extKeyUsagePattern = Pattern.compile("X509v3 Extended Key Usage:(?:\\s*critical)?\\s*([^\\n]+)");
-		Matcher extKeyUsageMatcher = extKeyUsagePattern.matcher(fullText);
-		if (extKeyUsageMatcher.find()) {
-			info.setExtendedKeyUsage(extKeyUsageMatcher.group(1).trim());
+	/**
+	 * An extension whose value OpenSSL prints on the line following its header
+	 * (optionally after "critical"). Only the first occurrence is kept.
+	 */
+	private static final class NextLineValue {
+
+		private final String header;
+		private boolean pending;
+		private String value;
+
+		private NextLineValue(String header) {
+			this.header = header;
 		}
-	}
 
-	private static void extractSubjectAltName(String fullText, CertificateInfo info) {
-		Pattern sanPattern = Pattern.compile("X509v3 Subject Alternative Name:(?:\\s*critical)?\\s*([^\\n]+)");
-		Matcher sanMatcher = sanPattern.matcher(fullText);
-		if (sanMatcher.find()) {
-			info.setSubjectAltName(sanMatcher.group(1).trim());
+		private void accept(String line) {
+			if (value != null) return;
+
+			if (pending) {
+				pending = false;
+				value = line.trim();
+				return;
+			}
+
+			String rest = valueAfter(line, header);
+			if (rest == null) {
+				if (line.contains(header)) pending = true;
+				return;
+			}
+			rest = stripCritical(rest);
+			if (rest.isEmpty()) {
+				pending = true;
+			} else {
+				value = rest;
+			}
 		}
 	}
 
-	private static void extractIssuerAltName(String fullText, CertificateInfo info) {
-		Pattern ianPattern = Pattern.compile("X509v3 Issuer Alternative Name:(?:\\s*critical)?\\s*([^\\n]+)");
-		Matcher ianMatcher = ianPattern.matcher(fullText);
-		if (ianMatcher.find()) {
-			info.setIssuerAltName(ianMatcher.group(1).trim());
+	private static String cleanLine(String line) {
+		int index = line.indexOf(ALL_MARKER);
+		if (index < 0) return line.trim();
+
+		StringBuilder cleaned = new StringBuilder(line.length());
+		int from = 0;
+		while (index >= 0) {
+			cleaned.append(line, from, index);
+			from = index + ALL_MARKER.length();
+			while (from < line.length() && Character.isWhitespace(line.charAt(from))) from++;
+			index = line.indexOf(ALL_MARKER, from);
 		}
+		cleaned.append(line, from, line.length());
+		return cleaned.toString().trim();
 	}
 
-	private static void extractCertificatePolicies(String fullText, CertificateInfo info) {
-		Pattern policiesPattern = Pattern.compile("X509v3 Certificate Policies:(?:\\s*critical)?\\s*([^\\n]+(?:\\n\\s+[^\\n]+)*)");
-		Matcher policiesMatcher = policiesPattern.matcher(fullText);
-		if (policiesMatcher.find()) {
-			info.setCertificatePolicies(policiesMatcher.group(1).trim().replaceAll("\\n\\s+", " "));
-		}
+	/**
+	 * Trimmed text following the first occurrence of key, or null when key is absent
+	 * or nothing follows it on the line.
+	 */
+	private static String valueAfter(String line, String key) {
+		int index = line.indexOf(key);
+		if (index < 0) return null;
+		int start = index + key.length();
+		return start < line.length() ? line.substring(start).trim() : null;
 	}
 
-	private static String cleanLine(String line) {
-		return line.replaceAll("\\[ALL\\]\\s*", "").trim();
+	private static String notAfterValue(String line) {
+		int index = line.indexOf("Not After");
+		if (index < 0) return null;
+		int pos = index + "Not After".length();
+		while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) pos++;
+		if (pos >= line.length() || line.charAt(pos) != ':') return null;
+		pos++;
+		return pos < line.length() ? line.substring(pos).trim() : null;
 	}
 
-	private static String extractFromLine(String line, String pattern) {
-		Pattern p = Pattern.compile(pattern);
-		Matcher m = p.matcher(line);
-		if (m.find()) {
-			return m.group(1).trim();
+	private static String uriValue(String line) {
+		int index = line.indexOf("URI:");
+		while (index >= 0) {
+			int start = index + 4;
+			int end = start;
+			while (end < line.length() && !Character.isWhitespace(line.charAt(end))) end++;
+			if (end > start) return line.substring(start, end);
+			index = line.indexOf("URI:", start);
 		}
 		return null;
 	}
 
-	private static void extractSerialNumber(List<String> lines, CertificateInfo info) {
-		for (int i = 0; i < lines.size(); i++) {
-			String line = cleanLine(lines.get(i));
-
-			if (line.contains("Serial Number:")) {
-				String serialFromSameLine = extractFromLine(line, "Serial Number:\\s*(.+)");
-				if (serialFromSameLine != null && !serialFromSameLine.trim().isEmpty() && 
-						!serialFromSameLine.contains("Signature")) {
-					info.setSerialNumber(serialFromSameLine.trim());
-					return;
-				}
-
-				StringBuilder serialBuilder = new StringBuilder();
-				for (int j = i + 1; j < lines.size(); j++) {
-					String nextLine = cleanLine(lines.get(j));
-
-					if (nextLine.contains("Signature Algorithm:") || 
-							nextLine.contains("Issuer:") || 
-							nextLine.contains("Validity") ||
-							nextLine.trim().isEmpty()) {
-						break;
-					}
-
-					if (nextLine.matches("^\\s*[a-fA-F0-9:]+\\s*$")) {
-						serialBuilder.append(nextLine.trim());
-					} else {
-						break;
-					}
-				}
+	private static String stripCritical(String value) {
+		if (value == null) return "";
+		String rest = value.trim();
+		if (rest.startsWith("critical")) rest = rest.substring("critical".length()).trim();
+		return rest;
+	}
 
-				if (serialBuilder.length() > 0) {
-					info.setSerialNumber(serialBuilder.toString());
-					return;
-				}
-			}
+	private static boolean isHexColon(String line, boolean upperCaseOnly) {
+		if (line.isEmpty()) return false;
+		for (int i = 0; i < line.length(); i++) {
+			if (!isHexColonChar(line.charAt(i), upperCaseOnly)) return false;
 		}
+		return true;
 	}
 
-	private static Map<Integer, List<List<String>>> splitCertificatesByDepth(List<String> lines) {
-		Map<Integer, List<List<String>>> certificateBlocks = new HashMap<>();
-		Set<Integer> hasFullSection = new HashSet<>();
-
-		List<String> currentBlock = null;
-		Integer currentDepth = null;
-		boolean inCertificateSection = false;
-
-		Pattern opensslDepth = Pattern.compile("OpenSSL: Peer certificate - depth\\s+(\\d+)");
-		Pattern wpaPeerCert = Pattern.compile("CTRL-EVENT-EAP-PEER-CERT\\s+depth=(\\d+)\\s+subject='([^']*)'");
-
-		for (String line : lines) {
-			Matcher mDepth = opensslDepth.matcher(line);
-			if (mDepth.find()) {
-				if (inCertificateSection && currentBlock != null && currentDepth != null) {
-					certificateBlocks.computeIfAbsent(currentDepth, k -> new ArrayList<>())
-					.add(new ArrayList<>(currentBlock));
-				}
-				currentDepth = Integer.parseInt(mDepth.group(1));
-				currentBlock = new ArrayList<>();
-				inCertificateSection = false;
-				continue;
-			}
-
-			if (line.trim().equals("Certificate:")) {
-				inCertificateSection = true;
-				if (currentBlock == null) {
-					currentDepth = (currentDepth == null) ? 0 : currentDepth;
-					currentBlock = new ArrayList<>();
-				}
-				currentBlock.add("Certificate:");
-				hasFullSection.add(currentDepth);
-				continue;
-			}
-
-			if (inCertificateSection && currentBlock != null) {
-				if (line.startsWith("wlan0: CTRL-EVENT-EAP-PEER-CERT") ||
-						line.startsWith("TLS: Certificate verification") ||
-						line.startsWith("EAP: Status notification") ||
-						opensslDepth.matcher(line).find()) {
-					certificateBlocks.computeIfAbsent(currentDepth, k -> new ArrayList<>())
-					.add(new ArrayList<>(currentBlock));
-					currentBlock = null;
-					inCertificateSection = false;
-				} else {
-					currentBlock.add(line);
-				}
-				continue;
-			}
-
-			Matcher mWpa = wpaPeerCert.matcher(line);
-			if (mWpa.find()) {
-				int d = Integer.parseInt(mWpa.group(1));
-				String subj = normalizeWpaSubjectDn(mWpa.group(2));
+	private static String leadingHexColon(String value) {
+		int end = 0;
+		while (end < value.length() && isHexColonChar(value.charAt(end), true)) end++;
+		return value.substring(0, end);
+	}
 
-				if (!hasFullSection.contains(d)) {
-					List<String> synthetic = new ArrayList<>();
-					synthetic.add("Certificate:");
-					synthetic.add("Subject: " + subj);
-					certificateBlocks.computeIfAbsent(d, k -> new ArrayList<>()).add(synthetic);
-				}
-			}
-		}
+	// upper case hex digits sort below 'a', so c <= 'F' rules out the lower case ones
+	private static boolean isHexColonChar(char c, boolean upperCaseOnly) {
+		return c == ':' || (HexCodec.digit(c) >= 0 && (!upperCaseOnly || c <= 'F'));
+	}
 
-		if (inCertificateSection && currentBlock != null && currentDepth != null) {
-			certificateBlocks.computeIfAbsent(currentDepth, k -> new ArrayList<>()).add(currentBlock);
+	private static void appendWithoutColons(StringBuilder builder, String hex) {
+		for (int i = 0; i < hex.length(); i++) {
+			char c = hex.charAt(i);
+			if (c != ':') builder.append(c);
 		}
+	}
 
-		if (certificateBlocks.isEmpty()) {
-			List<String> single = new ArrayList<>();
-			boolean found = false;
-			for (String l : lines) {
-				if (!found && l.trim().equals("Certificate:")) {
-					found = true;
-				}
-				if (found) single.add(l);
-			}
-			if (!single.isEmpty()) {
-				certificateBlocks.computeIfAbsent(0, k -> new ArrayList<>()).add(single);
-			}
+	private static int indexOfIgnoreCase(String line, String key) {
+		int max = line.length() - key.length();
+		for (int i = 0; i <= max; i++) {
+			if (line.regionMatches(true, i, key, 0, key.length())) return i;
 		}
-
-		return certificateBlocks;
+		return -1;
 	}
 
-	private static String normalizeWpaSubjectDn(String dn) {
+	static String normalizeWpaSubjectDn(String dn) {
 		if (dn == null) return "";
 		String s = dn.trim();
 		if (s.startsWith("/")) {
@@ -433,31 +482,4 @@ public class SSLCertificateParser {
 		}
 		return s;
 	}
-
-	private static void extractAuthorityInfoAccess(List<String> lines, CertificateInfo info) {
-		StringBuilder aiaBuilder = new StringBuilder();
-		boolean inAIASection = false;
-
-		for (String line : lines) {
-			String cleanLine = cleanLine(line);
-
-			if (cleanLine.contains("Authority Information Access")) {
-				inAIASection = true;
-				continue;
-			}
-
-			if (inAIASection) {
-				if (cleanLine.startsWith("OCSP") || cleanLine.startsWith("CA Issuers")) {
-					if (aiaBuilder.length() > 0) aiaBuilder.append("\n");
-					aiaBuilder.append(cleanLine);
-				} else if (cleanLine.contains("X509v3") || cleanLine.isEmpty()) {
-					break;
-				}
-			}
-		}
-
-		if (aiaBuilder.length() > 0) {
-			info.setAuthorityInfoAccess(aiaBuilder.toString().trim());
-		}
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package it.unical.thesis.parser;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import it.unical.thesis.data.CertificateInfo;
+
+/**
+ * Incremental counterpart of {@link SSLCertificateParser#parseMultipleCertificates}: the
+ * wpa_supplicant output is split into per-depth certificate dumps line by line, so it does not
+ * have to be collected into a list first. Only the dumps themselves are kept until
+ * getCertificates() parses them.
+ */
+public class SSLCertificateStreamParser implements Consumer<String> {
+
+	private static final Pattern OPENSSL_DEPTH_PATTERN = Pattern.compile("OpenSSL: Peer certificate - depth\\s+(\\d+)");
+	private static final Pattern WPA_PEER_CERT_PATTERN = Pattern.compile("CTRL-EVENT-EAP-PEER-CERT\\s+depth=(\\d+)\\s+subject='([^']*)'");
+
+	private final Map<Integer, List<List<String>>> certificateBlocks = new HashMap<>();
+	private final Set<Integer> hasFullSection = new HashSet<>();
+	private final Matcher opensslDepth = OPENSSL_DEPTH_PATTERN.matcher("");
+	private final Matcher wpaPeerCert = WPA_PEER_CERT_PATTERN.matcher("");
+
+	private List<String> currentBlock;
+	private Integer currentDepth;
+	private boolean inCertificateSection;
+	private int lineCount;
+
+	@Override
+	public void accept(String line) {
+		lineCount++;
+		Matcher mDepth = opensslDepth.reset(line);
+		if (mDepth.find()) {
+			if (inCertificateSection && currentBlock != null && currentDepth != null) {
+				certificateBlocks.computeIfAbsent(currentDepth, k -> new ArrayList<>())
+				.add(new ArrayList<>(currentBlock));
+			}
+			currentDepth = Integer.parseInt(mDepth.group(1));
+			currentBlock = new ArrayList<>();
+			inCertificateSection = false;
+			return;
+		}
+
+		if (line.trim().equals("Certificate:")) {
+			inCertificateSection = true;
+			if (currentBlock == null) {
+				currentDepth = (currentDepth == null) ? 0 : currentDepth;
+				currentBlock = new ArrayList<>();
+			}
+			currentBlock.add("Certificate:");
+			hasFullSection.add(currentDepth);
+			return;
+		}
+
+		if (inCertificateSection && currentBlock != null) {
+			if (line.startsWith("wlan0: CTRL-EVENT-EAP-PEER-CERT") ||
+					line.startsWith("TLS: Certificate verification") ||
+					line.startsWith("EAP: Status notification") ||
+					opensslDepth.reset(line).find()) {
+				certificateBlocks.computeIfAbsent(currentDepth, k -> new ArrayList<>())
+				.add(new ArrayList<>(currentBlock));
+				currentBlock = null;
+				inCertificateSection = false;
+			} else {
+				currentBlock.add(line);
+			}
+			return;
+		}
+
+		Matcher mWpa = wpaPeerCert.reset(line);
+		if (mWpa.find()) {
+			int d = Integer.parseInt(mWpa.group(1));
+			String subj = SSLCertificateParser.normalizeWpaSubjectDn(mWpa.group(2));
+
+			if (!hasFullSection.contains(d)) {
+				List<String> synthetic = new ArrayList<>();
+				synthetic.add("Certificate:");
+				synthetic.add("Subject: " + subj);
+				certificateBlocks.computeIfAbsent(d, k -> new ArrayList<>()).add(synthetic);
+			}
+		}
+	}
+
+	/**
+	 * The certificates seen so far, ordered by depth. A dump still open at the end of the
+	 * output is included.
+	 */
+	public List<CertificateInfo> getCertificates() {
+		if (inCertificateSection && currentBlock != null && currentDepth != null) {
+			certificateBlocks.computeIfAbsent(currentDepth, k -> new ArrayList<>()).add(currentBlock);
+			currentBlock = null;
+			inCertificateSection = false;
+		}
+
+		List<CertificateInfo> certificates = new ArrayList<>();
+		for (Map.Entry<Integer, List<List<String>>> entry : certificateBlocks.entrySet()) {
+			Integer depth = entry.getKey();
+			for (List<String> block : entry.getValue()) {
+				CertificateInfo info = SSLCertificateParser.parseSingleCertificate(block);
+				info.setDepth(depth);
+				certificates.add(info);
+			}
+		}
+
+		certificates.sort(Comparator.comparing(CertificateInfo::getDepth));
+		return certificates;
+	}
+
+	public int getLineCount() {
+		return lineCount;
+	}
+}
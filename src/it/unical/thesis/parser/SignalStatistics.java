@@ -0,0 +1,50 @@
+package it.unical.thesis.parser;
+
+import java.util.Locale;
+
+/**
+ * Running radiotap signal figures (dBm) for one BSSID over a capture.
+ */
+public final class SignalStatistics {
+
+    private int count;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+    private long sum;
+    private int last;
+
+    void record(int dbm) {
+        count++;
+        sum += dbm;
+        last = dbm;
+        if (dbm < min) min = dbm;
+        if (dbm > max) max = dbm;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public int getLast() {
+        return last;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    @Override
+    public String toString() {
+        if (count == 0) return "SignalStatistics {count=0}";
+        return String.format(Locale.ROOT, "SignalStatistics {count=%d, min=%d, max=%d, mean=%.1f, last=%d}",
+                count, min, max, getMean(), last);
+    }
+}
@@ -0,0 +1,87 @@
+package it.unical.thesis.parser;
+
+import java.util.Arrays;
+
+/**
+ * Splits a tshark "-T fields -E separator=| -E quote=d -E occurrence=a" row by recording
+ * field offsets only. A String is allocated just for the fields that are actually read,
+ * and separators inside double quoted values do not split the field.
+ */
+final class TsharkFieldTokenizer {
+
+    private static final char SEPARATOR = '|';
+    private static final char QUOTE = '"';
+    private static final char ESCAPE = '\\';
+
+    private String line;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    TsharkFieldTokenizer() {
+        this.starts = new int[64];
+        this.ends = new int[64];
+    }
+
+    int reset(String line) {
+        this.line = line;
+        this.size = 0;
+
+        int length = line.length();
+        int fieldStart = 0;
+        boolean inQuotes = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == ESCAPE && inQuotes) {
+                i++;
+            } else if (c == QUOTE) {
+                inQuotes = !inQuotes;
+            } else if (c == SEPARATOR && !inQuotes) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        addField(fieldStart, length);
+
+        return size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Offset in the line where field index begins.
+     */
+    int start(int index) {
+        return starts[index];
+    }
+
+    String get(int index) {
+        if (index >= size) return null;
+
+        int start = starts[index];
+        int end = ends[index];
+
+        while (start < end && line.charAt(start) <= ' ') start++;
+        while (end > start && line.charAt(end - 1) <= ' ') end--;
+
+        if (end - start > 1 && line.charAt(start) == QUOTE && line.charAt(end - 1) == QUOTE) {
+            start++;
+            end--;
+        }
+
+        return start == end ? null : line.substring(start, end);
+    }
+
+    private void addField(int start, int end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+}
@@ -1,12 +1,16 @@
 package it.unical.thesis.parser;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import it.unical.thesis.data.AccessPoint;
+import it.unical.thesis.metrics.ParseEvent;
+import it.unical.thesis.utils.HexCodec;
+import it.unical.thesis.utils.Log;
 
 public class TsharkParser {
     
@@ -15,237 +19,221 @@ public class TsharkParser {
             return null;
         }
         
-        Map<String, AccessPoint> apMap = new HashMap<>();
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        TsharkStreamParser streamParser = new TsharkStreamParser();
         
         for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            
-            AccessPoint ap = parseLine(line);
-            if (ap != null && ap.getBssid() != null) {
-                String bssid = ap.getBssid();
-                
-                if (apMap.containsKey(bssid)) {
-                    mergeAccessPoints(apMap.get(bssid), ap);
-                } else {
-                    apMap.put(bssid, ap);
-                }
-            }
+            streamParser.accept(line);
         }
         
-        return apMap.values().stream()
-                .filter(AccessPoint::isValid)
-                .findFirst()
-                .orElse(null);
+        AccessPoint accessPoint = streamParser.getAccessPoint();
+        event.finish("tshark", lines.size(), accessPoint != null ? 1 : 0);
+        return accessPoint;
     }
     
-    private static AccessPoint parseLine(String line) {
-        if (line == null || line.trim().isEmpty()) {
+    /**
+     * Parses a row that fields has already been reset to, so callers that look at the columns
+     * first do not tokenize the row twice.
+     */
+    static AccessPoint parseLine(String line, TsharkFieldTokenizer fields, DecodeCache cache) {
+        try {
+            return parseFields(fields, cache);
+        } catch (Exception e) {
+            Log.error("Errore parsing riga: " + line.substring(0, Math.min(100, line.length())) + "...", e);
             return null;
         }
+    }
+    
+    static AccessPoint parseFields(TsharkFieldTokenizer fields, DecodeCache cache) {
+        AccessPoint ap = new AccessPoint();
         
-        String[] fields = line.split("\\|", -1);
+        int idx = 0;
         
-        if (fields.length < 20) {
-            return null;
+        String bssid = fields.get(idx++);
+        String ssidHex = fields.get(idx++);
+        String radioChannel = fields.get(idx++);
+        String dsChannel = fields.get(idx++);
+        
+        if (bssid != null) ap.setBssid(bssid);
+        if (ssidHex != null) {
+            String ssid = hexToString(ssidHex);
+            ap.setSsid(ssid);
         }
         
-        AccessPoint ap = new AccessPoint();
+        Integer channel = parseInteger(dsChannel);
+        if (channel == null) {
+            channel = parseInteger(radioChannel);
+        }
+        ap.setChannel(channel);
         
-        try {
-            int idx = 0;
-            
-            String bssid = getFieldValue(fields, idx++);
-            String ssidHex = getFieldValue(fields, idx++);
-            String radioChannel = getFieldValue(fields, idx++);
-            String dsChannel = getFieldValue(fields, idx++);
-            
-            if (bssid != null) ap.setBssid(bssid);
-            if (ssidHex != null) {
-                String ssid = hexToString(ssidHex);
-                ap.setSsid(ssid);
-            }
-            
-            Integer channel = parseInteger(dsChannel);
-            if (channel == null) {
-                channel = parseInteger(radioChannel);
-            }
-            ap.setChannel(channel);
-            
-            String freq = getFieldValue(fields, idx++);
-            String is2ghz = getFieldValue(fields, idx++);
-            String is5ghz = getFieldValue(fields, idx++);
-            String isOfdm = getFieldValue(fields, idx++);
-            
-            ap.setHwMode(determineHwMode(freq, is2ghz, is5ghz, channel));
-            
-            String beacon = getFieldValue(fields, idx++);
-            String dtimPeriod = getFieldValue(fields, idx++);
-            
-            if (beacon != null) ap.setBeaconInt(parseInteger(beacon));
-            if (dtimPeriod != null) ap.setDtimPeriod(parseInteger(dtimPeriod));
-            
-            String privacy = getFieldValue(fields, idx++);
-            String shortPreamble = getFieldValue(fields, idx++);
-            String shortSlot = getFieldValue(fields, idx++);
-            
-            String htCap = getFieldValue(fields, idx++);
-            String htLdpc = getFieldValue(fields, idx++);
-            
-            if (htCap != null && !htCap.isEmpty()) {
-                ap.setIeee80211n(true);
-                ap.setHtCapab(formatHtCapabilities(htCap, htLdpc));
-            }
-            
-            String vhtCap = getFieldValue(fields, idx++);
-            String vhtLdpc = getFieldValue(fields, idx++);
-            String vhtChWidth = getFieldValue(fields, idx++);
-            
-            boolean hasVht = (vhtCap != null && !vhtCap.isEmpty()) || 
-                           (vhtLdpc != null && !vhtLdpc.isEmpty()) ||
-                           (vhtChWidth != null && !vhtChWidth.isEmpty());
-                           
-            if (hasVht) {
-                ap.setIeee80211ac(true);
-                if (vhtCap != null && !vhtCap.isEmpty()) {
-                    ap.setVhtCapab(formatVhtCapabilities(vhtCap));
-                }
-                if (vhtChWidth != null) {
-                    ap.setVhtOperChwidth(parseInteger(vhtChWidth));
-                }
+        String freq = fields.get(idx++);
+        String is2ghz = fields.get(idx++);
+        String is5ghz = fields.get(idx++);
+        String isOfdm = fields.get(idx++);
+        
+        ap.setHwMode(determineHwMode(freq, is2ghz, is5ghz, channel));
+        
+        String beacon = fields.get(idx++);
+        String dtimPeriod = fields.get(idx++);
+        
+        if (beacon != null) ap.setBeaconInt(parseInteger(beacon));
+        if (dtimPeriod != null) ap.setDtimPeriod(parseInteger(dtimPeriod));
+        
+        String privacy = fields.get(idx++);
+        String shortPreamble = fields.get(idx++);
+        String shortSlot = fields.get(idx++);
+        
+        String htCap = fields.get(idx++);
+        String htLdpc = fields.get(idx++);
+        
+        if (htCap != null && !htCap.isEmpty()) {
+            ap.setIeee80211n(true);
+            ap.setHtCapab(cache.htCapabilities(htCap, htLdpc));
+        }
+        
+        String vhtCap = fields.get(idx++);
+        String vhtLdpc = fields.get(idx++);
+        String vhtChWidth = fields.get(idx++);
+        
+        boolean hasVht = (vhtCap != null && !vhtCap.isEmpty()) || 
+                       (vhtLdpc != null && !vhtLdpc.isEmpty()) ||
+                       (vhtChWidth != null && !vhtChWidth.isEmpty());
+                       
+        if (hasVht) {
+            ap.setIeee80211ac(true);
+            if (vhtCap != null && !vhtCap.isEmpty()) {
+                ap.setVhtCapab(cache.vhtCapabilities(vhtCap));
             }
-            
-            String supportedRates = getFieldValue(fields, idx++);
-            String extendedRates = getFieldValue(fields, idx++);
-            
-            String formattedRates = formatSupportedRates(supportedRates, extendedRates);
-            if (formattedRates != null) ap.setSupportedRates(formattedRates);
-            
-            String countryCode = getFieldValue(fields, idx++);
-            String countryEnv = getFieldValue(fields, idx++);
-            
-            if (countryCode != null && !countryCode.isEmpty()) {
-                ap.setCountryCode(countryCode);
-                ap.setIeee80211d(true);
-                ap.setIeee80211h(true);
+            if (vhtChWidth != null) {
+                ap.setVhtOperChwidth(parseInteger(vhtChWidth));
             }
-            
-            String rsnVersion = getFieldValue(fields, idx++);
-            String rsnAkms = getFieldValue(fields, idx++);
-            String rsnGcs = getFieldValue(fields, idx++);
-            String rsnPcs = getFieldValue(fields, idx++);
-            String rsnGmcs = getFieldValue(fields, idx++);
-            String rsnMfpc = getFieldValue(fields, idx++);
-            String rsnMfpr = getFieldValue(fields, idx++);
+        }
+        
+        String supportedRates = fields.get(idx++);
+        String extendedRates = fields.get(idx++);
+        
+        String formattedRates = cache.supportedRates(supportedRates, extendedRates);
+        if (formattedRates != null) ap.setSupportedRates(formattedRates);
+        
+        String countryCode = fields.get(idx++);
+        String countryEnv = fields.get(idx++);
+        
+        if (countryCode != null && !countryCode.isEmpty()) {
+            ap.setCountryCode(countryCode);
+            ap.setIeee80211d(true);
+            ap.setIeee80211h(true);
+        }
+        
+        String rsnVersion = fields.get(idx++);
+        String rsnAkms = fields.get(idx++);
+        String rsnGcs = fields.get(idx++);
+        String rsnPcs = fields.get(idx++);
+        String rsnGmcs = fields.get(idx++);
+        String rsnMfpc = fields.get(idx++);
+        String rsnMfpr = fields.get(idx++);
 
-            Integer wpaLevel = determineWpaLevel(privacy, rsnVersion);
-            ap.setWpa(wpaLevel);
+        Integer wpaLevel = determineWpaLevel(privacy, rsnVersion);
+        ap.setWpa(wpaLevel);
 
-            if (rsnAkms != null && !rsnAkms.isEmpty()) {
-                String keyMgmt = formatKeyManagement(rsnAkms);
-                ap.setWpaKeyMgmt(keyMgmt);
-                
-                ap.setIeee8021x(keyMgmt != null && 
-                                 (keyMgmt.contains("EAP") || 
-                                		 keyMgmt.contains("eap")));
-            }
+        if (rsnAkms != null && !rsnAkms.isEmpty()) {
+            String keyMgmt = cache.keyManagement(rsnAkms);
+            ap.setWpaKeyMgmt(keyMgmt);
+            
+            ap.setIeee8021x(usesEap(keyMgmt));
+        }
 
-            if (rsnPcs != null && !rsnPcs.isEmpty()) {
-                String rsnCipher = mapPairwiseCipherType(rsnPcs);
-                ap.setRsnPairwise(rsnCipher);
-            }
+        if (rsnPcs != null && !rsnPcs.isEmpty()) {
+            String rsnCipher = mapPairwiseCipherType(rsnPcs);
+            ap.setRsnPairwise(rsnCipher);
+        }
 
-            if (rsnGcs != null && !rsnGcs.isEmpty()) {
-                String groupCipher = mapPairwiseCipherType(rsnGcs);
-            }
+        if (rsnGcs != null && !rsnGcs.isEmpty()) {
+            String groupCipher = mapPairwiseCipherType(rsnGcs);
+        }
 
-            if (rsnGmcs != null && !rsnGmcs.isEmpty()) {
-                String groupMgmtCipher = mapGroupMgmtCipherType(rsnGmcs);
-                ap.setGroupMgmtCipher(groupMgmtCipher);
-            }
+        if (rsnGmcs != null && !rsnGmcs.isEmpty()) {
+            String groupMgmtCipher = mapGroupMgmtCipherType(rsnGmcs);
+            ap.setGroupMgmtCipher(groupMgmtCipher);
+        }
 
-            ap.setIeee80211w(determinePmfLevel(rsnMfpc, rsnMfpr));
-                        
-            String radioMeasurement = getFieldValue(fields, idx++);
-            String rrmCap = getFieldValue(fields, idx++);
-            String rrmB1 = getFieldValue(fields, idx++);
-            
-            if (parseBoolean(radioMeasurement) == Boolean.TRUE || 
-                (rrmCap != null && !rrmCap.isEmpty())) {
-                ap.setRrmNeighborReport(true);
-                ap.setRrmBeaconReport(true);
-            }
-            
-            String wpsVersion = getFieldValue(fields, idx++);
-            String wpsConfig = getFieldValue(fields, idx++);
-            String wpsDevice = getFieldValue(fields, idx++);
-            String wpsMfg = getFieldValue(fields, idx++);
-            String wpsModel = getFieldValue(fields, idx++);
-            
-            if (wpsVersion != null && !wpsVersion.isEmpty()) {
-                Integer wpsState = parseWpsState(wpsVersion);
-                if (wpsState != null) {
-                    ap.setWpsState(wpsState);
-                }
-            }
-            
-            String extTagNumber = getFieldValue(fields, idx++);
-            String heMacCaps = getFieldValue(fields, idx++);
-            String hePhyCaps = getFieldValue(fields, idx++);
-            String bssColor = getFieldValue(fields, idx++);
-            String peDuration = getFieldValue(fields, idx++);
-            
-            boolean hasHe = "35".equals(extTagNumber) || "36".equals(extTagNumber) ||
-                            (heMacCaps != null && !heMacCaps.isEmpty()) ||
-                            (hePhyCaps != null && !hePhyCaps.isEmpty());
-                            
-            if (hasHe) {
-                ap.setIeee80211ax(true);
-                
-                if (heMacCaps != null && hePhyCaps != null) {
-                    String heCapab = formatHeCapabilities(heMacCaps, hePhyCaps);
-                    ap.setHeCapab(heCapab);
-                }
-                
-                 if (bssColor != null) {
-                     ap.setHeBssColor(parseInteger(bssColor));
-                 }
-                 if (peDuration != null) {
-                     ap.setHeDefaultPeDuration(parseInteger(peDuration));
-                }
-            }
-            
-            String extCap = getFieldValue(fields, idx++);
-            
-            String vendorOuiType = getFieldValue(fields, idx++);
-            String vendorData = getFieldValue(fields, idx++);
-            String oui = getFieldValue(fields, idx++);
-            
-            if (vendorData != null && !vendorData.isEmpty()) {
-                String formattedVendor = formatVendorElements(vendorData);
-                ap.setVendorElements(formattedVendor);
+        ap.setIeee80211w(determinePmfLevel(rsnMfpc, rsnMfpr));
+                    
+        String radioMeasurement = fields.get(idx++);
+        String rrmCap = fields.get(idx++);
+        String rrmB1 = fields.get(idx++);
+        
+        if (parseBoolean(radioMeasurement) == Boolean.TRUE || 
+            (rrmCap != null && !rrmCap.isEmpty())) {
+            ap.setRrmNeighborReport(true);
+            ap.setRrmBeaconReport(true);
+        }
+        
+        String wpsVersion = fields.get(idx++);
+        String wpsConfig = fields.get(idx++);
+        String wpsDevice = fields.get(idx++);
+        String wpsMfg = fields.get(idx++);
+        String wpsModel = fields.get(idx++);
+        
+        if (wpsVersion != null && !wpsVersion.isEmpty()) {
+            Integer wpsState = parseWpsState(wpsVersion);
+            if (wpsState != null) {
+                ap.setWpsState(wpsState);
             }
+        }
+        
+        String extTagNumber = fields.get(idx++);
+        String heMacCaps = fields.get(idx++);
+        String hePhyCaps = fields.get(idx++);
+        String bssColor = fields.get(idx++);
+        String peDuration = fields.get(idx++);
+        
+        boolean hasHe = "35".equals(extTagNumber) || "36".equals(extTagNumber) ||
+                        (heMacCaps != null && !heMacCaps.isEmpty()) ||
+                        (hePhyCaps != null && !hePhyCaps.isEmpty());
+                        
+        if (hasHe) {
+            ap.setIeee80211ax(true);
             
-            String tagLength = getFieldValue(fields, idx++);
-            if ("0".equals(tagLength) && (ap.getSsid() == null || ap.getSsid().isEmpty())) {
-                ap.setIgnoreBroadcastSsid(true);
+            if (heMacCaps != null && hePhyCaps != null) {
+                String heCapab = cache.heCapabilities(heMacCaps, hePhyCaps);
+                ap.setHeCapab(heCapab);
             }
             
-            String frameTime = getFieldValue(fields, idx++);
-            String signalStrength = getFieldValue(fields, idx++);
-            if (fields.length > idx) {
-                String antenna = getFieldValue(fields, idx++);
+             if (bssColor != null) {
+                 ap.setHeBssColor(parseInteger(bssColor));
+             }
+             if (peDuration != null) {
+                 ap.setHeDefaultPeDuration(parseInteger(peDuration));
             }
-            
-            extractBasicRates(ap);
-            setConsistentDefaults(ap);
-            
-            return ap;
-            
-        } catch (Exception e) {
-            System.err.println("Errore parsing riga: " + line.substring(0, Math.min(100, line.length())) + "...");
-            e.printStackTrace();
-            return null;
         }
+        
+        String extCap = fields.get(idx++);
+        
+        String vendorOuiType = fields.get(idx++);
+        String vendorData = fields.get(idx++);
+        String oui = fields.get(idx++);
+        
+        if (vendorData != null && !vendorData.isEmpty()) {
+            String formattedVendor = cache.vendorElements(vendorData);
+            ap.setVendorElements(formattedVendor);
+        }
+        
+        String tagLength = fields.get(idx++);
+        if ("0".equals(tagLength) && (ap.getSsid() == null || ap.getSsid().isEmpty())) {
+            ap.setIgnoreBroadcastSsid(true);
+        }
+        
+        String frameTime = fields.get(idx++);
+        String signalStrength = fields.get(idx++);
+        if (fields.size() > idx) {
+            String antenna = fields.get(idx++);
+        }
+        
+        extractBasicRates(ap);
+        setConsistentDefaults(ap);
+        
+        return ap;
     }
     
     private static String formatHeCapabilities(String heMacCaps, String hePhyCaps) {
@@ -265,11 +253,21 @@ public class TsharkParser {
             return capList.isEmpty() ? null : "[" + String.join("][", capList) + "]";
             
         } catch (Exception e) {
-            System.err.println("Errore parsing HE capabilities: " + e.getMessage());
+            Log.error("Errore parsing HE capabilities: " + e.getMessage());
             return null;
         }
     }
     
+    /**
+     * HE capabilities from the 48-bit MAC field and the first five PHY bytes.
+     */
+    static String formatHeCapabilities(long macCaps, int[] phyBytes) {
+        List<String> capList = new ArrayList<>();
+        addHeMacCapabilities(macCaps, capList);
+        addHePhyCapabilities(phyBytes, capList);
+        return capList.isEmpty() ? null : "[" + String.join("][", capList) + "]";
+    }
+    
     private static void parseHeMacCapabilities(String heMacCaps, List<String> capList) {
         if (heMacCaps == null || heMacCaps.isEmpty()) return;
         
@@ -281,19 +279,23 @@ public class TsharkParser {
                 macCaps = Long.parseUnsignedLong(heMacCaps, 16);
             }
             
-            if ((macCaps & 0x01L) != 0) capList.add("HE-HTC");
-            if ((macCaps & 0x02L) != 0) capList.add("TWT-REQ");
-            if ((macCaps & 0x04L) != 0) capList.add("TWT-RESP");
-            if ((macCaps & 0x4000000L) != 0) capList.add("BSR");
-            if ((macCaps & 0x200000L) != 0) capList.add("OM-CTRL");
-            
-            int ampduExp = (int)((macCaps >> 23) & 0x03);
-            if (ampduExp > 0) {
-                capList.add("MAX-A-MPDU-LEN-EXP" + (ampduExp + 3));
-            }
-            
+            addHeMacCapabilities(macCaps, capList);
+        
         } catch (NumberFormatException e) {
-            System.err.println("Errore parsing HE MAC caps: " + heMacCaps);
+            Log.error("Errore parsing HE MAC caps: " + heMacCaps);
+        }
+    }
+    
+    private static void addHeMacCapabilities(long macCaps, List<String> capList) {
+        if ((macCaps & 0x01L) != 0) capList.add("HE-HTC");
+        if ((macCaps & 0x02L) != 0) capList.add("TWT-REQ");
+        if ((macCaps & 0x04L) != 0) capList.add("TWT-RESP");
+        if ((macCaps & 0x4000000L) != 0) capList.add("BSR");
+        if ((macCaps & 0x200000L) != 0) capList.add("OM-CTRL");
+        
+        int ampduExp = (int)((macCaps >> 23) & 0x03);
+        if (ampduExp > 0) {
+            capList.add("MAX-A-MPDU-LEN-EXP" + (ampduExp + 3));
         }
     }
     
@@ -301,43 +303,44 @@ public class TsharkParser {
         if (hePhyCaps == null || hePhyCaps.isEmpty()) return;
         
         try {
-            String[] hexBytes = hePhyCaps.replaceAll("[^0-9a-fA-F]", "").split("(?<=\\G..)");
-            if (hexBytes.length == 0) return;
-            
-            if (hexBytes.length > 0) {
-                int firstByte = Integer.parseInt(hexBytes[0], 16);
-                
-                if ((firstByte & 0x02) != 0) capList.add("HE40-2.4GHZ");
-                if ((firstByte & 0x10) != 0) capList.add("HE-242RU-2.4GHZ");
-            }
+            addHePhyCapabilities(HexCodec.readBytes(hePhyCaps, 5), capList);
+        } catch (Exception e) {
+            Log.error("Errore parsing HE PHY caps: " + hePhyCaps + " - " + e.getMessage());
+        }
+    }
+    
+    private static void addHePhyCapabilities(int[] hexBytes, List<String> capList) {
+        if (hexBytes.length == 0) return;
+        
+        if (hexBytes.length > 0) {
+            int firstByte = hexBytes[0];
             
-            if (hexBytes.length > 2) {
-                int byte1 = Integer.parseInt(hexBytes[1], 16);
-                int byte2 = Integer.parseInt(hexBytes[2], 16);
-                int combined = (byte2 << 8) | byte1;
-                
-                if ((byte1 & 0x02) != 0) capList.add("HE-LDPC");
-                if ((byte2 & 0x04) != 0) capList.add("TX-STBC-LE80");
-                if ((byte2 & 0x08) != 0) capList.add("RX-STBC-LE80");
-                if ((byte2 & 0x40) != 0) capList.add("UL-MU-MIMO");
-                if ((byte2 & 0x80) != 0) capList.add("PARTIAL-BW-UL-MU-MIMO");
-            }
+            if ((firstByte & 0x02) != 0) capList.add("HE40-2.4GHZ");
+            if ((firstByte & 0x10) != 0) capList.add("HE-242RU-2.4GHZ");
+        }
+        
+        if (hexBytes.length > 2) {
+            int byte1 = hexBytes[1];
+            int byte2 = hexBytes[2];
             
-            if (hexBytes.length > 4) {
-                int byte3 = Integer.parseInt(hexBytes[3], 16);
-                int byte4 = Integer.parseInt(hexBytes[4], 16);
-                
-                if ((byte3 & 0x80) != 0) capList.add("SU-BEAMFORMER");
-                if ((byte4 & 0x01) != 0) capList.add("SU-BEAMFORMEE");
-                if ((byte4 & 0x02) != 0) capList.add("MU-BEAMFORMER");
-            }
+            if ((byte1 & 0x02) != 0) capList.add("HE-LDPC");
+            if ((byte2 & 0x04) != 0) capList.add("TX-STBC-LE80");
+            if ((byte2 & 0x08) != 0) capList.add("RX-STBC-LE80");
+            if ((byte2 & 0x40) != 0) capList.add("UL-MU-MIMO");
+            if ((byte2 & 0x80) != 0) capList.add("PARTIAL-BW-UL-MU-MIMO");
+        }
+        
+        if (hexBytes.length > 4) {
+            int byte3 = hexBytes[3];
+            int byte4 = hexBytes[4];
             
-        } catch (Exception e) {
-            System.err.println("Errore parsing HE PHY caps: " + hePhyCaps + " - " + e.getMessage());
+            if ((byte3 & 0x80) != 0) capList.add("SU-BEAMFORMER");
+            if ((byte4 & 0x01) != 0) capList.add("SU-BEAMFORMEE");
+            if ((byte4 & 0x02) != 0) capList.add("MU-BEAMFORMER");
         }
     }
     
-    private static void extractBasicRates(AccessPoint ap) {
+    static void extractBasicRates(AccessPoint ap) {
         String supportedRatesStr = ap.getSupportedRates();
         if (supportedRatesStr == null || supportedRatesStr.isEmpty()) return;
         
@@ -370,46 +373,50 @@ public class TsharkParser {
                 capabilities = Integer.parseInt(htCap);
             }
             
-            List<String> capList = new ArrayList<>();
-            
-            if ((capabilities & 0x02) != 0) {
-                capList.add("HT40+");
-            } else {
-                capList.add("HT40-");
-            }
-            
-            if ((capabilities & 0x01) != 0 || parseBoolean(htLdpc) == Boolean.TRUE) {
-                capList.add("LDPC");
-            }
-            
-            if ((capabilities & 0x10) != 0) {
-                capList.add("GF");
-            }
-            
-            if ((capabilities & 0x20) != 0) {
-                capList.add("SHORT-GI-20");
-            }
-            
-            if ((capabilities & 0x40) != 0) {
-                capList.add("SHORT-GI-40");
-            }
-            
-            if ((capabilities & 0x80) != 0) {
-                capList.add("TX-STBC");
-            }
-            
-            int rxStbc = (capabilities >> 8) & 0x03;
-            if (rxStbc > 0) {
-                capList.add("RX-STBC" + rxStbc);
-            }
-            
-            return capList.isEmpty() ? null : "[" + String.join("][", capList) + "]";
+            return formatHtCapabilities(capabilities, parseBoolean(htLdpc) == Boolean.TRUE);
             
         } catch (NumberFormatException e) {
             return htCap;
         }
     }
     
+    static String formatHtCapabilities(int capabilities, boolean ldpc) {
+        List<String> capList = new ArrayList<>();
+        
+        if ((capabilities & 0x02) != 0) {
+            capList.add("HT40+");
+        } else {
+            capList.add("HT40-");
+        }
+        
+        if ((capabilities & 0x01) != 0 || ldpc) {
+            capList.add("LDPC");
+        }
+        
+        if ((capabilities & 0x10) != 0) {
+            capList.add("GF");
+        }
+        
+        if ((capabilities & 0x20) != 0) {
+            capList.add("SHORT-GI-20");
+        }
+        
+        if ((capabilities & 0x40) != 0) {
+            capList.add("SHORT-GI-40");
+        }
+        
+        if ((capabilities & 0x80) != 0) {
+            capList.add("TX-STBC");
+        }
+        
+        int rxStbc = (capabilities >> 8) & 0x03;
+        if (rxStbc > 0) {
+            capList.add("RX-STBC" + rxStbc);
+        }
+        
+        return capList.isEmpty() ? null : "[" + String.join("][", capList) + "]";
+    }
+    
     private static String formatVhtCapabilities(String vhtCap) {
         if (vhtCap == null || vhtCap.isEmpty()) return null;
         
@@ -421,43 +428,49 @@ public class TsharkParser {
                 capabilities = Long.parseLong(vhtCap);
             }
             
-            List<String> capList = new ArrayList<>();
-            
-            int maxMpdu = (int)(capabilities & 0x03);
-            if (maxMpdu == 1) capList.add("MAX-MPDU-7991");
-            else if (maxMpdu == 2) capList.add("MAX-MPDU-11454");
-            
-            int chWidth = (int)((capabilities >> 2) & 0x03);
-            if (chWidth >= 1) capList.add("VHT160");
-            if (chWidth >= 2) capList.add("VHT160-80PLUS80");
-            
-            if ((capabilities & 0x10) != 0) {
-                capList.add("RXLDPC");
-            }
-            
-            if ((capabilities & 0x20) != 0) {
-                capList.add("SHORT-GI-80");
-            }
-            
-            if ((capabilities & 0x40) != 0) {
-                capList.add("SHORT-GI-160");
-            }
-            
-            if ((capabilities & 0x80) != 0) {
-                capList.add("TX-STBC-2BY1");
-            }
-            
-            return capList.isEmpty() ? null : "[" + String.join("][", capList) + "]";
+            return formatVhtCapabilities(capabilities);
             
         } catch (NumberFormatException e) {
             return vhtCap;
         }
     }
     
-    private static List<String> parseRateString(String rateString) {
-        List<String> rates = new ArrayList<>();
+    static String formatVhtCapabilities(long capabilities) {
+        List<String> capList = new ArrayList<>();
+        
+        int maxMpdu = (int)(capabilities & 0x03);
+        if (maxMpdu == 1) capList.add("MAX-MPDU-7991");
+        else if (maxMpdu == 2) capList.add("MAX-MPDU-11454");
+        
+        int chWidth = (int)((capabilities >> 2) & 0x03);
+        if (chWidth >= 1) capList.add("VHT160");
+        if (chWidth >= 2) capList.add("VHT160-80PLUS80");
+        
+        if ((capabilities & 0x10) != 0) {
+            capList.add("RXLDPC");
+        }
+        
+        if ((capabilities & 0x20) != 0) {
+            capList.add("SHORT-GI-80");
+        }
+        
+        if ((capabilities & 0x40) != 0) {
+            capList.add("SHORT-GI-160");
+        }
         
-        if (rateString == null || rateString.isEmpty()) return rates;
+        if ((capabilities & 0x80) != 0) {
+            capList.add("TX-STBC-2BY1");
+        }
+        
+        return capList.isEmpty() ? null : "[" + String.join("][", capList) + "]";
+    }
+    
+    /**
+     * Appends the raw rate octets of a comma separated tshark list. Values that are not
+     * numbers are skipped, as they could never pass the range check of formatSupportedRates.
+     */
+    private static int parseRateString(String rateString, int[] rates, int count) {
+        if (rateString == null || rateString.isEmpty()) return count;
         
         String[] rateArray = rateString.split(",");
         for (String rate : rateArray) {
@@ -472,28 +485,13 @@ public class TsharkParser {
                     rateValue = Integer.parseInt(rate);
                 }
                 
-                int actualRate = rateValue & 0x7F;
-                int rateInHundredsKbps = actualRate * 5;
-                
-                rates.add(String.valueOf(rateInHundredsKbps));
+                rates[count++] = rateValue;
                 
             } catch (NumberFormatException e) {
-                rates.add(rate);
             }
         }
         
-        return rates;
-    }
-    
-    private static String getFieldValue(String[] fields, int index) {
-        if (index >= fields.length) return null;
-        String value = fields[index].trim();
-        
-        if (value.startsWith("\"") && value.endsWith("\"") && value.length() > 1) {
-            value = value.substring(1, value.length() - 1);
-        }
-        
-        return value.isEmpty() ? null : value;
+        return count;
     }
     
     private static Integer parseInteger(String value) {
@@ -518,39 +516,46 @@ public class TsharkParser {
     private static String hexToString(String hex) {
         if (hex == null || hex.isEmpty()) return null;
         
-        try {
-            StringBuilder result = new StringBuilder();
-            for (int i = 0; i < hex.length(); i += 2) {
-                if (i + 1 >= hex.length()) break;
-                String hexPair = hex.substring(i, i + 2);
-                int value = Integer.parseInt(hexPair, 16);
-                if (value >= 32 && value <= 126) {
-                    result.append((char) value);
-                } else if (value == 0) {
-                    break;
-                }
+        StringBuilder result = new StringBuilder(hex.length() / 2);
+        for (int i = 0; i + 1 < hex.length(); i += 2) {
+            int value = HexCodec.byteAt(hex, i);
+            if (value < 0) {
+                // newer tshark releases print the SSID as text already
+                return hex;
+            }
+            if (value >= 32 && value <= 126) {
+                result.append((char) value);
+            } else if (value == 0) {
+                break;
             }
-            return result.length() > 0 ? result.toString() : null;
-        } catch (Exception e) {
-            return hex;
         }
+        return result.length() > 0 ? result.toString() : null;
     }
     
     private static String determineHwMode(String freq, String is2ghz, String is5ghz, Integer channel) {
+        int frequency = -1;
         if (freq != null && !freq.isEmpty()) {
             try {
-                int frequency = Integer.parseInt(freq);
-                if (frequency >= 2412 && frequency <= 2484) {
-                    return "g";
-                } else if (frequency >= 5000 && frequency <= 6000) {
-                    return "a";
-                }
+                frequency = Integer.parseInt(freq);
             } catch (NumberFormatException e) {
             }
         }
         
-        if (parseBoolean(is5ghz) == Boolean.TRUE) return "a";
-        if (parseBoolean(is2ghz) == Boolean.TRUE) return "g";
+        return determineHwMode(frequency, parseBoolean(is2ghz) == Boolean.TRUE, parseBoolean(is5ghz) == Boolean.TRUE, channel);
+    }
+    
+    /**
+     * frequency is in MHz, or negative when the capture did not record it.
+     */
+    static String determineHwMode(int frequency, boolean is2ghz, boolean is5ghz, Integer channel) {
+        if (frequency >= 2412 && frequency <= 2484) {
+            return "g";
+        } else if (frequency >= 5000 && frequency <= 6000) {
+            return "a";
+        }
+        
+        if (is5ghz) return "a";
+        if (is2ghz) return "g";
         
         if (channel != null) {
             if (channel >= 1 && channel <= 14) {
@@ -564,21 +569,26 @@ public class TsharkParser {
     }
     
     private static Integer determineWpaLevel(String privacy, String rsnVersion) {
-        if (rsnVersion != null && !rsnVersion.isEmpty()) {
+        return determineWpaLevel(parseBoolean(privacy) == Boolean.TRUE, rsnVersion != null && !rsnVersion.isEmpty());
+    }
+    
+    static Integer determineWpaLevel(boolean privacy, boolean rsn) {
+        if (rsn) {
             return 2;
-        } else if (parseBoolean(privacy) == Boolean.TRUE) {
+        } else if (privacy) {
             return 1;
         }
         return 0;
     }
     
     private static Integer determinePmfLevel(String mfpc, String mfpr) {
-        Boolean mfpcBool = parseBoolean(mfpc);
-        Boolean mfprBool = parseBoolean(mfpr);
-        
-        if (mfprBool == Boolean.TRUE) {
+        return determinePmfLevel(parseBoolean(mfpc) == Boolean.TRUE, parseBoolean(mfpr) == Boolean.TRUE);
+    }
+    
+    static Integer determinePmfLevel(boolean mfpc, boolean mfpr) {
+        if (mfpr) {
             return 2;
-        } else if (mfpcBool == Boolean.TRUE) {
+        } else if (mfpc) {
             return 1;
         }
         return 0;
@@ -588,7 +598,7 @@ public class TsharkParser {
         if (wpsValue == null || wpsValue.isEmpty()) return null;
         
         try {
-            Integer wps;
+            int wps;
             
             if (wpsValue.startsWith("0x") || wpsValue.startsWith("0X")) {
                 wps = Integer.parseInt(wpsValue.substring(2), 16);
@@ -596,18 +606,26 @@ public class TsharkParser {
                 wps = Integer.parseInt(wpsValue);
             }
             
-            if (wps == 0x10 || wps == 16) return 2;
-            if (wps == 0x01 || wps == 1) return 1;
-            if (wps == 0x02 || wps == 2) return 2;
-            
-            return wps > 0 ? 2 : 0;
+            return mapWpsState(wps);
             
         } catch (NumberFormatException e) {
             return null;
         }
     }
     
-    private static void setConsistentDefaults(AccessPoint ap) {
+    static int mapWpsState(int wps) {
+        if (wps == 0x10 || wps == 16) return 2;
+        if (wps == 0x01 || wps == 1) return 1;
+        if (wps == 0x02 || wps == 2) return 2;
+        
+        return wps > 0 ? 2 : 0;
+    }
+    
+    static boolean usesEap(String keyMgmt) {
+        return keyMgmt != null && (keyMgmt.contains("EAP") || keyMgmt.contains("eap"));
+    }
+    
+    static void setConsistentDefaults(AccessPoint ap) {
         if (ap.getWmmEnabled() == null) {
             boolean shouldEnableWmm = false;
             
@@ -637,7 +655,7 @@ public class TsharkParser {
         }
     }
     
-    private static void mergeAccessPoints(AccessPoint existing, AccessPoint newAp) {
+    static void mergeAccessPoints(AccessPoint existing, AccessPoint newAp) {
         if (existing.getSsid() == null && newAp.getSsid() != null) {
             existing.setSsid(newAp.getSsid());
         }
@@ -676,59 +694,70 @@ public class TsharkParser {
     }
     
     private static String formatSupportedRates(String supportedRates, String extendedRates) {
-        List<String> allRates = new ArrayList<>();
-        
-        if (supportedRates != null && !supportedRates.isEmpty()) {
-            allRates.addAll(parseRateString(supportedRates));
-        }
+        int[] rates = new int[valueCount(supportedRates) + valueCount(extendedRates)];
+        int count = parseRateString(supportedRates, rates, 0);
+        count = parseRateString(extendedRates, rates, count);
+        return formatSupportedRates(rates, count);
+    }
+    
+    /**
+     * Rates in units of 100 kbps, sorted and without duplicates, from the raw octets of the
+     * Supported Rates and Extended Supported Rates elements. The basic rate bit is ignored.
+     */
+    static String formatSupportedRates(int[] rates, int count) {
+        int[] values = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int rate = (rates[i] & 0x7F) * 5;
+            if (rate >= 10 && rate <= 5400) {
+                values[size++] = rate;
+            }
+        }
+        
+        if (size == 0) return null;
+        
+        Arrays.sort(values, 0, size);
+        StringBuilder result = new StringBuilder(size * 4);
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && values[i] == values[i - 1]) continue;
+            if (result.length() > 0) result.append(' ');
+            result.append(values[i]);
+        }
+        return result.toString();
+    }
+    
+    private static int valueCount(String list) {
+        if (list == null || list.isEmpty()) return 0;
         
-        if (extendedRates != null && !extendedRates.isEmpty()) {
-            allRates.addAll(parseRateString(extendedRates));
+        int count = 1;
+        for (int i = 0; i < list.length(); i++) {
+            if (list.charAt(i) == ',') count++;
         }
-        
-        if (allRates.isEmpty()) return null;
-        
-        allRates = allRates.stream()
-                .filter(rate -> {
-                    try {
-                        int rateVal = Integer.parseInt(rate);
-                        return rateVal >= 10 && rateVal <= 5400;
-                    } catch (NumberFormatException e) {
-                        return false;
-                    }
-                })
-                .distinct()
-                .sorted((a, b) -> {
-                    try {
-                        return Integer.compare(Integer.parseInt(a), Integer.parseInt(b));
-                    } catch (NumberFormatException e) {
-                        return a.compareTo(b);
-                    }
-                })
-                .collect(Collectors.toList());
-        
-        return allRates.isEmpty() ? null : String.join(" ", allRates);
+        return count;
     }
     
     private static String mapGroupMgmtCipherType(String cipherType) {
         if (cipherType == null) return null;
         
         try {
-            int cipher = Integer.parseInt(cipherType);
-            switch (cipher) {
-                case 1: return "AES-128-CMAC";
-                case 2: return "BIP-GMAC-128";
-                case 3: return "BIP-GMAC-256";
-                case 4: return "BIP-CMAC-256";
-                case 11: return "AES-128-CMAC";
-                case 12: return "BIP-GMAC-128";
-                case 13: return "BIP-GMAC-256";
-                default: return "AES-128-CMAC";
-            }
+            return mapGroupMgmtCipherType(Integer.parseInt(cipherType));
         } catch (NumberFormatException e) {
             return cipherType;
         }
     }
+    
+    static String mapGroupMgmtCipherType(int cipher) {
+        switch (cipher) {
+            case 1: return "AES-128-CMAC";
+            case 2: return "BIP-GMAC-128";
+            case 3: return "BIP-GMAC-256";
+            case 4: return "BIP-CMAC-256";
+            case 11: return "AES-128-CMAC";
+            case 12: return "BIP-GMAC-128";
+            case 13: return "BIP-GMAC-256";
+            default: return "AES-128-CMAC";
+        }
+    }
 
     private static String formatKeyManagement(String akmsType) {
         if (akmsType == null || akmsType.isEmpty()) return null;
@@ -757,6 +786,19 @@ public class TsharkParser {
         return keyMgmtList.isEmpty() ? null : String.join(" ", keyMgmtList);
     }
 
+    static String formatKeyManagement(int[] akms, int count) {
+        List<String> keyMgmtList = new ArrayList<>();
+        
+        for (int i = 0; i < count; i++) {
+            String keyMgmt = mapSingleAkmsType(akms[i]);
+            if (!keyMgmtList.contains(keyMgmt)) {
+                keyMgmtList.add(keyMgmt);
+            }
+        }
+        
+        return keyMgmtList.isEmpty() ? null : String.join(" ", keyMgmtList);
+    }
+
     private static String mapSingleAkmsType(int akms) {
         switch (akms) {
             case 1: return "WPA-EAP";
@@ -778,17 +820,17 @@ public class TsharkParser {
             case 17: return "FT-FILS-SHA384";
             case 18: return "OWE";
             default: 
-                System.err.println("WARNING: Unknown AKMS type: " + akms + ", using WPA-PSK as fallback");
+                Log.warn("Unknown AKMS type: " + akms + ", using WPA-PSK as fallback");
                 return "WPA-PSK";
         }
     }
 
-    private static String formatVendorElements(String vendorData) {
+    static String formatVendorElements(String vendorData) {
         if (vendorData == null || vendorData.isEmpty()) return null;
         
-        String cleaned = vendorData.replaceAll("[\\s,:]", "");
+        String cleaned = HexCodec.strip(vendorData, " \t\n\u000B\f\r,:");
         
-        if (!cleaned.matches("[0-9a-fA-F]*")) {
+        if (cleaned == null) {
             return null;
         }
         
@@ -802,8 +844,9 @@ public class TsharkParser {
                 cleaned = cleaned.substring(0, payloadLength * 2);
             }
             
-            String lengthHex = String.format("%02x", totalLength);
-            return "dd" + lengthHex + "000000" + "00" + cleaned;
+            StringBuilder element = new StringBuilder(cleaned.length() + 12).append("dd");
+            HexCodec.appendByte(element, totalLength, false);
+            return element.append("000000").append("00").append(cleaned).toString();
         }
         
         return cleaned.toLowerCase();
@@ -820,33 +863,8 @@ public class TsharkParser {
             if (cipherStr.isEmpty()) continue;
 
             try {
-                int cipher = Integer.parseInt(cipherStr);
-                switch (cipher) {
-                    case 1:
-                        if (!mappedCiphers.contains("WEP40")) mappedCiphers.add("WEP40");
-                        break;
-                    case 2:
-                        if (!mappedCiphers.contains("TKIP")) mappedCiphers.add("TKIP");
-                        break;
-                    case 4:
-                        if (!mappedCiphers.contains("CCMP")) mappedCiphers.add("CCMP");
-                        break;
-                    case 5:
-                        if (!mappedCiphers.contains("WEP104")) mappedCiphers.add("WEP104");
-                        break;
-                    case 8:
-                        if (!mappedCiphers.contains("GCMP")) mappedCiphers.add("GCMP");
-                        break;
-                    case 9:
-                        if (!mappedCiphers.contains("GCMP-256")) mappedCiphers.add("GCMP-256");
-                        break;
-                    case 10:
-                        if (!mappedCiphers.contains("CCMP-256")) mappedCiphers.add("CCMP-256");
-                        break;
-                    default:
-                        if (!mappedCiphers.contains("CCMP")) mappedCiphers.add("CCMP");
-                        break;
-                }
+                String cipher = pairwiseCipherName(Integer.parseInt(cipherStr));
+                if (!mappedCiphers.contains(cipher)) mappedCiphers.add(cipher);
             } catch (NumberFormatException e) {
                 if (!mappedCiphers.contains(cipherStr)) {
                     mappedCiphers.add(cipherStr);
@@ -856,4 +874,93 @@ public class TsharkParser {
         
         return String.join(" ", mappedCiphers);
     }
-}
\ No newline at end of file
+
+    static String mapPairwiseCipherType(int[] ciphers, int count) {
+        List<String> mappedCiphers = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            String cipher = pairwiseCipherName(ciphers[i]);
+            if (!mappedCiphers.contains(cipher)) mappedCiphers.add(cipher);
+        }
+        
+        return String.join(" ", mappedCiphers);
+    }
+
+    private static String pairwiseCipherName(int cipher) {
+        switch (cipher) {
+            case 1: return "WEP40";
+            case 2: return "TKIP";
+            case 4: return "CCMP";
+            case 5: return "WEP104";
+            case 8: return "GCMP";
+            case 9: return "GCMP-256";
+            case 10: return "CCMP-256";
+            default: return "CCMP";
+        }
+    }
+
+    /**
+     * Per-capture memo of the capability decoders. Every beacon of an AP carries the same
+     * elements, so each distinct raw value is decoded once and later rows are map lookups.
+     * Entries are bounded so a noisy capture cannot grow the cache without limit.
+     */
+    static final class DecodeCache {
+        
+        private static final int MAX_ENTRIES = 64;
+        
+        private final Map<String, String> htCapabilities = boundedMap();
+        private final Map<String, String> vhtCapabilities = boundedMap();
+        private final Map<String, String> heCapabilities = boundedMap();
+        private final Map<String, String> supportedRates = boundedMap();
+        private final Map<String, String> keyManagement = boundedMap();
+        private final Map<String, String> vendorElements = boundedMap();
+        
+        String htCapabilities(String htCap, String htLdpc) {
+            String key = htCap + '|' + htLdpc;
+            return lookup(htCapabilities, key, () -> formatHtCapabilities(htCap, htLdpc));
+        }
+        
+        String vhtCapabilities(String vhtCap) {
+            return lookup(vhtCapabilities, vhtCap, () -> formatVhtCapabilities(vhtCap));
+        }
+        
+        String heCapabilities(String heMacCaps, String hePhyCaps) {
+            String key = heMacCaps + '|' + hePhyCaps;
+            return lookup(heCapabilities, key, () -> formatHeCapabilities(heMacCaps, hePhyCaps));
+        }
+        
+        String supportedRates(String rates, String extendedRates) {
+            String key = rates + '|' + extendedRates;
+            return lookup(supportedRates, key, () -> formatSupportedRates(rates, extendedRates));
+        }
+        
+        String keyManagement(String akmsType) {
+            return lookup(keyManagement, akmsType, () -> formatKeyManagement(akmsType));
+        }
+        
+        String vendorElements(String vendorData) {
+            return lookup(vendorElements, vendorData, () -> formatVendorElements(vendorData));
+        }
+        
+        // null is a valid decoded value, so presence is checked with containsKey
+        private static String lookup(Map<String, String> cache, String key, Supplier<String> decoder) {
+            String value = cache.get(key);
+            if (value == null && !cache.containsKey(key)) {
+                value = decoder.get();
+                cache.put(key, value);
+            }
+            return value;
+        }
+        
+        private static Map<String, String> boundedMap() {
+            return new LinkedHashMap<String, String>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+        }
+    }
+}
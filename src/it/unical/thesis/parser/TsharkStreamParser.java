@@ -0,0 +1,147 @@
+package it.unical.thesis.parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import it.unical.thesis.data.AccessPoint;
+
+/**
+ * Incremental counterpart of {@link TsharkParser#parseFromTsharkOutput}: rows are
+ * parsed and merged as tshark emits them, so no output has to be buffered.
+ * Frames decoded natively by {@link PcapParser} are merged the same way.
+ *
+ * Consecutive beacons differ only in their time, signal and antenna columns (47-49), so each
+ * row is fingerprinted without them and rows already seen skip parsing and merging. Decoded
+ * frames are fingerprinted on the bytes the AccessPoint is built from, see
+ * {@link Dot11FrameDecoder#getFingerprint}. The signal of a duplicate still goes into the
+ * per-BSSID {@link SignalStatistics}.
+ */
+public class TsharkStreamParser implements Consumer<String> {
+
+    private static final int MIN_FIELDS = 20;
+    private static final int FIRST_VOLATILE_FIELD = 47;
+    private static final int BSSID_FIELD = 0;
+    private static final int SIGNAL_FIELD = 48;
+
+    private final Map<String, AccessPoint> apMap;
+    private final Map<String, SignalStatistics> signalMap;
+    private final Map<Long, String> seenRows;
+    private final Map<Long, byte[]> seenFrames;
+    private final TsharkFieldTokenizer tokenizer;
+    private final TsharkParser.DecodeCache decodeCache;
+    private int duplicateRows;
+
+    public TsharkStreamParser() {
+        this.apMap = new HashMap<>();
+        this.signalMap = new HashMap<>();
+        this.seenRows = new HashMap<>();
+        this.seenFrames = new HashMap<>();
+        this.tokenizer = new TsharkFieldTokenizer();
+        this.decodeCache = new TsharkParser.DecodeCache();
+    }
+
+    @Override
+    public void accept(String line) {
+        if (line == null || line.trim().isEmpty()) return;
+        if (tokenizer.reset(line) < MIN_FIELDS) return;
+
+        recordSignal(tokenizer);
+
+        if (isDuplicate(line)) {
+            duplicateRows++;
+            return;
+        }
+
+        merge(TsharkParser.parseLine(line, tokenizer, decodeCache));
+    }
+
+    void acceptFrame(Dot11FrameDecoder frame) {
+        if (frame.hasSignal()) recordSignal(frame.getBssid(), frame.getSignal());
+
+        if (isDuplicate(frame.getFingerprint(), frame.getFingerprintLength())) {
+            duplicateRows++;
+            return;
+        }
+
+        merge(frame.toAccessPoint());
+    }
+
+    /**
+     * Remembers the stable part of the row, everything before the volatile columns, and
+     * reports whether it was seen before. Rows are keyed by a 64-bit hash and compared in
+     * full on a hit, so a hash collision can only cost a parse, never drop a row.
+     */
+    private boolean isDuplicate(String line) {
+        int end = tokenizer.size() > FIRST_VOLATILE_FIELD ? tokenizer.start(FIRST_VOLATILE_FIELD) : line.length();
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < end; i++) {
+            hash = (hash ^ line.charAt(i)) * 0x100000001b3L;
+        }
+
+        String seen = seenRows.get(hash);
+        if (seen == null) {
+            seenRows.put(hash, line.substring(0, end));
+            return false;
+        }
+        return seen.length() == end && line.regionMatches(0, seen, 0, end);
+    }
+
+    private boolean isDuplicate(byte[] fingerprint, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (fingerprint[i] & 0xff)) * 0x100000001b3L;
+        }
+
+        byte[] seen = seenFrames.get(hash);
+        if (seen == null) {
+            seenFrames.put(hash, Arrays.copyOf(fingerprint, length));
+            return false;
+        }
+        return Arrays.equals(seen, 0, seen.length, fingerprint, 0, length);
+    }
+
+    private void recordSignal(TsharkFieldTokenizer fields) {
+        String bssid = fields.get(BSSID_FIELD);
+        String signal = fields.get(SIGNAL_FIELD);
+        if (bssid == null || signal == null) return;
+
+        // with occurrence=a one value per antenna is listed; the first is the combined one
+        int comma = signal.indexOf(',');
+        try {
+            recordSignal(bssid, Integer.parseInt(comma < 0 ? signal.trim() : signal.substring(0, comma).trim()));
+        } catch (NumberFormatException e) {
+        }
+    }
+
+    private void recordSignal(String bssid, int dbm) {
+        signalMap.computeIfAbsent(bssid, key -> new SignalStatistics()).record(dbm);
+    }
+
+    private void merge(AccessPoint ap) {
+        String bssid = ap != null ? ap.getBssid() : null;
+        if (bssid != null) {
+            AccessPoint existing = apMap.putIfAbsent(bssid, ap);
+            if (existing != null) {
+                TsharkParser.mergeAccessPoints(existing, ap);
+            }
+        }
+    }
+
+    public AccessPoint getAccessPoint() {
+        return apMap.values().stream()
+                .filter(AccessPoint::isValid)
+                .findFirst()
+                .orElse(null);
+    }
+
+    public SignalStatistics getSignalStatistics(String bssid) {
+        return signalMap.get(bssid);
+    }
+
+    public int getDuplicateRows() {
+        return duplicateRows;
+    }
+}
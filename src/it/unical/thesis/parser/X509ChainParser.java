@@ -0,0 +1,508 @@
+package it.unical.thesis.parser;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import it.unical.thesis.data.CertificateInfo;
+import it.unical.thesis.data.DistinguishedName;
+import it.unical.thesis.utils.HexCodec;
+import it.unical.thesis.utils.Log;
+
+/**
+ * Builds CertificateInfo objects straight from a PEM or DER certificate chain, such as the one
+ * dumped by the patched wpa_supplicant, instead of parsing OpenSSL text from the debug log.
+ * Values are rendered the way OpenSSL prints them so both paths feed the same generators.
+ */
+public class X509ChainParser {
+
+    private static final String OID_SUBJECT_KEY_IDENTIFIER = "2.5.29.14";
+    private static final String OID_SUBJECT_ALT_NAME = "2.5.29.17";
+    private static final String OID_ISSUER_ALT_NAME = "2.5.29.18";
+    private static final String OID_BASIC_CONSTRAINTS = "2.5.29.19";
+    private static final String OID_CRL_DISTRIBUTION_POINTS = "2.5.29.31";
+    private static final String OID_CERTIFICATE_POLICIES = "2.5.29.32";
+    private static final String OID_AUTHORITY_KEY_IDENTIFIER = "2.5.29.35";
+    private static final String OID_AUTHORITY_INFO_ACCESS = "1.3.6.1.5.5.7.1.1";
+
+    private static final String OID_OCSP = "1.3.6.1.5.5.7.48.1";
+    private static final String OID_CA_ISSUERS = "1.3.6.1.5.5.7.48.2";
+    private static final String OID_CPS_QUALIFIER = "1.3.6.1.5.5.7.2.1";
+
+    private static final String[] KEY_USAGE_NAMES = {
+        "Digital Signature", "Non Repudiation", "Key Encipherment", "Data Encipherment",
+        "Key Agreement", "Certificate Sign", "CRL Sign", "Encipher Only", "Decipher Only"
+    };
+
+    private static final DateTimeFormatter VALIDITY_FORMAT =
+            DateTimeFormatter.ofPattern("MMM dd HH:mm:ss yyyy 'GMT'", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+    private static final int TAG_OCTET_STRING = 0x04;
+    private static final int TAG_OID = 0x06;
+    private static final int TAG_UTF8_STRING = 0x0c;
+    private static final int TAG_T61_STRING = 0x14;
+    private static final int TAG_BMP_STRING = 0x1e;
+
+    private X509ChainParser() {
+    }
+
+    /**
+     * Decodes every certificate in the file, in file order. The patched wpa_supplicant writes
+     * the server certificate first, so the position in the file is used as the depth.
+     */
+    public static List<CertificateInfo> parseFromPemFile(String filePath) {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(filePath))) {
+            return parseCertificates(input);
+        } catch (IOException | CertificateException e) {
+            Log.error("Cannot read certificates from " + filePath, e);
+            return new ArrayList<>();
+        }
+    }
+
+    public static List<CertificateInfo> parseCertificates(InputStream input) throws CertificateException {
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        List<CertificateInfo> certificates = new ArrayList<>();
+
+        int depth = 0;
+        for (Certificate certificate : factory.generateCertificates(input)) {
+            if (certificate instanceof X509Certificate x509) {
+                CertificateInfo info = toCertificateInfo(x509);
+                info.setDepth(depth++);
+                certificates.add(info);
+            }
+        }
+        return certificates;
+    }
+
+    public static CertificateInfo toCertificateInfo(X509Certificate certificate) {
+        CertificateInfo info = new CertificateInfo();
+
+        info.setVersion(certificate.getVersion());
+        info.setSerialNumber(formatSerial(certificate.getSerialNumber()));
+        info.setSignatureAlgorithm(signatureAlgorithmName(certificate));
+        info.setIssuer(decodeName(certificate.getIssuerX500Principal().getEncoded()));
+        info.setSubject(decodeName(certificate.getSubjectX500Principal().getEncoded()));
+        info.setNotBefore(formatDate(certificate.getNotBefore()));
+        info.setNotAfter(formatDate(certificate.getNotAfter()));
+
+        readPublicKey(certificate.getPublicKey(), info);
+
+        try {
+            readExtensions(certificate, info);
+        } catch (RuntimeException | CertificateParsingException e) {
+            Log.error("Cannot read the extensions of " + certificate.getSubjectX500Principal(), e);
+        }
+
+        try {
+            byte[] encoded = certificate.getEncoded();
+            info.setThumbprint(HexCodec.encode(MessageDigest.getInstance("SHA-1").digest(encoded), true, ":"));
+            info.setSha256Fingerprint(HexCodec.encode(MessageDigest.getInstance("SHA-256").digest(encoded), true, ":"));
+        } catch (CertificateEncodingException | NoSuchAlgorithmException e) {
+            Log.error("Cannot fingerprint " + certificate.getSubjectX500Principal(), e);
+        }
+
+        return info;
+    }
+
+    private static void readPublicKey(PublicKey key, CertificateInfo info) {
+        if (key instanceof RSAPublicKey rsa) {
+            info.setKeyAlgorithm("rsaEncryption");
+            info.setKeySize(rsa.getModulus().bitLength());
+            info.setPublicKeyModulus(HexCodec.encode(rsa.getModulus().toByteArray(), false, ""));
+            info.setPublicKeyExponent(rsa.getPublicExponent().toString());
+        } else if (key instanceof ECPublicKey ec) {
+            info.setKeyAlgorithm("id-ecPublicKey");
+            info.setKeySize(ec.getParams().getCurve().getField().getFieldSize());
+        } else {
+            info.setKeyAlgorithm(key.getAlgorithm());
+        }
+    }
+
+    private static void readExtensions(X509Certificate certificate, CertificateInfo info)
+            throws CertificateParsingException {
+        Set<String> critical = certificate.getCriticalExtensionOIDs();
+
+        if (certificate.getExtensionValue(OID_BASIC_CONSTRAINTS) != null) {
+            int pathLength = certificate.getBasicConstraints();
+            info.setBasicConstraintsCritical(critical != null && critical.contains(OID_BASIC_CONSTRAINTS));
+            info.setCA(pathLength >= 0);
+            if (pathLength >= 0 && pathLength != Integer.MAX_VALUE) {
+                info.setPathLengthConstraint(pathLength);
+            }
+        }
+
+        byte[] value = extensionValue(certificate, OID_SUBJECT_KEY_IDENTIFIER);
+        if (value != null) {
+            Der keyId = Der.read(value, 0);
+            info.setSubjectKeyIdentifier(HexCodec.encode(keyId.content(), true, ":"));
+        }
+
+        value = extensionValue(certificate, OID_AUTHORITY_KEY_IDENTIFIER);
+        if (value != null) {
+            info.setAuthorityKeyIdentifier(formatAuthorityKeyIdentifier(Der.read(value, 0)));
+        }
+
+        value = extensionValue(certificate, OID_CRL_DISTRIBUTION_POINTS);
+        if (value != null) {
+            Der uri = Der.read(value, 0).findFirst(0x86);
+            if (uri != null) info.setCrlDistributionPoints(uri.text());
+        }
+
+        boolean[] keyUsage = certificate.getKeyUsage();
+        if (keyUsage != null) {
+            StringBuilder usages = new StringBuilder();
+            for (int i = 0; i < keyUsage.length && i < KEY_USAGE_NAMES.length; i++) {
+                if (!keyUsage[i]) continue;
+                if (usages.length() > 0) usages.append(", ");
+                usages.append(KEY_USAGE_NAMES[i]);
+            }
+            info.setKeyUsage(usages.toString());
+        }
+
+        List<String> extendedKeyUsage = certificate.getExtendedKeyUsage();
+        if (extendedKeyUsage != null) {
+            info.setExtendedKeyUsage(String.join(", ", extendedKeyUsage));
+        }
+
+        value = extensionValue(certificate, OID_SUBJECT_ALT_NAME);
+        if (value != null) {
+            info.setSubjectAltName(formatGeneralNames(Der.read(value, 0), ", "));
+        }
+
+        value = extensionValue(certificate, OID_ISSUER_ALT_NAME);
+        if (value != null) {
+            info.setIssuerAltName(formatGeneralNames(Der.read(value, 0), ", "));
+        }
+
+        value = extensionValue(certificate, OID_CERTIFICATE_POLICIES);
+        if (value != null) {
+            info.setCertificatePolicies(formatPolicies(Der.read(value, 0)));
+        }
+
+        value = extensionValue(certificate, OID_AUTHORITY_INFO_ACCESS);
+        if (value != null) {
+            info.setAuthorityInfoAccess(formatAuthorityInfoAccess(Der.read(value, 0)));
+        }
+    }
+
+    /**
+     * getExtensionValue wraps the extension in an OCTET STRING; returns the inner DER.
+     */
+    private static byte[] extensionValue(X509Certificate certificate, String oid) {
+        byte[] wrapped = certificate.getExtensionValue(oid);
+        if (wrapped == null) return null;
+
+        Der octets = Der.read(wrapped, 0);
+        return octets.tag == TAG_OCTET_STRING ? octets.content() : null;
+    }
+
+    private static String formatAuthorityKeyIdentifier(Der sequence) {
+        StringBuilder builder = new StringBuilder();
+        for (Der child : sequence.children()) {
+            if (builder.length() > 0 && (child.tag == 0x80 || child.tag == 0xa1 || child.tag == 0x82)) {
+                builder.append("\n");
+            }
+            if (child.tag == 0x80) {
+                builder.append("keyid:").append(HexCodec.encode(child.content(), true, ":"));
+            } else if (child.tag == 0xa1) {
+                builder.append(formatGeneralNames(child, "\n"));
+            } else if (child.tag == 0x82) {
+                builder.append("serial:").append(HexCodec.encode(child.content(), true, ":"));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String formatPolicies(Der sequence) {
+        StringBuilder builder = new StringBuilder();
+        for (Der policy : sequence.children()) {
+            List<Der> parts = policy.children();
+            if (parts.isEmpty() || parts.get(0).tag != TAG_OID) continue;
+
+            if (builder.length() > 0) builder.append(" ");
+            builder.append("Policy: ").append(parts.get(0).oid());
+
+            if (parts.size() > 1) {
+                for (Der qualifier : parts.get(1).children()) {
+                    List<Der> qualifierParts = qualifier.children();
+                    if (qualifierParts.size() == 2 && OID_CPS_QUALIFIER.equals(qualifierParts.get(0).oid())) {
+                        builder.append(" CPS: ").append(qualifierParts.get(1).text());
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String formatAuthorityInfoAccess(Der sequence) {
+        StringBuilder builder = new StringBuilder();
+        for (Der description : sequence.children()) {
+            List<Der> parts = description.children();
+            if (parts.size() != 2) continue;
+
+            String method = parts.get(0).oid();
+            String label;
+            if (OID_OCSP.equals(method)) {
+                label = "OCSP";
+            } else if (OID_CA_ISSUERS.equals(method)) {
+                label = "CA Issuers";
+            } else {
+                continue;
+            }
+
+            if (builder.length() > 0) builder.append("\n");
+            builder.append(label).append(" - ").append(formatGeneralName(parts.get(1)));
+        }
+        return builder.toString();
+    }
+
+    private static String formatGeneralNames(Der names, String separator) {
+        StringBuilder builder = new StringBuilder();
+        for (Der name : names.children()) {
+            String formatted = formatGeneralName(name);
+            if (formatted == null) continue;
+            if (builder.length() > 0) builder.append(separator);
+            builder.append(formatted);
+        }
+        return builder.toString();
+    }
+
+    private static String formatGeneralName(Der name) {
+        switch (name.tag) {
+            case 0x81:
+                return "email:" + name.text();
+            case 0x82:
+                return "DNS:" + name.text();
+            case 0x86:
+                return "URI:" + name.text();
+            case 0x87:
+                return "IP Address:" + formatIpAddress(name.content());
+            case 0x88:
+                return "Registered ID:" + name.oid();
+            case 0xa4:
+                List<Der> inner = name.children();
+                return inner.isEmpty() ? null : "DirName:" + decodeName(inner.get(0)).toSubjectString();
+            case 0xa0:
+                return "othername:<unsupported>";
+            default:
+                return null;
+        }
+    }
+
+    private static String formatIpAddress(byte[] address) {
+        StringBuilder builder = new StringBuilder();
+        if (address.length == 4) {
+            for (int i = 0; i < 4; i++) {
+                if (i > 0) builder.append('.');
+                builder.append(address[i] & 0xff);
+            }
+        } else {
+            for (int i = 0; i + 1 < address.length; i += 2) {
+                if (i > 0) builder.append(':');
+                builder.append(Integer.toHexString(((address[i] & 0xff) << 8) | (address[i + 1] & 0xff)).toUpperCase());
+            }
+        }
+        return builder.toString();
+    }
+
+    private static DistinguishedName decodeName(byte[] encoded) {
+        return decodeName(Der.read(encoded, 0));
+    }
+
+    /**
+     * Walks the RDN sequence. As with the text parser, a repeated attribute keeps its last value.
+     */
+    private static DistinguishedName decodeName(Der name) {
+        DistinguishedName dn = new DistinguishedName();
+        for (Der rdn : name.children()) {
+            for (Der attribute : rdn.children()) {
+                List<Der> parts = attribute.children();
+                if (parts.size() != 2) continue;
+
+                String value = parts.get(1).text();
+                switch (parts.get(0).oid()) {
+                    case "2.5.4.6" -> dn.setCountry(value);
+                    case "2.5.4.8" -> dn.setState(value);
+                    case "2.5.4.7" -> dn.setLocality(value);
+                    case "2.5.4.10" -> dn.setOrganization(value);
+                    case "2.5.4.11" -> dn.setOrganizationalUnit(value);
+                    case "2.5.4.3" -> dn.setCommonName(value);
+                    case "1.2.840.113549.1.9.1" -> dn.setEmailAddress(value);
+                    default -> { }
+                }
+            }
+        }
+        return dn;
+    }
+
+    private static String signatureAlgorithmName(X509Certificate certificate) {
+        switch (certificate.getSigAlgOID()) {
+            case "1.2.840.113549.1.1.4": return "md5WithRSAEncryption";
+            case "1.2.840.113549.1.1.5": return "sha1WithRSAEncryption";
+            case "1.2.840.113549.1.1.10": return "rsassaPss";
+            case "1.2.840.113549.1.1.11": return "sha256WithRSAEncryption";
+            case "1.2.840.113549.1.1.12": return "sha384WithRSAEncryption";
+            case "1.2.840.113549.1.1.13": return "sha512WithRSAEncryption";
+            case "1.2.840.10045.4.1": return "ecdsa-with-SHA1";
+            case "1.2.840.10045.4.3.2": return "ecdsa-with-SHA256";
+            case "1.2.840.10045.4.3.3": return "ecdsa-with-SHA384";
+            case "1.2.840.10045.4.3.4": return "ecdsa-with-SHA512";
+            case "1.3.101.112": return "ED25519";
+            default: return certificate.getSigAlgName();
+        }
+    }
+
+    /**
+     * OpenSSL prints serials that fit in a long as "decimal (0xhex)" and longer ones as
+     * colon-separated lowercase hex.
+     */
+    private static String formatSerial(BigInteger serial) {
+        if (serial.signum() >= 0 && serial.bitLength() < 64) {
+            return serial + " (0x" + serial.toString(16) + ")";
+        }
+        byte[] bytes = serial.toByteArray();
+        int from = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        byte[] magnitude = new byte[bytes.length - from];
+        System.arraycopy(bytes, from, magnitude, 0, magnitude.length);
+        return HexCodec.encode(magnitude, false, ":");
+    }
+
+    private static String formatDate(Date date) {
+        return VALIDITY_FORMAT.format(date.toInstant());
+    }
+
+    /**
+     * A single DER element (tag, length, value) inside a byte array. Only single-byte tags and
+     * definite lengths are supported, which is all X.509 uses.
+     */
+    private static final class Der {
+
+        private final byte[] data;
+        private final int tag;
+        private final int start;
+        private final int end;
+
+        private Der(byte[] data, int tag, int start, int end) {
+            this.data = data;
+            this.tag = tag;
+            this.start = start;
+            this.end = end;
+        }
+
+        private static Der read(byte[] data, int pos) {
+            if (pos + 2 > data.length) {
+                throw new IllegalArgumentException("Truncated DER element at offset " + pos);
+            }
+            int tag = data[pos] & 0xff;
+            int length = data[pos + 1] & 0xff;
+            int start = pos + 2;
+
+            if (length > 0x80) {
+                int count = length & 0x7f;
+                if (count > 4 || start + count > data.length) {
+                    throw new IllegalArgumentException("Unsupported DER length at offset " + pos);
+                }
+                length = 0;
+                for (int i = 0; i < count; i++) {
+                    length = (length << 8) | (data[start + i] & 0xff);
+                }
+                start += count;
+            } else if (length == 0x80) {
+                throw new IllegalArgumentException("Indefinite DER length at offset " + pos);
+            }
+
+            if (length < 0 || start + length > data.length) {
+                throw new IllegalArgumentException("DER element exceeds buffer at offset " + pos);
+            }
+            return new Der(data, tag, start, start + length);
+        }
+
+        private boolean isConstructed() {
+            return (tag & 0x20) != 0;
+        }
+
+        private List<Der> children() {
+            List<Der> children = new ArrayList<>();
+            if (!isConstructed()) return children;
+
+            int pos = start;
+            while (pos < end) {
+                Der child = read(data, pos);
+                children.add(child);
+                pos = child.end;
+            }
+            return children;
+        }
+
+        private Der findFirst(int wantedTag) {
+            if (tag == wantedTag) return this;
+            for (Der child : children()) {
+                Der found = child.findFirst(wantedTag);
+                if (found != null) return found;
+            }
+            return null;
+        }
+
+        private byte[] content() {
+            byte[] content = new byte[end - start];
+            System.arraycopy(data, start, content, 0, content.length);
+            return content;
+        }
+
+        private String text() {
+            if (tag == TAG_BMP_STRING) {
+                return new String(data, start, end - start, StandardCharsets.UTF_16BE);
+            }
+            if (tag == TAG_T61_STRING) {
+                return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+            }
+            if (tag == TAG_UTF8_STRING) {
+                return new String(data, start, end - start, StandardCharsets.UTF_8);
+            }
+            return new String(data, start, end - start, StandardCharsets.US_ASCII);
+        }
+
+        private String oid() {
+            if (tag != TAG_OID || end <= start) return "";
+
+            StringBuilder builder = new StringBuilder();
+            long value = 0;
+            boolean first = true;
+            for (int i = start; i < end; i++) {
+                value = (value << 7) | (data[i] & 0x7f);
+                if ((data[i] & 0x80) != 0) continue;
+
+                if (first) {
+                    int arc = value < 80 ? (int) (value / 40) : 2;
+                    builder.append(arc).append('.').append(value - arc * 40L);
+                    first = false;
+                } else {
+                    builder.append('.').append(value);
+                }
+                value = 0;
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -1,12 +1,32 @@
 package it.unical.thesis.process;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import it.unical.thesis.metrics.RunMetrics;
+import it.unical.thesis.utils.Log;
 
 public abstract class AbstractCommand{
 
-	private Process process;
+	/**
+	 * Deadline for one-shot commands (ip, iw, id, kill, systemctl), after which they are
+	 * considered hung and destroyed.
+	 */
+	protected static final Duration SHORT_COMMAND_TIMEOUT = Duration.ofSeconds(60);
+
+	private static final long OUTPUT_DRAIN_MILLIS = 1000;
+
+	private static final Executor ASYNC_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+	private static volatile CommandRunner commandRunner = CommandRunner.SYSTEM;
+
+	private volatile OutputRetention outputRetention = OutputRetention.UNBOUNDED;
 
 
 	protected AbstractCommand()
@@ -15,67 +35,121 @@ public abstract class AbstractCommand{
 	}
 
 
-	protected void execute(String... fullCommand)
+	public static CommandRunner getCommandRunner()
 	{
-		this.printCommand(fullCommand);
+		return commandRunner;
+	}
 
-		ProcessBuilder builder = new ProcessBuilder(fullCommand);
-		builder.redirectErrorStream(true);
-		try {
-			this.process = builder.start();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+
+	/**
+	 * Replaces the runner used by every command started from now on, for instance with a
+	 * ReplayCommandRunner to run the pipeline on recorded output.
+	 */
+	public static void setCommandRunner(CommandRunner runner)
+	{
+		commandRunner = runner;
 	}
 
-	
-	protected void waitIndefinitelyForCompletion()
+
+	public OutputRetention getOutputRetention()
 	{
-		try {
-			this.process.waitFor();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
+		return outputRetention;
+	}
+
+
+	/**
+	 * Sets how much of the output this command keeps when it is buffered rather than streamed
+	 * to a consumer. Commands that can print without limit set a bounded default.
+	 */
+	public void setOutputRetention(OutputRetention retention)
+	{
+		this.outputRetention = retention;
 	}
-	
 
-	protected boolean waitForCompletion(int seconds)
+
+	protected CommandHandle execute(String... fullCommand)
 	{
+		return execute(null, fullCommand);
+	}
+
+
+	/**
+	 * Starts fullCommand with stderr merged into stdout. A non-null timeout becomes the deadline
+	 * enforced by CommandHandle.awaitExit(). Returns null if the process could not be started.
+	 */
+	protected CommandHandle execute(Duration timeout, String... fullCommand)
+	{
+		this.printCommand(fullCommand);
+
 		try {
-			return this.process.waitFor(seconds,TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+			Process process = commandRunner.start(fullCommand);
+			RunMetrics.processStarted(process, fullCommand);
+			return new CommandHandle(process, fullCommand, timeout, outputRetention);
+		} catch (IOException e) {
+			Log.error("Cannot start " + String.join(" ", fullCommand), e);
+			return null;
 		}
-		return false;
 	}
 
-	protected void KillWithSigint()
+
+	/**
+	 * Runs a one-shot command to completion within SHORT_COMMAND_TIMEOUT, ignoring its output.
+	 */
+	protected CommandResult run(String... fullCommand)
 	{
-		new Kill().sigint(this.process.pid());
+		try (CommandHandle handle = execute(SHORT_COMMAND_TIMEOUT, fullCommand)) {
+			if(handle == null)
+				return CommandResult.notStarted(fullCommand);
+			handle.awaitExit();
+			return handle.toResult(List.of());
+		}
 	}
 
 
-	protected void destroyProcess()
+	/**
+	 * Runs a one-shot command to completion within SHORT_COMMAND_TIMEOUT and buffers what it printed.
+	 */
+	protected CommandResult runAndReadLines(String... fullCommand)
 	{
-		this.process.destroy();
-		//this.process.destroyForcibly();
+		return runAndRead(SHORT_COMMAND_TIMEOUT, null, fullCommand);
 	}
 
 
-	private void printCommand(String[] fullCommand)
+	/**
+	 * Runs a command to completion, or until timeout if not null, streaming its output to
+	 * lineConsumer. Without a consumer the output is buffered into the result, spilled lines
+	 * included, so callers that only parse it should pass the parser as the consumer.
+	 */
+	protected CommandResult runAndRead(Duration timeout, Consumer<String> lineConsumer, String... fullCommand)
 	{
-		System.out.println("Executing: ");
-		for(String string: fullCommand)
-		{
-			System.out.print(string+" ");
+		try (CommandHandle handle = execute(timeout, fullCommand)) {
+			if(handle == null)
+				return CommandResult.notStarted(fullCommand);
+			ProcessReader processReader = handle.read(lineConsumer);
+			handle.awaitExit();
+			try {
+				// a reparented descendant may keep the pipe open; return what was read by then
+				processReader.join(Math.max(handle.getRemainingMillis(), OUTPUT_DRAIN_MILLIS));
+			} catch (InterruptedException e) {
+				Log.error("Interrupted while reading the output of " + String.join(" ", fullCommand), e);
+			}
+			return handle.toResult(processReader.getLines());
 		}
-		System.out.println();
 	}
 
-	
-	protected InputStream getInputStream()
+
+	/**
+	 * Runs task on its own virtual thread, for the non-blocking variants of the command methods.
+	 */
+	protected static <T> CompletableFuture<T> async(Supplier<T> task)
+	{
+		return CompletableFuture.supplyAsync(task, ASYNC_EXECUTOR);
+	}
+
+
+	private void printCommand(String[] fullCommand)
 	{
-		return this.process.getInputStream();
+		Log.info("Executing: " + String.join(" ", fullCommand));
 	}
 
 
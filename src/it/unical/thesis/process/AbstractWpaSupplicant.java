@@ -1,6 +1,13 @@
 package it.unical.thesis.process;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import it.unical.thesis.utils.Log;
 
 
 public abstract class AbstractWpaSupplicant extends AbstractCommand{
@@ -9,31 +16,126 @@ public abstract class AbstractWpaSupplicant extends AbstractCommand{
 
 	private static final int SCAN_DURATION = 5;
 
+	private static final long POLL_INTERVAL_MILLIS = 100;
+
+	private static final long SETTLE_MILLIS = 200;
+
+	private static final long STOP_TIMEOUT_MILLIS = 2000;
+
+	private static final String PEER_CERT_DEPTH_0 = "CTRL-EVENT-EAP-PEER-CERT depth=0";
+
+	// certificate lines kept in memory; a supplicant retrying the handshake spills the rest
+	private static final int RETAINED_LINES = 2_000;
+
+	private volatile boolean peerChainReceived;
+
 
 	protected AbstractWpaSupplicant()
 	{
+		setOutputRetention(OutputRetention.spill(RETAINED_LINES));
+	}
+
 
+	/**
+	 * Runs wpa_supplicant until the server certificate chain has been received or the scan
+	 * duration has elapsed, whichever comes first. The -dd output other than the certificate
+	 * lines is dropped as it is read; the certificate lines are kept under the output retention
+	 * and passed to lineConsumer once the session is over, spilled lines included, so the
+	 * consumer never runs on the reader thread and the output is never collected into a list.
+	 */
+	public void connect(String interfaceName, String networkConfPath, String wifiDriverBackend, Consumer<String> lineConsumer)
+	{
+		connectSession(interfaceName, networkConfPath, wifiDriverBackend, SCAN_DURATION, lineConsumer);
+	}
+
+
+	/**
+	 * Non-blocking connect. The instance tracks peerChainReceived() for one session at a time,
+	 * so concurrent sessions need separate instances.
+	 */
+	public CompletableFuture<CommandResult> connectAsync(String interfaceName, String networkConfPath, String wifiDriverBackend,
+			Consumer<String> lineConsumer)
+	{
+		return async(() -> connectSession(interfaceName, networkConfPath, wifiDriverBackend, SCAN_DURATION, lineConsumer));
 	}
 
 
-	public List<String> connect(String interfaceName, String networkConfPath, String wifiDriverBackend)
+	protected CommandResult connectSession(String interfaceName, String networkConfPath, String wifiDriverBackend, int timeoutSeconds,
+			Consumer<String> lineConsumer)
 	{
 		final String[] command = {getCommandName(),
 				"-i", interfaceName,
 				"-c", networkConfPath,
 				"-D", wifiDriverBackend,
 				"-dd"};
-		this.execute(command);
-		ProcessReader processReader = new ProcessReader(getInputStream());
-		processReader.start();
-		this.waitForCompletion(SCAN_DURATION);
-		this.destroyProcess();
+		CountDownLatch chainReceived = new CountDownLatch(1);
+		this.peerChainReceived = false;
+
+		try (CommandHandle handle = this.execute(Duration.ofSeconds(timeoutSeconds), command);
+				OutputStore lines = new OutputStore(getOutputRetention())) {
+			if(handle == null)
+			{
+				return CommandResult.notStarted(command);
+			}
+			ProcessReader processReader = handle.read(line -> {
+				lines.add(line);
+				if(line.contains(PEER_CERT_DEPTH_0))
+				{
+					this.peerChainReceived = true;
+					chainReceived.countDown();
+				}
+			}, new CertificateLineFilter());
+			this.waitForPeerChain(handle, chainReceived);
+			handle.destroy();
+			try {
+				processReader.join(STOP_TIMEOUT_MILLIS);
+			} catch (InterruptedException e) {
+				Log.error("Interrupted while stopping " + NAME, e);
+			}
+			lines.forEachLine(lineConsumer);
+			return handle.toResult(List.of());
+		}
+	}
+
+
+	/**
+	 * True if the last connect() saw the leaf certificate, i.e. the whole chain went through the log.
+	 */
+	public boolean peerChainReceived()
+	{
+		return this.peerChainReceived;
+	}
+
+
+	/**
+	 * Lets supplicants that dump the chain to disk end the session as soon as the file appears.
+	 */
+	protected boolean isChainWritten()
+	{
+		return false;
+	}
+
+
+	private void waitForPeerChain(CommandHandle handle, CountDownLatch chainReceived)
+	{
 		try {
-			processReader.join();
+			long remaining;
+			while((remaining = handle.getRemainingMillis()) > 0)
+			{
+				if(chainReceived.await(Math.min(POLL_INTERVAL_MILLIS, remaining), TimeUnit.MILLISECONDS) || isChainWritten())
+				{
+					// give the supplicant a moment to flush the last certificate dump
+					Thread.sleep(SETTLE_MILLIS);
+					return;
+				}
+				if(!handle.isAlive())
+				{
+					return;
+				}
+			}
 		} catch (InterruptedException e) {
-			e.printStackTrace();
+			Log.error("Interrupted while waiting for the peer certificate chain", e);
 		}
-		return processReader.getLines();
 	}
 
 
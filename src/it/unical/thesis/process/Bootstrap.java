@@ -1,11 +1,11 @@
 package it.unical.thesis.process;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Bootstrap extends AbstractCommand{
 
 	private static final String NAME = "bootstrap_enhanced";
-	
+
 	private final String certsPath;
 			
 	
@@ -15,7 +15,23 @@ public class Bootstrap extends AbstractCommand{
 	}
 
 
-	public List<String> startGeneration(String caSerial, String caStartDate, String caEndDate, String serverSerial, String serverStartDate, String serverEndDate)
+	/**
+	 * Runs the generation to completion. Its output is progress only: it reaches the log at
+	 * OUTPUT level and is not kept.
+	 */
+	public CommandResult startGeneration(String caSerial, String caStartDate, String caEndDate, String serverSerial, String serverStartDate, String serverEndDate)
+	{
+		return generate(caSerial, caStartDate, caEndDate, serverSerial, serverStartDate, serverEndDate);
+	}
+
+
+	public CompletableFuture<CommandResult> startGenerationAsync(String caSerial, String caStartDate, String caEndDate, String serverSerial, String serverStartDate, String serverEndDate)
+	{
+		return async(() -> generate(caSerial, caStartDate, caEndDate, serverSerial, serverStartDate, serverEndDate));
+	}
+
+
+	private CommandResult generate(String caSerial, String caStartDate, String caEndDate, String serverSerial, String serverStartDate, String serverEndDate)
 	{	
 		final String[] command = {certsPath+"/"+NAME,
 				"--ca-serial", caSerial,
@@ -26,16 +42,8 @@ public class Bootstrap extends AbstractCommand{
 		    	"--cert-end-date", serverEndDate,
 		       // --client-serial 5E6F 
 		};
-		this.execute(command);
-		ProcessReader processReader = new ProcessReader(getInputStream());
-		processReader.start();
-		this.waitIndefinitelyForCompletion();
-		try {
-			processReader.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		return processReader.getLines();
+		// no deadline: openssl dhparam alone can take minutes
+		return this.runAndRead(null, line -> {}, command);
 	}
 	
 }
@@ -0,0 +1,98 @@
+package it.unical.thesis.process;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps only what SSLCertificateParser.splitCertificatesByDepth reads from a wpa_supplicant
+ * -dd log: the peer certificate markers and each "Certificate:" section up to the line that
+ * closes it. The rest of the debug output is dropped undecoded. One instance per stream.
+ */
+public class CertificateLineFilter implements LineFilter {
+
+	private static final byte[] OPENSSL_DEPTH = ascii("OpenSSL: Peer certificate - depth");
+
+	private static final byte[] PEER_CERT_EVENT = ascii("CTRL-EVENT-EAP-PEER-CERT");
+
+	private static final byte[] SECTION_START = ascii("Certificate:");
+
+	// the lines that end a section, as the parser matches them
+	private static final byte[][] SECTION_ENDS = {
+			ascii("wlan0: CTRL-EVENT-EAP-PEER-CERT"),
+			ascii("TLS: Certificate verification"),
+			ascii("EAP: Status notification")};
+
+	private boolean inSection;
+
+
+	@Override
+	public boolean accept(byte[] line, int start, int end)
+	{
+		if(isSectionStart(line, start, end))
+		{
+			inSection = true;
+			return true;
+		}
+		if(inSection)
+		{
+			if(startsWithAny(line, start, end, SECTION_ENDS) || contains(line, start, end, OPENSSL_DEPTH))
+			{
+				inSection = false;
+			}
+			return true;
+		}
+		return contains(line, start, end, OPENSSL_DEPTH) || contains(line, start, end, PEER_CERT_EVENT);
+	}
+
+
+	// "Certificate:" once surrounding blanks and control characters are trimmed, as String.trim() does
+	private static boolean isSectionStart(byte[] line, int start, int end)
+	{
+		while(start < end && (line[start] & 0xff) <= ' ')
+			start++;
+		while(end > start && (line[end - 1] & 0xff) <= ' ')
+			end--;
+		return end - start == SECTION_START.length && regionMatches(line, start, SECTION_START);
+	}
+
+
+	private static boolean startsWithAny(byte[] line, int start, int end, byte[][] prefixes)
+	{
+		for(byte[] prefix: prefixes)
+		{
+			if(end - start >= prefix.length && regionMatches(line, start, prefix))
+				return true;
+		}
+		return false;
+	}
+
+
+	private static boolean contains(byte[] line, int start, int end, byte[] marker)
+	{
+		byte first = marker[0];
+		for(int i = start, last = end - marker.length; i <= last; i++)
+		{
+			if(line[i] == first && regionMatches(line, i, marker))
+				return true;
+		}
+		return false;
+	}
+
+
+	private static boolean regionMatches(byte[] line, int offset, byte[] marker)
+	{
+		for(int i=0; i<marker.length; i++)
+		{
+			if(line[offset + i] != marker[i])
+				return false;
+		}
+		return true;
+	}
+
+
+	private static byte[] ascii(String marker)
+	{
+		return marker.getBytes(StandardCharsets.US_ASCII);
+	}
+
+
+}
@@ -0,0 +1,282 @@
+package it.unical.thesis.process;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import it.unical.thesis.metrics.CommandEvent;
+import it.unical.thesis.utils.CountingInputStream;
+import it.unical.thesis.utils.Log;
+
+/**
+ * A running child process: its merged stdout/stderr, a future completed with its exit code and
+ * an optional deadline enforced by awaitExit(). Readers started through the handle run on
+ * virtual threads. Closing the handle destroys the process tree if it is still running and
+ * joins those readers, so a try-with-resources block never leaves a child or a thread behind.
+ */
+public class CommandHandle implements AutoCloseable {
+
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private static final long DESTROY_GRACE_MILLIS = 2000;
+
+	private static final long READER_JOIN_MILLIS = 1000;
+
+	private final Process process;
+
+	private final CountingInputStream output;
+
+	private final CompletableFuture<Integer> exitFuture;
+
+	private final long deadlineNanos;
+
+	private final OutputRetention retention;
+
+	private final List<ProcessReader> readers = new ArrayList<>();
+
+	private final CommandEvent event = new CommandEvent();
+
+	private final long startNanos;
+
+	private volatile long exitNanos;
+
+	private boolean exited;
+
+	private boolean drained;
+
+	private boolean outputRequested;
+
+	private boolean eventCommitted;
+
+
+	CommandHandle(Process process, String[] fullCommand, Duration timeout, OutputRetention retention)
+	{
+		this.process = process;
+		this.retention = retention;
+		this.startNanos = System.nanoTime();
+		this.output = new CountingInputStream(process.getInputStream(), this::drained);
+		this.deadlineNanos = timeout != null ? System.nanoTime() + timeout.toNanos() : NO_DEADLINE;
+		this.event.command = String.join(" ", fullCommand);
+		this.event.pid = process.pid();
+		this.event.begin();
+		this.exitFuture = process.onExit().thenApply(exitedProcess -> {
+			exited();
+			return exitedProcess.exitValue();
+		});
+	}
+
+
+	public long pid()
+	{
+		return process.pid();
+	}
+
+
+	/**
+	 * The merged stdout/stderr of the process. Read it directly or through read().
+	 */
+	public synchronized InputStream getOutput()
+	{
+		outputRequested = true;
+		return output;
+	}
+
+
+	public CompletableFuture<Integer> getExitFuture()
+	{
+		return exitFuture;
+	}
+
+
+	public boolean hasDeadline()
+	{
+		return deadlineNanos != NO_DEADLINE;
+	}
+
+
+	/**
+	 * Milliseconds left before the deadline, 0 once it has passed, Long.MAX_VALUE without one.
+	 */
+	public long getRemainingMillis()
+	{
+		if(!hasDeadline())
+			return Long.MAX_VALUE;
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+	}
+
+
+	public boolean isAlive()
+	{
+		return process.isAlive();
+	}
+
+
+	/**
+	 * Result with the exit code if the process has exited, and the time from start to exit
+	 * or, while it runs, to now.
+	 */
+	public CommandResult toResult(List<String> output)
+	{
+		Integer exitCode = process.isAlive() ? null : process.exitValue();
+		long end = exitNanos != 0 ? exitNanos : System.nanoTime();
+		return new CommandResult(event.command, exitCode, Duration.ofNanos(end - startNanos), output);
+	}
+
+
+	public ProcessReader read()
+	{
+		return read(null);
+	}
+
+
+	/**
+	 * Starts a reader that drains the output on a virtual thread, handing each line to
+	 * lineConsumer or, without one, buffering it under the command's output retention.
+	 */
+	public ProcessReader read(Consumer<String> lineConsumer)
+	{
+		return read(lineConsumer, null);
+	}
+
+
+	/**
+	 * Like read(lineConsumer), dropping the lines lineFilter rejects before they are decoded.
+	 */
+	public ProcessReader read(Consumer<String> lineConsumer, LineFilter lineFilter)
+	{
+		ProcessReader reader = new ProcessReader(getOutput(), lineConsumer, lineFilter, retention);
+		synchronized(readers)
+		{
+			readers.add(reader);
+		}
+		reader.start();
+		return reader;
+	}
+
+
+	/**
+	 * Waits for the process to exit, at most until the deadline. A process still running at
+	 * the deadline is destroyed. Returns the exit code, or null if the process did not exit.
+	 */
+	public Integer awaitExit()
+	{
+		if(!hasDeadline())
+		{
+			try {
+				return process.waitFor();
+			} catch (InterruptedException e) {
+				Log.error("Interrupted while waiting for " + event.command, e);
+				return null;
+			}
+		}
+		if(awaitExit(getRemainingMillis(), TimeUnit.MILLISECONDS))
+			return process.exitValue();
+
+		Log.warn("Deadline expired, stopping: " + event.command);
+		destroyTree();
+		return process.isAlive() ? null : process.exitValue();
+	}
+
+
+	/**
+	 * Waits up to timeout for the process to exit, without destroying it.
+	 */
+	public boolean awaitExit(long timeout, TimeUnit unit)
+	{
+		try {
+			return process.waitFor(timeout, unit);
+		} catch (InterruptedException e) {
+			Log.error("Interrupted while waiting for " + event.command, e);
+		}
+		return false;
+	}
+
+
+	public void destroy()
+	{
+		process.destroy();
+	}
+
+
+	/**
+	 * Destroys the process and its descendants if still running, then waits briefly for the
+	 * readers to reach end of stream and releases what they buffered.
+	 */
+	@Override
+	public void close()
+	{
+		if(process.isAlive())
+		{
+			destroyTree();
+		}
+
+		List<ProcessReader> started;
+		synchronized(readers)
+		{
+			started = new ArrayList<>(readers);
+		}
+		for(ProcessReader reader: started)
+		{
+			try {
+				if(!reader.join(READER_JOIN_MILLIS))
+					Log.warn("Output reader still blocked after close: " + event.command);
+			} catch (InterruptedException e) {
+				Log.error("Interrupted while closing " + event.command, e);
+			}
+			reader.releaseOutput();
+		}
+	}
+
+
+	// escalates to SIGKILL for whatever is left after the grace period
+	private void destroyTree()
+	{
+		// collected first: once the process dies its children are reparented and untraceable
+		List<ProcessHandle> descendants = process.descendants().toList();
+		descendants.forEach(ProcessHandle::destroy);
+		process.destroy();
+		if(!awaitExit(DESTROY_GRACE_MILLIS, TimeUnit.MILLISECONDS))
+		{
+			process.destroyForcibly();
+		}
+		descendants.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+	}
+
+
+	private synchronized void exited()
+	{
+		exitNanos = System.nanoTime();
+		event.end();
+		exited = true;
+		commitEventIfComplete();
+	}
+
+
+	private synchronized void drained()
+	{
+		drained = true;
+		commitEventIfComplete();
+	}
+
+
+	// the event is committed once the process has exited and its output, if read, is drained
+	private void commitEventIfComplete()
+	{
+		if(eventCommitted || !exited || (outputRequested && !drained))
+			return;
+
+		eventCommitted = true;
+		if(event.shouldCommit())
+		{
+			event.exitCode = process.exitValue();
+			event.outputBytes = output.getCount();
+			event.commit();
+		}
+	}
+
+
+}
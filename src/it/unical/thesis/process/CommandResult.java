@@ -0,0 +1,72 @@
+package it.unical.thesis.process;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of one command: exit code, wall time and the buffered output. The output is empty
+ * when the lines were streamed to a consumer instead.
+ */
+public class CommandResult {
+
+	private final String command;
+
+	private final Integer exitCode;
+
+	private final Duration duration;
+
+	private final List<String> output;
+
+
+	CommandResult(String command, Integer exitCode, Duration duration, List<String> output)
+	{
+		this.command = command;
+		this.exitCode = exitCode;
+		this.duration = duration;
+		this.output = output;
+	}
+
+
+	static CommandResult notStarted(String[] fullCommand)
+	{
+		return new CommandResult(String.join(" ", fullCommand), null, Duration.ZERO, List.of());
+	}
+
+
+	public String getCommand() {
+		return command;
+	}
+
+
+	/**
+	 * Exit code, or null if the process could not be started or did not exit.
+	 */
+	public Integer getExitCode() {
+		return exitCode;
+	}
+
+
+	public Duration getDuration() {
+		return duration;
+	}
+
+
+	public List<String> getOutput() {
+		return output;
+	}
+
+
+	public boolean isSuccess()
+	{
+		return exitCode != null && exitCode == 0;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return command + " (exit " + exitCode + ", " + duration.toMillis() + " ms, " + output.size() + " lines)";
+	}
+
+
+}
@@ -0,0 +1,19 @@
+package it.unical.thesis.process;
+
+import java.io.IOException;
+
+/**
+ * Starts the external programs behind the commands. The returned process must have stderr
+ * merged into its input stream. SYSTEM launches real executables; ReplayCommandRunner serves
+ * recorded output instead, so the pipeline can run without the tools or the hardware.
+ */
+@FunctionalInterface
+public interface CommandRunner {
+
+	CommandRunner SYSTEM = fullCommand -> new ProcessBuilder(fullCommand).redirectErrorStream(true).start();
+
+
+	Process start(String... fullCommand) throws IOException;
+
+
+}
@@ -1,6 +1,7 @@
 package it.unical.thesis.process;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Id extends AbstractCommand{
 
@@ -15,18 +16,21 @@ public class Id extends AbstractCommand{
 
 	
 	public List<String> printUserId()
+	{
+		return userId().getOutput();
+	}
+
+
+	public CompletableFuture<CommandResult> printUserIdAsync()
+	{
+		return async(this::userId);
+	}
+
+
+	private CommandResult userId()
 	{
 		final String[] command = {NAME, "-u"};
-		this.execute(command);
-		ProcessReader processReader = new ProcessReader(getInputStream());
-		processReader.start();
-		this.waitIndefinitelyForCompletion();
-		try {
-			processReader.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		return processReader.getLines();	
+		return this.runAndReadLines(command);
 	}
 
 
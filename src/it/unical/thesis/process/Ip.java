@@ -1,5 +1,7 @@
 package it.unical.thesis.process;
 
+import java.util.concurrent.CompletableFuture;
+
 public class Ip extends AbstractCommand{
 
 	private static final String NAME = "ip";
@@ -12,17 +14,32 @@ public class Ip extends AbstractCommand{
 
 	public void down(String interfaceName)
 	{
-		final String[] command = {NAME, "link", "set", interfaceName, "down"};
-		this.execute(command);
-		this.waitIndefinitelyForCompletion();
+		setLinkState(interfaceName, "down");
 	}
 	
 
 	public void up(String interfaceName)
 	{
-		final String[] command = {NAME, "link", "set", interfaceName, "up"};
-		this.execute(command);
-		this.waitIndefinitelyForCompletion();
+		setLinkState(interfaceName, "up");
+	}
+
+
+	public CompletableFuture<CommandResult> downAsync(String interfaceName)
+	{
+		return async(() -> setLinkState(interfaceName, "down"));
+	}
+
+
+	public CompletableFuture<CommandResult> upAsync(String interfaceName)
+	{
+		return async(() -> setLinkState(interfaceName, "up"));
+	}
+
+
+	private CommandResult setLinkState(String interfaceName, String state)
+	{
+		final String[] command = {NAME, "link", "set", interfaceName, state};
+		return this.run(command);
 	}
 	
 	
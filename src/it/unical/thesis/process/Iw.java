@@ -1,6 +1,8 @@
 package it.unical.thesis.process;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class Iw extends AbstractCommand{
 
@@ -15,50 +17,80 @@ public class Iw extends AbstractCommand{
 
 	public List<String> startScan(String interfaceName)
 	{
-		final String[] command = {NAME, "dev", interfaceName, "scan"};
-		this.execute(command);
-		ProcessReader processReader = new ProcessReader(getInputStream());
-		processReader.start();
-		this.waitIndefinitelyForCompletion();
-		try {
-			processReader.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		return processReader.getLines();
+		return scan(interfaceName, null).getOutput();
+	}
+
+
+	public void startScan(String interfaceName, Consumer<String> lineConsumer)
+	{
+		scan(interfaceName, lineConsumer);
+	}
+
+
+	/**
+	 * lineConsumer may be null, in which case the scan output is buffered into the result.
+	 */
+	public CompletableFuture<CommandResult> startScanAsync(String interfaceName, Consumer<String> lineConsumer)
+	{
+		return async(() -> scan(interfaceName, lineConsumer));
 	}
 	
 
 	public void setChannel(String interfaceName, String channel)
 	{
-		final String[] command = {NAME, "dev", interfaceName, "set", "channel", channel};
-		this.execute(command);
-		this.waitIndefinitelyForCompletion();
+		set(interfaceName, "channel", channel);
 	}
 	
 	
 	public void setType(String interfaceName, String type)
 	{
-		final String[] command = {NAME, "dev", interfaceName, "set", "type", type};
-		this.execute(command);
-		this.waitIndefinitelyForCompletion();
+		set(interfaceName, "type", type);
+	}
+
+
+	public CompletableFuture<CommandResult> setChannelAsync(String interfaceName, String channel)
+	{
+		return async(() -> set(interfaceName, "channel", channel));
+	}
+
+
+	public CompletableFuture<CommandResult> setTypeAsync(String interfaceName, String type)
+	{
+		return async(() -> set(interfaceName, "type", type));
 	}
 	
 	
 	public List<String> listWirelessInterfaces()
+	{
+		return listDevices().getOutput();
+	}
+
+
+	public CompletableFuture<CommandResult> listWirelessInterfacesAsync()
+	{
+		return async(this::listDevices);
+	}
+
+
+	private CommandResult scan(String interfaceName, Consumer<String> lineConsumer)
+	{
+		final String[] command = {NAME, "dev", interfaceName, "scan"};
+		return this.runAndRead(SHORT_COMMAND_TIMEOUT, lineConsumer, command);
+	}
+
+
+	private CommandResult set(String interfaceName, String attribute, String value)
+	{
+		final String[] command = {NAME, "dev", interfaceName, "set", attribute, value};
+		return this.run(command);
+	}
+
+
+	private CommandResult listDevices()
 	{
 		final String[] command = {NAME, "dev"};
-		this.execute(command);
-		ProcessReader processReader = new ProcessReader(getInputStream());
-		processReader.start();
-		this.waitIndefinitelyForCompletion();
-		try {
-			processReader.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		return processReader.getLines();	
+		return this.runAndReadLines(command);
 	}
 	
 
-}
\ No newline at end of file
+}
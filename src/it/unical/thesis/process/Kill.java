@@ -14,10 +14,7 @@ public class Kill extends AbstractCommand{
 	public void sigint(long pid)
 	{
 		final String[] command = {NAME, "-2", String.valueOf(pid)};
-		this.execute(command);
-		ProcessReader processReader = new ProcessReader(getInputStream());
-		processReader.start();
-		this.waitIndefinitelyForCompletion();
+		this.runAndReadLines(command);
 	}
 
 }
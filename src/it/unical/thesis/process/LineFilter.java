@@ -0,0 +1,13 @@
+package it.unical.thesis.process;
+
+/**
+ * Decides from the raw bytes of an output line, terminator excluded, whether ProcessReader
+ * decodes it and hands it on. Implementations may keep state across the lines of one stream.
+ */
+@FunctionalInterface
+public interface LineFilter {
+
+	boolean accept(byte[] line, int start, int end);
+
+
+}
@@ -0,0 +1,75 @@
+package it.unical.thesis.process;
+
+/**
+ * How much of a command's output is kept when it is buffered rather than streamed: all of it
+ * in memory, only the most recent lines, or the most recent lines in memory with the older ones
+ * spilled to a temporary file.
+ */
+public final class OutputRetention {
+
+	public static final OutputRetention UNBOUNDED = new OutputRetention(Integer.MAX_VALUE, false);
+
+	private final int maxLines;
+
+	private final boolean spill;
+
+
+	private OutputRetention(int maxLines, boolean spill)
+	{
+		this.maxLines = maxLines;
+		this.spill = spill;
+	}
+
+
+	/**
+	 * Keeps the last maxLines lines and discards the older ones.
+	 */
+	public static OutputRetention recent(int maxLines)
+	{
+		return new OutputRetention(checkPositive(maxLines), false);
+	}
+
+
+	/**
+	 * Keeps the last maxLines lines in memory and every older line in a spill file, so the
+	 * whole output can still be read back.
+	 */
+	public static OutputRetention spill(int maxLines)
+	{
+		return new OutputRetention(checkPositive(maxLines), true);
+	}
+
+
+	public int getMaxLines() {
+		return maxLines;
+	}
+
+
+	public boolean isSpill() {
+		return spill;
+	}
+
+
+	public boolean isUnbounded() {
+		return maxLines == Integer.MAX_VALUE;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		if(isUnbounded())
+			return "unbounded";
+		return (spill ? "spill after " : "last ") + maxLines + " lines";
+	}
+
+
+	private static int checkPositive(int maxLines)
+	{
+		if(maxLines <= 0)
+			throw new IllegalArgumentException("maxLines must be positive: " + maxLines);
+		return maxLines;
+	}
+
+
+}
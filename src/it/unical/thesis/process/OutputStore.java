@@ -0,0 +1,267 @@
+package it.unical.thesis.process;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import it.unical.thesis.utils.Log;
+
+/**
+ * Buffered output of one command, kept according to an OutputRetention. Past the in-memory
+ * limit the oldest line is evicted for each new one and either discarded or appended to a spill
+ * file, created on the first eviction and read back through a memory mapping. forEachLine()
+ * decodes the spilled lines one at a time, so a parser fed from it never holds the whole
+ * output; getLines() collects them into a list. The reader thread adds lines while other
+ * threads take snapshots.
+ */
+public class OutputStore implements AutoCloseable {
+
+	private static final int LINE_BUFFER_BYTES = 256;
+
+	private static final long SPILL_WINDOW_BYTES = 64L << 20;
+
+	private final OutputRetention retention;
+
+	private final List<String> unbounded;
+
+	// allocated on the first line, as most readers stream to a consumer and never buffer
+	private String[] ring;
+
+	private int ringStart;
+
+	private int ringSize;
+
+	private Path spillPath;
+
+	private Writer spillWriter;
+
+	private boolean spillFailed;
+
+	private long spilledLines;
+
+	private long discardedLines;
+
+	private boolean closed;
+
+
+	public OutputStore(OutputRetention retention)
+	{
+		this.retention = retention;
+		this.unbounded = retention.isUnbounded() ? new ArrayList<>() : null;
+	}
+
+
+	/**
+	 * Ignored once the store is closed, e.g. for a reader still draining after its command was closed.
+	 */
+	public synchronized void add(String line)
+	{
+		if(closed)
+			return;
+		if(unbounded != null)
+		{
+			unbounded.add(line);
+			return;
+		}
+
+		if(ring == null)
+		{
+			ring = new String[retention.getMaxLines()];
+		}
+		if(ringSize < ring.length)
+		{
+			ring[(ringStart + ringSize) % ring.length] = line;
+			ringSize++;
+			return;
+		}
+		evict(ring[ringStart]);
+		ring[ringStart] = line;
+		ringStart = (ringStart + 1) % ring.length;
+	}
+
+
+	/**
+	 * Every retained line in order: the spilled ones, if any, followed by those in memory.
+	 */
+	public synchronized List<String> getLines()
+	{
+		if(spilledLines == 0 || closed)
+			return getRecentLines();
+
+		List<String> lines = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8, spilledLines + ringSize));
+		forEachLine(lines::add);
+		return lines;
+	}
+
+
+	/**
+	 * Passes every retained line, in the order of getLines(), to lineConsumer. Lines are not
+	 * added while the consumer runs, so it should only be called once the reader is done.
+	 */
+	public synchronized void forEachLine(Consumer<String> lineConsumer)
+	{
+		if(closed)
+			return;
+		if(spilledLines > 0)
+			readSpill(lineConsumer);
+
+		if(unbounded != null)
+		{
+			unbounded.forEach(lineConsumer);
+			return;
+		}
+		for(int i=0; i<ringSize; i++)
+		{
+			lineConsumer.accept(ring[(ringStart + i) % ring.length]);
+		}
+	}
+
+
+	/**
+	 * The lines held in memory, oldest first.
+	 */
+	public synchronized List<String> getRecentLines()
+	{
+		if(unbounded != null)
+			return new ArrayList<>(unbounded);
+
+		List<String> lines = new ArrayList<>(ringSize);
+		for(int i=0; i<ringSize; i++)
+		{
+			lines.add(ring[(ringStart + i) % ring.length]);
+		}
+		return lines;
+	}
+
+
+	/**
+	 * Lines added so far, including the spilled and discarded ones.
+	 */
+	public synchronized long getLineCount()
+	{
+		return (unbounded != null ? unbounded.size() : ringSize) + spilledLines + discardedLines;
+	}
+
+
+	public synchronized long getDiscardedLines()
+	{
+		return discardedLines;
+	}
+
+
+	public OutputRetention getRetention()
+	{
+		return retention;
+	}
+
+
+	/**
+	 * Drops the buffered lines and deletes the spill file.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		if(closed)
+			return;
+		closed = true;
+		if(unbounded != null)
+			unbounded.clear();
+		ring = null;
+		ringSize = 0;
+		if(spillPath != null)
+		{
+			try {
+				if(spillWriter != null)
+					spillWriter.close();
+				Files.deleteIfExists(spillPath);
+			} catch (IOException e) {
+				Log.error("Cannot delete spilled output " + spillPath, e);
+			}
+		}
+	}
+
+
+	private void evict(String line)
+	{
+		if(!retention.isSpill() || spillFailed)
+		{
+			discardedLines++;
+			return;
+		}
+		try {
+			if(spillWriter == null)
+			{
+				spillPath = Files.createTempFile("conf-weaver-output", ".log");
+				spillWriter = Files.newBufferedWriter(spillPath, StandardCharsets.UTF_8);
+			}
+			spillWriter.write(line);
+			spillWriter.write('\n');
+			spilledLines++;
+		} catch (IOException e) {
+			// keep going in memory only; what could not be written is counted as discarded
+			Log.error("Cannot spill output, keeping it in memory only", e);
+			spillFailed = true;
+			discardedLines++;
+		}
+	}
+
+
+	/**
+	 * Maps the spill file one window at a time, so files past the 2 GB limit of a single
+	 * mapping can be read. A line cut by the end of a window starts the next one.
+	 */
+	private void readSpill(Consumer<String> lineConsumer)
+	{
+		try {
+			spillWriter.flush();
+			try (FileChannel channel = FileChannel.open(spillPath, StandardOpenOption.READ)) {
+				byte[] buffer = new byte[LINE_BUFFER_BYTES];
+				long size = channel.size();
+				long position = 0;
+				long windowBytes = SPILL_WINDOW_BYTES;
+				while(position < size)
+				{
+					int limit = (int) Math.min(windowBytes, size - position);
+					MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, limit);
+					int lineStart = 0;
+					for(int i=0; i<limit; i++)
+					{
+						if(mapped.get(i) != '\n')
+							continue;
+						int length = i - lineStart;
+						if(length > buffer.length)
+							buffer = new byte[Math.max(length, buffer.length * 2)];
+						mapped.get(lineStart, buffer, 0, length);
+						lineConsumer.accept(new String(buffer, 0, length, StandardCharsets.UTF_8));
+						lineStart = i + 1;
+					}
+					if(lineStart == 0 && limit < size - position)
+					{
+						// a single line longer than the window
+						if(limit == Integer.MAX_VALUE)
+							throw new IOException("Spilled line longer than a mapping");
+						windowBytes = Math.min(windowBytes * 2, Integer.MAX_VALUE);
+						continue;
+					}
+					// every line ends with a newline, so nothing is left past the last window
+					position += lineStart;
+					windowBytes = SPILL_WINDOW_BYTES;
+					if(lineStart == 0)
+						break;
+				}
+			}
+		} catch (IOException e) {
+			Log.error("Cannot read spilled output " + spillPath, e);
+		}
+	}
+
+
+}
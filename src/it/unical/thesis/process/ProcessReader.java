@@ -4,51 +4,234 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.Duration;
 import java.util.List;
+import java.util.function.Consumer;
 
-public class ProcessReader extends Thread {
+import it.unical.thesis.metrics.ProcessReaderEvent;
+import it.unical.thesis.utils.CountingInputStream;
+import it.unical.thesis.utils.Log;
+
+/**
+ * Drains a process output stream line by line on its own virtual thread.
+ */
+public class ProcessReader implements Runnable {
+
+	private static final int FILTER_BUFFER_BYTES = 64 * 1024;
+
+	// what the unfiltered path decodes with, through InputStreamReader
+	private static final Charset CHARSET = Charset.defaultCharset();
 	
 	//private volatile boolean finished;
 	
 	private InputStream inputStream;
 	
-	private List<String> lines;
+	private OutputStore output;
+
+	private Consumer<String> lineConsumer;
+
+	private LineFilter lineFilter;
+
+	private Thread thread;
 
 	
 	public ProcessReader(InputStream inputStream)
+	{
+		this(inputStream, null);
+	}
+
+
+	/**
+	 * Streams every line to lineConsumer as soon as it is read, on the reader thread.
+	 * When a consumer is given lines are not buffered and getLines() stays empty.
+	 */
+	public ProcessReader(InputStream inputStream, Consumer<String> lineConsumer)
+	{
+		this(inputStream, lineConsumer, null);
+	}
+
+
+	/**
+	 * Like ProcessReader(inputStream, lineConsumer), but lines lineFilter rejects are dropped
+	 * before they are decoded; they are neither printed, buffered nor passed to the consumer.
+	 */
+	public ProcessReader(InputStream inputStream, Consumer<String> lineConsumer, LineFilter lineFilter)
+	{
+		this(inputStream, lineConsumer, lineFilter, OutputRetention.UNBOUNDED);
+	}
+
+
+	/**
+	 * Lines buffered without a consumer are kept according to retention.
+	 */
+	public ProcessReader(InputStream inputStream, Consumer<String> lineConsumer, LineFilter lineFilter, OutputRetention retention)
 	{
 		this.inputStream = inputStream;
-		this.lines = new ArrayList<>();
+		this.lineConsumer = lineConsumer;
+		this.lineFilter = lineFilter;
+		this.output = new OutputStore(retention);
 	}
 	
 	
 	@Override
 	public void run()
 	{
-		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-		String line;
-		try {
-			while ((line = reader.readLine()) != null) {
-				System.out.println(line);
-				lines.add(line);
-			}
-			reader.close();
+		ProcessReaderEvent event = new ProcessReaderEvent();
+		CountingInputStream countingStream = new CountingInputStream(inputStream);
+		event.begin();
+		try (countingStream) {
+			if(lineFilter != null)
+				readFiltered(countingStream, event);
+			else
+				readLines(countingStream, event);
 		} catch (IOException e) {
 		}
 		finally {
-			try {
-				reader.close();
-			} catch (IOException e) {
-				e.printStackTrace();
+			event.end();
+			if(event.shouldCommit())
+			{
+				event.bytes = countingStream.getCount();
+				event.commit();
+			}
+		}
+	}
+
+
+	private void readLines(InputStream stream, ProcessReaderEvent event) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			event.lines++;
+			emit(line, event);
+		}
+	}
+
+
+	/**
+	 * Splits the stream into lines on the bytes, as BufferedReader.readLine() would, and decodes
+	 * only those lineFilter accepts. Partial lines stay in the reused buffer until completed.
+	 */
+	private void readFiltered(InputStream stream, ProcessReaderEvent event) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(FILTER_BUFFER_BYTES);
+		boolean skipLineFeed = false;
+		while(true)
+		{
+			if(!buffer.hasRemaining())
+			{
+				// a single line longer than the buffer
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
 			}
+			int scanFrom = buffer.position();
+			int read = stream.read(buffer.array(), scanFrom, buffer.remaining());
+			if(read < 0)
+				break;
+			buffer.position(scanFrom + read);
+
+			byte[] bytes = buffer.array();
+			int lineStart = 0;
+			for(int i=scanFrom; i<buffer.position(); i++)
+			{
+				byte b = bytes[i];
+				if(skipLineFeed && b == '\n')
+				{
+					skipLineFeed = false;
+					lineStart = i + 1;
+					continue;
+				}
+				skipLineFeed = false;
+				if(b == '\n' || b == '\r')
+				{
+					filterLine(bytes, lineStart, i, event);
+					lineStart = i + 1;
+					skipLineFeed = b == '\r';
+				}
+			}
+			buffer.flip().position(lineStart);
+			buffer.compact();
+		}
+		if(buffer.position() > 0)
+		{
+			filterLine(buffer.array(), 0, buffer.position(), event);
+		}
+	}
+
+
+	private void filterLine(byte[] bytes, int start, int end, ProcessReaderEvent event)
+	{
+		event.lines++;
+		if(!lineFilter.accept(bytes, start, end))
+		{
+			event.droppedLines++;
+			return;
 		}
+		emit(new String(bytes, start, end - start, CHARSET), event);
+	}
+
+
+	private void emit(String line, ProcessReaderEvent event)
+	{
+		long consumerStart = event.isEnabled() ? System.nanoTime() : 0;
+		Log.output(line);
+		if(lineConsumer!=null)
+			lineConsumer.accept(line);
+		else
+			output.add(line);
+		if(consumerStart != 0)
+			event.consumerTime += System.nanoTime() - consumerStart;
 	}
 	
 
 
+	public synchronized void start()
+	{
+		if(thread != null)
+			throw new IllegalStateException("ProcessReader already started");
+		thread = Thread.ofVirtual().name("process-reader").start(this);
+	}
+
+
+	public void join() throws InterruptedException
+	{
+		startedThread().join();
+	}
+
+
+	/**
+	 * Waits up to millis for end of stream and returns whether it was reached.
+	 */
+	public boolean join(long millis) throws InterruptedException
+	{
+		return startedThread().join(Duration.ofMillis(millis));
+	}
+
+
+	private synchronized Thread startedThread()
+	{
+		if(thread == null)
+			throw new IllegalStateException("ProcessReader not started");
+		return thread;
+	}
+
+
+	/**
+	 * Snapshot of the lines buffered so far, complete once join() has returned, within the
+	 * limits of the retention policy.
+	 */
 	public List<String> getLines() {
-		return lines;
+		return output.getLines();
+	}
+
+
+	/**
+	 * Drops the buffered lines and any spill file; lines read afterwards are not kept.
+	 */
+	public void releaseOutput()
+	{
+		output.close();
 	}
 
 
@@ -0,0 +1,158 @@
+package it.unical.thesis.process;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import it.unical.thesis.utils.Log;
+
+/**
+ * Serves recorded output in place of the real tools. Each recording is matched against the
+ * command line, with the program reduced to its file name, and the first match is replayed
+ * with its latencies; unmatched commands print nothing and exit 0 after a default delay.
+ * Recordings are loaded once, so a replayed run does no disk I/O for command output.
+ */
+public class ReplayCommandRunner implements CommandRunner {
+
+	private final List<Recording> recordings = new ArrayList<>();
+
+	private Duration defaultDelay = Duration.ofMillis(10);
+
+
+	public ReplayCommandRunner()
+	{
+
+	}
+
+
+	/**
+	 * The recordings in directory, replayed as in ReplayProfile.REAL_RUN with the latencies
+	 * multiplied by latencyScale; 0 replays everything at once, for profiling the Java side.
+	 * Missing recordings without default lines are left out, so those commands print nothing.
+	 */
+	public static ReplayCommandRunner fromDirectory(Path directory, double latencyScale)
+	{
+		ReplayCommandRunner runner = new ReplayCommandRunner();
+		runner.setDefaultDelay(scale(ReplayProfile.DEFAULT_DELAY, latencyScale));
+		for(ReplayProfile profile: ReplayProfile.REAL_RUN)
+		{
+			List<String> lines = profile.lines(directory);
+			if(lines == null)
+				continue;
+			Duration exitDelay = profile.getExitDelay();
+			runner.replay(profile.getCommandPattern(), lines, scale(profile.getStartDelay(), latencyScale),
+					scale(profile.outputSpan(lines.size()), latencyScale), exitDelay != null ? scale(exitDelay, latencyScale) : null);
+		}
+		return runner;
+	}
+
+
+	/**
+	 * Replays the lines of a recording file; a file that cannot be read is skipped.
+	 */
+	public ReplayCommandRunner replay(String commandPattern, Path recording, Duration startDelay, Duration outputSpan,
+			Duration exitDelay)
+	{
+		if(!Files.isReadable(recording))
+			return this;
+		try {
+			return replay(commandPattern, Files.readAllLines(recording), startDelay, outputSpan, exitDelay);
+		} catch (IOException e) {
+			Log.error("Cannot read recording " + recording, e);
+			return this;
+		}
+	}
+
+
+	/**
+	 * Registers lines for the commands matching commandPattern: the first is printed after
+	 * startDelay, the rest spread over outputSpan, then the process exits after exitDelay or,
+	 * if exitDelay is null, runs until destroyed.
+	 */
+	public ReplayCommandRunner replay(String commandPattern, List<String> lines, Duration startDelay, Duration outputSpan,
+			Duration exitDelay)
+	{
+		synchronized(recordings)
+		{
+			recordings.add(new Recording(Pattern.compile(commandPattern), List.copyOf(lines),
+					startDelay.toNanos(), outputSpan.toNanos(), exitDelay != null ? exitDelay.toNanos() : -1));
+		}
+		return this;
+	}
+
+
+	public ReplayCommandRunner setDefaultDelay(Duration defaultDelay)
+	{
+		this.defaultDelay = defaultDelay;
+		return this;
+	}
+
+
+	@Override
+	public Process start(String... fullCommand) throws IOException
+	{
+		String commandLine = commandLine(fullCommand);
+		synchronized(recordings)
+		{
+			for(Recording recording: recordings)
+			{
+				if(recording.pattern.matcher(commandLine).matches())
+				{
+					return new ReplayProcess(recording.lines, recording.startDelayNanos, recording.outputSpanNanos,
+							recording.exitDelayNanos);
+				}
+			}
+		}
+		return new ReplayProcess(List.of(), 0, 0, defaultDelay.toNanos());
+	}
+
+
+	private static String commandLine(String[] fullCommand)
+	{
+		StringBuilder commandLine = new StringBuilder(Paths.get(fullCommand[0]).getFileName().toString());
+		for(int i=1; i<fullCommand.length; i++)
+		{
+			commandLine.append(' ').append(fullCommand[i]);
+		}
+		return commandLine.toString();
+	}
+
+
+	private static Duration scale(Duration duration, double factor)
+	{
+		return Duration.ofNanos((long) (duration.toNanos() * factor));
+	}
+
+
+	private static class Recording {
+
+		private final Pattern pattern;
+
+		private final List<String> lines;
+
+		private final long startDelayNanos;
+
+		private final long outputSpanNanos;
+
+		private final long exitDelayNanos;
+
+
+		private Recording(Pattern pattern, List<String> lines, long startDelayNanos, long outputSpanNanos, long exitDelayNanos)
+		{
+			this.pattern = pattern;
+			this.lines = lines;
+			this.startDelayNanos = startDelayNanos;
+			this.outputSpanNanos = outputSpanNanos;
+			this.exitDelayNanos = exitDelayNanos;
+		}
+
+
+	}
+
+
+}
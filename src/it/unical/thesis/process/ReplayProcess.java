@@ -0,0 +1,233 @@
+package it.unical.thesis.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A stand-in process that prints recorded lines on a schedule: the first after startDelay, the
+ * rest spread evenly over outputSpan. It then exits with 0 after exitDelay or, when exitDelay
+ * is negative, keeps its output open until destroyed, like a capture that runs until stopped.
+ */
+class ReplayProcess extends Process {
+
+	// above the Linux pid_max, so a replayed pid never names a real process
+	private static final AtomicLong NEXT_PID = new AtomicLong(5_000_000);
+
+	// what a shell reports for a process stopped by SIGTERM
+	private static final int DESTROYED_EXIT_CODE = 143;
+
+	private static final int MAX_CHUNK_BYTES = 8192;
+
+	private final long pid = NEXT_PID.getAndIncrement();
+
+	private final List<String> lines;
+
+	private final long firstLineNanos;
+
+	private final long outputSpanNanos;
+
+	private final boolean holdOpen;
+
+	private final CountDownLatch exited = new CountDownLatch(1);
+
+	private final CountDownLatch destroyed = new CountDownLatch(1);
+
+	private final CompletableFuture<Process> exitFuture = new CompletableFuture<>();
+
+	private final InputStream output = new ReplayOutput();
+
+	private volatile int exitCode;
+
+
+	ReplayProcess(List<String> lines, long startDelayNanos, long outputSpanNanos, long exitDelayNanos)
+	{
+		this.lines = lines;
+		this.firstLineNanos = System.nanoTime() + startDelayNanos;
+		this.outputSpanNanos = outputSpanNanos;
+		this.holdOpen = exitDelayNanos < 0;
+		if(!holdOpen)
+		{
+			CompletableFuture.delayedExecutor(startDelayNanos + outputSpanNanos + exitDelayNanos, TimeUnit.NANOSECONDS)
+				.execute(() -> exit(0));
+		}
+	}
+
+
+	@Override
+	public OutputStream getOutputStream() {
+		return OutputStream.nullOutputStream();
+	}
+
+
+	@Override
+	public InputStream getInputStream() {
+		return output;
+	}
+
+
+	@Override
+	public InputStream getErrorStream() {
+		return InputStream.nullInputStream();
+	}
+
+
+	@Override
+	public int waitFor() throws InterruptedException {
+		exited.await();
+		return exitCode;
+	}
+
+
+	@Override
+	public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+		return exited.await(timeout, unit);
+	}
+
+
+	@Override
+	public int exitValue() {
+		if(isAlive())
+			throw new IllegalThreadStateException("process hasn't exited");
+		return exitCode;
+	}
+
+
+	@Override
+	public void destroy() {
+		destroyed.countDown();
+		exit(DESTROYED_EXIT_CODE);
+	}
+
+
+	@Override
+	public boolean supportsNormalTermination() {
+		return true;
+	}
+
+
+	@Override
+	public boolean isAlive() {
+		return exited.getCount() > 0;
+	}
+
+
+	@Override
+	public long pid() {
+		return pid;
+	}
+
+
+	@Override
+	public CompletableFuture<Process> onExit() {
+		return exitFuture;
+	}
+
+
+	@Override
+	public Stream<ProcessHandle> children() {
+		return Stream.empty();
+	}
+
+
+	@Override
+	public Stream<ProcessHandle> descendants() {
+		return Stream.empty();
+	}
+
+
+	private synchronized void exit(int code)
+	{
+		if(!isAlive())
+			return;
+		exitCode = code;
+		exited.countDown();
+		exitFuture.complete(this);
+	}
+
+
+	/**
+	 * Hands out the lines that are due, waiting for the next one when none is. A destroyed
+	 * process reaches end of stream at once, as a killed one closes its pipe.
+	 */
+	private class ReplayOutput extends InputStream {
+
+		private byte[] chunk = new byte[0];
+
+		private int position;
+
+		private int nextLine;
+
+
+		@Override
+		public int read() throws IOException {
+			if(position == chunk.length && !nextChunk())
+				return -1;
+			return chunk[position++] & 0xff;
+		}
+
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if(length == 0)
+				return 0;
+			if(position == chunk.length && !nextChunk())
+				return -1;
+			int count = Math.min(length, chunk.length - position);
+			System.arraycopy(chunk, position, buffer, offset, count);
+			position += count;
+			return count;
+		}
+
+
+		private boolean nextChunk() throws IOException
+		{
+			try {
+				if(nextLine == lines.size())
+				{
+					if(holdOpen)
+						destroyed.await();
+					return false;
+				}
+
+				long wait = dueNanos(nextLine) - System.nanoTime();
+				if(wait > 0 && destroyed.await(wait, TimeUnit.NANOSECONDS))
+					return false;
+				if(destroyed.getCount() == 0)
+					return false;
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+
+			StringBuilder text = new StringBuilder();
+			long now = System.nanoTime();
+			do {
+				text.append(lines.get(nextLine++)).append('\n');
+			} while(nextLine < lines.size() && text.length() < MAX_CHUNK_BYTES && dueNanos(nextLine) <= now);
+
+			chunk = text.toString().getBytes(StandardCharsets.UTF_8);
+			position = 0;
+			return true;
+		}
+
+
+		private long dueNanos(int line)
+		{
+			if(lines.size() < 2)
+				return firstLineNanos;
+			return firstLineNanos + outputSpanNanos * line / (lines.size() - 1);
+		}
+
+
+	}
+
+
+}
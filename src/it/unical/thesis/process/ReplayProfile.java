@@ -0,0 +1,174 @@
+package it.unical.thesis.process;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import it.unical.thesis.utils.Log;
+
+/**
+ * How a command behaves in a real run: the recording it prints, when the output starts, how
+ * long it takes and whether the process then exits or runs until destroyed. REAL_RUN drives
+ * both ReplayCommandRunner and the stand-in executables of the pipeline benchmark, so command
+ * patterns stay within the syntax Java and POSIX extended regular expressions share.
+ */
+public class ReplayProfile {
+
+	public static final String ID_RECORDING = "id.txt";
+
+	public static final String IW_DEV_RECORDING = "iw-dev.txt";
+
+	public static final String IW_SCAN_RECORDING = "iw-scan.txt";
+
+	public static final String TSHARK_CAPTURE_RECORDING = "tshark-capture.txt";
+
+	public static final String TSHARK_FIELDS_RECORDING = "tshark-dense.txt";
+
+	public static final String WPA_SUPPLICANT_RECORDING = "wpa-supplicant-dd.log";
+
+	public static final String BOOTSTRAP_RECORDING = "bootstrap.txt";
+
+	// what a command that matches no profile takes to print nothing and exit
+	public static final Duration DEFAULT_DELAY = Duration.ofMillis(20);
+
+	// a beacon interval, the pace at which a capture filtered on one access point grows
+	private static final Duration BEACON_INTERVAL = Duration.ofNanos(102_400_000);
+
+	public static final List<ReplayProfile> REAL_RUN = List.of(
+			new ReplayProfile("id -u", ID_RECORDING, List.of("0")).exitAfter(Duration.ofMillis(2)),
+			new ReplayProfile("systemctl .*", null, List.of()).exitAfter(Duration.ofMillis(400)),
+			new ReplayProfile("ip .*", null, List.of()).exitAfter(DEFAULT_DELAY),
+			new ReplayProfile("iw dev", IW_DEV_RECORDING, null).startAfter(Duration.ofMillis(5)),
+			// iw prints the whole result once the active scan of every channel is over
+			new ReplayProfile("iw dev [^ ]+ scan", IW_SCAN_RECORDING, null).startAfter(Duration.ofMillis(3500)),
+			new ReplayProfile("tshark -i .*", TSHARK_CAPTURE_RECORDING, List.of()).startAfter(Duration.ofMillis(600))
+					.lineEvery(BEACON_INTERVAL).hold(),
+			new ReplayProfile("tshark -r .*", TSHARK_FIELDS_RECORDING, null).startAfter(Duration.ofMillis(400))
+					.spreadOver(Duration.ofMillis(200)),
+			// the EAP exchange up to the server certificate, after which the supplicant is stopped
+			new ReplayProfile("wpa_supplicant .*", WPA_SUPPLICANT_RECORDING, null).startAfter(Duration.ofMillis(50))
+					.spreadOver(Duration.ofMillis(2500)).hold(),
+			// dominated by the Diffie-Hellman parameters
+			new ReplayProfile("bootstrap_enhanced .*", BOOTSTRAP_RECORDING, null).startAfter(Duration.ofMillis(100))
+					.spreadOver(Duration.ofSeconds(8)));
+
+	private final String commandPattern;
+
+	private final String recording;
+
+	private final List<String> defaultLines;
+
+	private Duration startDelay = Duration.ZERO;
+
+	private Duration outputSpan = Duration.ZERO;
+
+	private Duration lineInterval;
+
+	private Duration exitDelay = Duration.ZERO;
+
+
+	private ReplayProfile(String commandPattern, String recording, List<String> defaultLines)
+	{
+		this.commandPattern = commandPattern;
+		this.recording = recording;
+		this.defaultLines = defaultLines;
+	}
+
+
+	private ReplayProfile startAfter(Duration startDelay)
+	{
+		this.startDelay = startDelay;
+		return this;
+	}
+
+
+	private ReplayProfile spreadOver(Duration outputSpan)
+	{
+		this.outputSpan = outputSpan;
+		return this;
+	}
+
+
+	private ReplayProfile lineEvery(Duration lineInterval)
+	{
+		this.lineInterval = lineInterval;
+		return this;
+	}
+
+
+	private ReplayProfile exitAfter(Duration exitDelay)
+	{
+		this.exitDelay = exitDelay;
+		return this;
+	}
+
+
+	private ReplayProfile hold()
+	{
+		this.exitDelay = null;
+		return this;
+	}
+
+
+	/**
+	 * The command line the profile applies to, with the program reduced to its file name.
+	 */
+	public String getCommandPattern() {
+		return commandPattern;
+	}
+
+
+	/**
+	 * The program, the first word of the command pattern.
+	 */
+	public String getProgram() {
+		int space = commandPattern.indexOf(' ');
+		return space < 0 ? commandPattern : commandPattern.substring(0, space);
+	}
+
+
+	/**
+	 * The recording in directory, or the default lines if it cannot be read; null if the
+	 * profile has no default, in which case the command is left to the default behaviour.
+	 */
+	public List<String> lines(Path directory)
+	{
+		if(recording == null)
+			return defaultLines;
+		Path file = directory.resolve(recording);
+		if(!Files.isReadable(file))
+			return defaultLines;
+		try {
+			return Files.readAllLines(file);
+		} catch (IOException e) {
+			Log.error("Cannot read recording " + file, e);
+			return defaultLines;
+		}
+	}
+
+
+	public Duration getStartDelay() {
+		return startDelay;
+	}
+
+
+	/**
+	 * The time over which lineCount lines are printed after the first one.
+	 */
+	public Duration outputSpan(int lineCount)
+	{
+		return lineInterval != null ? lineInterval.multipliedBy(lineCount) : outputSpan;
+	}
+
+
+	/**
+	 * How long the process lingers after its output, or null if it runs until destroyed.
+	 */
+	public Duration getExitDelay() {
+		return exitDelay;
+	}
+
+
+}
@@ -1,5 +1,8 @@
 package it.unical.thesis.process;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public class Systemctl extends AbstractCommand{
 
 	private static final String NAME = "systemctl";
@@ -11,19 +14,17 @@ public class Systemctl extends AbstractCommand{
 
 
 
-	private void stop(String serviceName)
+	private CommandResult stop(String serviceName)
 	{
 		final String[] command = {NAME, "stop", serviceName};
-		this.execute(command);
-		this.waitIndefinitelyForCompletion();
+		return this.run(command);
 	}
 	
 
-	private void restart(String serviceName)
+	private CommandResult restart(String serviceName)
 	{
 		final String[] command = {NAME, "restart", serviceName};
-		this.execute(command);
-		this.waitIndefinitelyForCompletion();
+		return this.run(command);
 	}
 	
 	
@@ -38,6 +39,23 @@ public class Systemctl extends AbstractCommand{
 		//restart("wpa_supplicant");
 		restart("NetworkManager");
 	}
+
+
+	/**
+	 * Stops both services concurrently; the results are in the order NetworkManager, wpa_supplicant.
+	 */
+	public CompletableFuture<List<CommandResult>> stopNetworkManagerAndWpaSupplicantAsync()
+	{
+		CompletableFuture<CommandResult> networkManager = async(() -> stop("NetworkManager"));
+		CompletableFuture<CommandResult> wpaSupplicant = async(() -> stop("wpa_supplicant"));
+		return networkManager.thenCombine(wpaSupplicant, List::of);
+	}
+
+
+	public CompletableFuture<CommandResult> restartNetworkManagerAsync()
+	{
+		return async(() -> restart("NetworkManager"));
+	}
 	
 
 }
@@ -1,6 +1,14 @@
 package it.unical.thesis.process;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import it.unical.thesis.utils.Log;
 
 public class Tshark extends AbstractCommand{
 
@@ -8,6 +16,91 @@ public class Tshark extends AbstractCommand{
 
 	private static final int SCAN_DURATION = 15;
 
+	/**
+	 * The -T fields layout TsharkParser expects, columns 0-49.
+	 */
+	private static final List<String> FIELD_OPTIONS = List.of(
+			"-T", "fields",
+			"-E", "separator=|",
+			"-E", "quote=d",
+			"-E", "occurrence=a",
+			// Base fields (0-3)
+			"-e", "wlan.bssid",
+			"-e", "wlan.ssid",
+			"-e", "wlan_radio.channel",
+			"-e", "wlan.ds.current_channel",
+			// Frequency and mode (4-7)
+			"-e", "radiotap.channel.freq",
+			"-e", "radiotap.channel.flags.2ghz",
+			"-e", "radiotap.channel.flags.5ghz",
+			"-e", "radiotap.channel.flags.ofdm",
+			// Beacon and timing (8-9)
+			"-e", "wlan.fixed.beacon",
+			"-e", "wlan.tim.dtim_period",
+			// Capabilities (10-12)
+			"-e", "wlan.fixed.capabilities.privacy",
+			"-e", "wlan.fixed.capabilities.short_preamble",
+			"-e", "wlan.fixed.capabilities.short_slot_time",
+			// 802.11n/HT (13-14)
+			"-e", "wlan.ht.capabilities",
+			"-e", "wlan.ht.capabilities.ldpccoding",
+			// 802.11ac/VHT (15-17)
+			"-e", "wlan.vht.capabilities",
+			"-e", "wlan.vht.capabilities.rxldpc",
+			"-e", "wlan.vht.op.channelwidth",
+			// Rates (18-19)
+			"-e", "wlan.supported_rates",
+			"-e", "wlan.extended_supported_rates",
+			// Country and regulation (20-21)
+			"-e", "wlan.country_info.code",
+			"-e", "wlan.country_info.environment",
+			// RSN/WPA Security (22-28)
+			"-e", "wlan.rsn.version",
+			"-e", "wlan.rsn.akms.type",
+			"-e", "wlan.rsn.gcs.type",
+			"-e", "wlan.rsn.pcs.type",
+			"-e", "wlan.rsn.gmcs.type",
+			"-e", "wlan.rsn.capabilities.mfpc",
+			"-e", "wlan.rsn.capabilities.mfpr",
+			// RRM (29-31)
+			"-e", "wlan.fixed.capabilities.radio_measurement",
+			"-e", "wlan.rmcap",
+			"-e", "wlan.rmcap.b1",
+			// WPS (32-36)
+			"-e", "wps.version",
+			"-e", "wps.config_methods",
+			"-e", "wps.device_name",
+			"-e", "wps.manufacturer",
+			"-e", "wps.model_name",
+			// 802.11ax/HE (37-41)
+			"-e", "wlan.ext_tag.number",
+			"-e", "wlan.ext_tag.he_mac_caps",
+			"-e", "wlan.ext_tag.he_phy_cap.fbytes",
+			"-e", "wlan.ext_tag.bss_color_information.bss_color",
+			"-e", "wlan.ext_tag.he_operation.default_pe_duration",
+			// Extended capabilities (42)
+			"-e", "wlan.extcap",
+			// Vendor elements (43-45)
+			"-e", "wlan.tag.vendor.oui.type",
+			"-e", "wlan.tag.vendor.data",
+			"-e", "wlan.tag.oui",
+			// Hidden SSID (46)
+			"-e", "wlan.tag.length",
+			// Information fields (47-49)
+			"-e", "frame.time_relative",
+			"-e", "radiotap.dbm_antsignal",
+			"-e", "radiotap.antenna");
+
+	private static final int MIN_FRAMES = 3;
+
+	private static final int STOP_TIMEOUT = 2;
+
+	private static final int SUBTYPE_ASSOC_RESP = 1;
+
+	private static final int SUBTYPE_PROBE_RESP = 5;
+
+	private static final int SUBTYPE_BEACON = 8;
+
 
 	public Tshark()
 	{
@@ -16,109 +109,229 @@ public class Tshark extends AbstractCommand{
 
 
 	public void startScan(String interfaceName, String filePath, String bssid)
+	{
+		startScan(interfaceName, filePath, bssid, SCAN_DURATION, MIN_FRAMES);
+	}
+
+
+	/**
+	 * Captures frames of the target BSSID into filePath. The capture ends as soon as a beacon,
+	 * a probe response and an association response have all been seen and at least minFrames
+	 * frames were written, or after maxSeconds at the latest.
+	 */
+	public void startScan(String interfaceName, String filePath, String bssid, int maxSeconds, int minFrames)
+	{
+		scan(interfaceName, filePath, bssid, maxSeconds, minFrames);
+	}
+
+
+	public CompletableFuture<CommandResult> startScanAsync(String interfaceName, String filePath, String bssid)
+	{
+		return async(() -> scan(interfaceName, filePath, bssid, SCAN_DURATION, MIN_FRAMES));
+	}
+
+
+	private CommandResult scan(String interfaceName, String filePath, String bssid, int maxSeconds, int minFrames)
+	{
+		// -P keeps a one-field summary per packet on stdout while -w writes the capture
+		final String[] command = {NAME, "-i", interfaceName, "-f", buildCaptureFilter(bssid), "-w", filePath,
+				"-P", "-l", "-T", "fields", "-e", "wlan.fc.type_subtype"};
+		CaptureProgress progress = new CaptureProgress(minFrames, null);
+		return captureUntilComplete(progress, maxSeconds, command);
+	}
+
+
+	public void captureAndAnalyze(String interfaceName, String filePath, String bssid, Consumer<String> lineConsumer)
+	{
+		captureAndAnalyze(interfaceName, filePath, bssid, lineConsumer, SCAN_DURATION, MIN_FRAMES);
+	}
+
+
+	/**
+	 * Live counterpart of startScan followed by analyzeWithFilters: a single line-buffered
+	 * tshark dissects the target's frames as they arrive and hands each field row to
+	 * lineConsumer, with the same stop conditions as startScan. filePath may be null; when
+	 * given, the raw capture is also written there for archival.
+	 */
+	public void captureAndAnalyze(String interfaceName, String filePath, String bssid, Consumer<String> lineConsumer,
+			int maxSeconds, int minFrames)
+	{
+		captureLive(interfaceName, filePath, bssid, lineConsumer, maxSeconds, minFrames);
+	}
+
+
+	/**
+	 * Non-blocking captureAndAnalyze. lineConsumer is called on the reader thread and the
+	 * result carries no output lines, since they all went to the consumer.
+	 */
+	public CompletableFuture<CommandResult> captureAndAnalyzeAsync(String interfaceName, String filePath, String bssid,
+			Consumer<String> lineConsumer)
+	{
+		return async(() -> captureLive(interfaceName, filePath, bssid, lineConsumer, SCAN_DURATION, MIN_FRAMES));
+	}
+
+
+	private CommandResult captureLive(String interfaceName, String filePath, String bssid, Consumer<String> lineConsumer,
+			int maxSeconds, int minFrames)
+	{
+		List<String> command = new ArrayList<>(List.of(NAME, "-i", interfaceName, "-f", buildCaptureFilter(bssid), "-l"));
+		if(filePath != null)
+		{
+			command.addAll(List.of("-w", filePath, "-P"));
+		}
+		command.addAll(FIELD_OPTIONS);
+		// extra trailing column, ignored by TsharkParser, used to track the stop conditions
+		command.addAll(List.of("-e", "wlan.fc.type_subtype"));
+		CaptureProgress progress = new CaptureProgress(minFrames, lineConsumer);
+		return captureUntilComplete(progress, maxSeconds, command.toArray(new String[0]));
+	}
+
+
+	private CommandResult captureUntilComplete(CaptureProgress progress, int maxSeconds, String... command)
+	{
+		try (CommandHandle handle = this.execute(Duration.ofSeconds(maxSeconds), command)) {
+			if(handle == null)
+			{
+				return CommandResult.notStarted(command);
+			}
+			ProcessReader processReader = handle.read(progress);
+			try {
+				if(progress.await(handle.getRemainingMillis()))
+				{
+					Log.info("Capture complete after " + progress.frames + " frames");
+				}
+				handle.destroy();
+				// let tshark close the capture file before it is read
+				handle.awaitExit(STOP_TIMEOUT, TimeUnit.SECONDS);
+				processReader.join(TimeUnit.SECONDS.toMillis(STOP_TIMEOUT));
+			} catch (InterruptedException e) {
+				Log.error("Interrupted while stopping the capture", e);
+			}
+			return handle.toResult(List.of());
+		}
+	}
+
+
+	private static String buildCaptureFilter(String bssid)
 	{
 		// Build capture filter for target BSSID
-		String captureFilter = String.format(
+		return String.format(
 				"(type mgt subtype beacon and wlan addr2 %s) or " +
 						"(type mgt subtype probe-resp and wlan addr2 %s) or " +
 						"(type mgt subtype probe-req and wlan addr1 %s) or" +
 						"(type mgt subtype assoc-resp and wlan addr2 %s)",
 						bssid, bssid, bssid, bssid);
-		final String[] command = {NAME, "-i", interfaceName, "-f", captureFilter, "-w", filePath};
-		this.execute(command);
-		ProcessReader processReader = new ProcessReader(getInputStream());
-		processReader.start();
-		this.waitForCompletion(SCAN_DURATION);
-		this.destroyProcess();
 	}
 
 
-	public List<String> analyzeWithFilters(String fileName) {
-		String[] command = {
-				"tshark",
-				"-r", fileName,
-				"-T", "fields",
-				"-E", "separator=|",
-				"-E", "quote=d",
-				"-E", "occurrence=a",
-				// Base fields (0-3)
-				"-e", "wlan.bssid",
-				"-e", "wlan.ssid",
-				"-e", "wlan_radio.channel",
-				"-e", "wlan.ds.current_channel",
-				// Frequency and mode (4-7)
-				"-e", "radiotap.channel.freq",
-				"-e", "radiotap.channel.flags.2ghz",
-				"-e", "radiotap.channel.flags.5ghz",
-				"-e", "radiotap.channel.flags.ofdm",
-				// Beacon and timing (8-9)
-				"-e", "wlan.fixed.beacon",
-				"-e", "wlan.tim.dtim_period",
-				// Capabilities (10-12)
-				"-e", "wlan.fixed.capabilities.privacy",
-				"-e", "wlan.fixed.capabilities.short_preamble",
-				"-e", "wlan.fixed.capabilities.short_slot_time",
-				// 802.11n/HT (13-14)
-				"-e", "wlan.ht.capabilities",
-				"-e", "wlan.ht.capabilities.ldpccoding",
-				// 802.11ac/VHT (15-17)
-				"-e", "wlan.vht.capabilities",
-				"-e", "wlan.vht.capabilities.rxldpc",
-				"-e", "wlan.vht.op.channelwidth",
-				// Rates (18-19)
-				"-e", "wlan.supported_rates",
-				"-e", "wlan.extended_supported_rates",
-				// Country and regulation (20-21)
-				"-e", "wlan.country_info.code",
-				"-e", "wlan.country_info.environment",
-				// RSN/WPA Security (22-28)
-				"-e", "wlan.rsn.version",
-				"-e", "wlan.rsn.akms.type",
-				"-e", "wlan.rsn.gcs.type",
-				"-e", "wlan.rsn.pcs.type",
-				"-e", "wlan.rsn.gmcs.type",
-				"-e", "wlan.rsn.capabilities.mfpc",
-				"-e", "wlan.rsn.capabilities.mfpr",
-				// RRM (29-31)
-				"-e", "wlan.fixed.capabilities.radio_measurement",
-				"-e", "wlan.rmcap",
-				"-e", "wlan.rmcap.b1",
-				// WPS (32-36)
-				"-e", "wps.version",
-				"-e", "wps.config_methods",
-				"-e", "wps.device_name",
-				"-e", "wps.manufacturer",
-				"-e", "wps.model_name",
-				// 802.11ax/HE (37-41)
-				"-e", "wlan.ext_tag.number",
-				"-e", "wlan.ext_tag.he_mac_caps",
-				"-e", "wlan.ext_tag.he_phy_cap.fbytes",
-				"-e", "wlan.ext_tag.bss_color_information.bss_color",
-				"-e", "wlan.ext_tag.he_operation.default_pe_duration",
-				// Extended capabilities (42)
-				"-e", "wlan.extcap",
-				// Vendor elements (43-45)
-				"-e", "wlan.tag.vendor.oui.type",
-				"-e", "wlan.tag.vendor.data",
-				"-e", "wlan.tag.oui",
-				// Hidden SSID (46)
-				"-e", "wlan.tag.length",
-				// Information fields (47-49)
-				"-e", "frame.time_relative",
-				"-e", "radiotap.dbm_antsignal",
-				"-e", "radiotap.antenna"
-		};
-
-		this.execute(command);
-		ProcessReader processReader = new ProcessReader(getInputStream());
-		processReader.start();
-		this.waitIndefinitelyForCompletion();
-		try {
-			processReader.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+	public void analyzeWithFilters(String fileName, Consumer<String> lineConsumer) {
+		dissect(fileName, lineConsumer);
+	}
+
+
+	/**
+	 * Non-blocking analyzeWithFilters. lineConsumer is called on the reader thread and the
+	 * result carries no output lines, since they all went to the consumer.
+	 */
+	public CompletableFuture<CommandResult> analyzeWithFiltersAsync(String fileName, Consumer<String> lineConsumer) {
+		return async(() -> dissect(fileName, lineConsumer));
+	}
+
+
+	private CommandResult dissect(String fileName, Consumer<String> lineConsumer) {
+		List<String> command = new ArrayList<>(List.of(NAME, "-r", fileName));
+		command.addAll(FIELD_OPTIONS);
+
+		return this.runAndRead(null, lineConsumer, command.toArray(new String[0]));
+	}
+
+
+	/**
+	 * Counts the per-packet subtypes printed by a live capture (the last column of each row)
+	 * and releases the waiting thread once every required subtype and the minimum frame count
+	 * have been reached. Rows are forwarded to rowConsumer, if any; status lines are not.
+	 */
+	private static class CaptureProgress implements Consumer<String> {
+
+		private static final int REQUIRED_SUBTYPES = (1 << SUBTYPE_BEACON) | (1 << SUBTYPE_PROBE_RESP) | (1 << SUBTYPE_ASSOC_RESP);
+
+		private final CountDownLatch complete = new CountDownLatch(1);
+
+		private final int minFrames;
+
+		private final Consumer<String> rowConsumer;
+
+		private int seenSubtypes;
+
+		private volatile int frames;
+
+
+		private CaptureProgress(int minFrames, Consumer<String> rowConsumer)
+		{
+			this.minFrames = minFrames;
+			this.rowConsumer = rowConsumer;
+		}
+
+
+		@Override
+		public void accept(String line)
+		{
+			int subtype = parseSubtype(lastColumn(line));
+			if(subtype < 0)
+			{
+				return;
+			}
+			if(rowConsumer != null)
+			{
+				rowConsumer.accept(line);
+			}
+			frames++;
+			if(subtype < 16)
+			{
+				seenSubtypes |= 1 << subtype;
+			}
+			if((seenSubtypes & REQUIRED_SUBTYPES) == REQUIRED_SUBTYPES && frames >= minFrames)
+			{
+				complete.countDown();
+			}
+		}
+
+
+		private boolean await(long millis) throws InterruptedException
+		{
+			return complete.await(millis, TimeUnit.MILLISECONDS);
+		}
+
+
+		private static String lastColumn(String line)
+		{
+			String value = line.substring(line.lastIndexOf('|') + 1).trim();
+			if(value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))
+			{
+				value = value.substring(1, value.length() - 1);
+			}
+			return value;
+		}
+
+
+		// tshark prints the subtype as "8" or, in newer releases, as "0x0008"
+		private static int parseSubtype(String value)
+		{
+			if(value.isEmpty())
+			{
+				return -1;
+			}
+			try {
+				if(value.startsWith("0x"))
+				{
+					return Integer.parseInt(value.substring(2), 16);
+				}
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				// status lines such as "Capturing on 'wlan0'"
+				return -1;
+			}
 		}
-		return processReader.getLines();
 	}
 
 
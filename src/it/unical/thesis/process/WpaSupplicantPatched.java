@@ -5,6 +5,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+
+import it.unical.thesis.utils.Log;
 
 public class WpaSupplicantPatched extends AbstractWpaSupplicant {
 	
@@ -24,6 +27,29 @@ public class WpaSupplicantPatched extends AbstractWpaSupplicant {
 	
 	
 	
+	/**
+	 * Removes a chain left over from a previous target before connecting, so it cannot end the session early.
+	 */
+	@Override
+	protected CommandResult connectSession(String interfaceName, String networkConfPath, String wifiDriverBackend, int timeoutSeconds,
+			Consumer<String> lineConsumer)
+	{
+		try {
+			Files.deleteIfExists(Paths.get(CERTS_CHAIN_PATH));
+		} catch (IOException e) {
+			Log.error("Cannot delete the previous chain " + CERTS_CHAIN_PATH, e);
+		}
+		return super.connectSession(interfaceName, networkConfPath, wifiDriverBackend, timeoutSeconds, lineConsumer);
+	}
+	
+	
+	@Override
+	protected boolean isChainWritten()
+	{
+		return certsChainExists();
+	}
+	
+	
 	public boolean certsChainExists()
 	{
 		File file = new File(CERTS_CHAIN_PATH);
@@ -31,15 +57,19 @@ public class WpaSupplicantPatched extends AbstractWpaSupplicant {
 	}
 	
 	
-	public void moveCertsChainTo(String path)
+	/**
+	 * Moves the received chain into the given directory and returns its new path, or null if the move failed.
+	 */
+	public String moveCertsChainTo(String path)
 	{
 		File file = new File(CERTS_CHAIN_PATH);
 		//if(file.exists())
 		//{
 	        try {
-				Files.move(Paths.get(file.getAbsolutePath()), Paths.get(path+"/"+file.getName()), StandardCopyOption.REPLACE_EXISTING);
+				return Files.move(Paths.get(file.getAbsolutePath()), Paths.get(path+"/"+file.getName()), StandardCopyOption.REPLACE_EXISTING).toString();
 			} catch (IOException e) {
-				e.printStackTrace();
+				Log.error("Cannot move the chain to " + path, e);
+				return null;
 			} 
 		//}
 	}
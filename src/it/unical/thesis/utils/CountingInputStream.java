@@ -0,0 +1,75 @@
+package it.unical.thesis.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read through it and runs onEnd once, at end of stream or on close,
+ * whichever comes first.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final Runnable onEnd;
+    private volatile long count;
+    private boolean ended;
+
+    public CountingInputStream(InputStream in) {
+        this(in, null);
+    }
+
+    public CountingInputStream(InputStream in, Runnable onEnd) {
+        super(in);
+        this.onEnd = onEnd;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value < 0) {
+            end();
+        } else {
+            count++;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read < 0) {
+            end();
+        } else {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            end();
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    private void end() {
+        synchronized (this) {
+            if (ended) return;
+            ended = true;
+        }
+        if (onEnd != null) onEnd.run();
+    }
+}
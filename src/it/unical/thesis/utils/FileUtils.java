@@ -4,6 +4,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 
+import it.unical.thesis.metrics.FileWriteEvent;
+
 
 public final class FileUtils {
 
@@ -11,12 +13,23 @@ public final class FileUtils {
 
  
     public static boolean writeToFile(String filePath, String content) {
+        FileWriteEvent event = new FileWriteEvent();
+        event.begin();
         try (FileWriter writer = new FileWriter(filePath)) {
             writer.write(content);
+            event.success = true;
             return true;
         } catch (IOException e) {
-            e.printStackTrace();
+            event.success = false;
+            Log.error("Cannot write " + filePath, e);
             return false;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = filePath;
+                event.characters = content.length();
+                event.commit();
+            }
         }
     }
 
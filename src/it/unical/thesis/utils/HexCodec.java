@@ -0,0 +1,121 @@
+package it.unical.thesis.utils;
+
+import java.util.Arrays;
+
+/**
+ * Table-driven hex helpers shared by the parsers and converters. Decoding uses a
+ * 128-entry lookup instead of regexes, substring and Integer.parseInt.
+ */
+public final class HexCodec {
+
+    private static final char[] LOWER_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] UPPER_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final byte[] DIGIT_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(DIGIT_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            DIGIT_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            DIGIT_VALUES['a' + i] = (byte) (10 + i);
+            DIGIT_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * Value of a hex digit, or -1 if c is not one.
+     */
+    public static int digit(char c) {
+        return c < 128 ? DIGIT_VALUES[c] : -1;
+    }
+
+    /**
+     * True if every character in [from, to) is a hex digit. An empty range is hex.
+     */
+    public static boolean isHex(CharSequence value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (digit(value.charAt(i)) < 0) return false;
+        }
+        return true;
+    }
+
+    public static boolean isHex(CharSequence value) {
+        return isHex(value, 0, value.length());
+    }
+
+    /**
+     * Byte encoded by the two digits at pos, or -1 if either is not a hex digit.
+     */
+    public static int byteAt(CharSequence hex, int pos) {
+        int high = digit(hex.charAt(pos));
+        int low = digit(hex.charAt(pos + 1));
+        return high < 0 || low < 0 ? -1 : (high << 4) | low;
+    }
+
+    /**
+     * Reads up to maxBytes bytes from the hex digits of value, skipping any separators.
+     * A trailing odd digit counts as a byte of its own.
+     */
+    public static int[] readBytes(CharSequence value, int maxBytes) {
+        int[] bytes = new int[maxBytes];
+        int digits = 0;
+
+        for (int i = 0; i < value.length() && digits < maxBytes * 2; i++) {
+            int digit = digit(value.charAt(i));
+            if (digit < 0) continue;
+
+            bytes[digits / 2] = (bytes[digits / 2] << 4) | digit;
+            digits++;
+        }
+
+        return Arrays.copyOf(bytes, (digits + 1) / 2);
+    }
+
+    public static StringBuilder appendByte(StringBuilder builder, int value, boolean upperCase) {
+        char[] digits = upperCase ? UPPER_DIGITS : LOWER_DIGITS;
+        return builder.append(digits[(value >> 4) & 0x0f]).append(digits[value & 0x0f]);
+    }
+
+    /**
+     * Appends the low digits * 4 bits of value as zero-padded lower case hex.
+     */
+    public static StringBuilder appendHex(StringBuilder builder, long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            builder.append(LOWER_DIGITS[(int) (value >>> shift) & 0x0f]);
+        }
+        return builder;
+    }
+
+    /**
+     * Hex string of bytes, with separator between bytes when it is not empty.
+     */
+    public static String encode(byte[] bytes, boolean upperCase, String separator) {
+        StringBuilder builder = new StringBuilder(bytes.length * (2 + separator.length()));
+        for (int i = 0; i < bytes.length; i++) {
+            if (i > 0) builder.append(separator);
+            appendByte(builder, bytes[i], upperCase);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Copy of value without the given separator characters, or null if anything other
+     * than hex digits and separators is present. Letter case is kept.
+     */
+    public static String strip(CharSequence value, String separators) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (digit(c) >= 0) {
+                builder.append(c);
+            } else if (separators.indexOf(c) < 0) {
+                return null;
+            }
+        }
+        return builder.toString();
+    }
+}
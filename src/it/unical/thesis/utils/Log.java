@@ -0,0 +1,264 @@
+package it.unical.thesis.utils;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leveled console log written by a background thread, so callers such as process output
+ * readers never wait on the terminal. ERROR and WARN go to stderr, the rest to stdout. The
+ * level comes from -Dconfweaver.log.level and defaults to INFO, which keeps child process
+ * output (OUTPUT) quiet.
+ *
+ * Messages go through a bounded ring. When the writer falls behind, new DEBUG and OUTPUT lines
+ * are discarded, INFO replaces the oldest pending DEBUG or OUTPUT line or is discarded, and
+ * ERROR and WARN replace the oldest pending line below them or wait for room, so they are
+ * never lost. Losses are reported.
+ */
+public final class Log {
+
+    public enum Level {
+        ERROR, WARN, INFO, DEBUG, OUTPUT
+    }
+
+    public static final String LEVEL_PROPERTY = "confweaver.log.level";
+
+    private static final int CAPACITY = 8192;
+
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;
+
+    private static final Object LOCK = new Object();
+
+    private static final Level[] levels = new Level[CAPACITY];
+
+    private static final String[] messages = new String[CAPACITY];
+
+    private static volatile Level threshold = parseLevel(System.getProperty(LEVEL_PROPERTY));
+
+    // sequence numbers: next message to write, next free slot, end of what is on the console
+    private static long head;
+    private static long tail;
+    private static long written;
+
+    private static long dropped;
+    private static long reportedDropped;
+
+    static {
+        Thread writer = new Thread(Log::drain, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+    }
+
+    private Log() {}
+
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() <= threshold.ordinal();
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    /**
+     * An error with the stack trace of its cause, kept in one message so that it is not
+     * interleaved with other output.
+     */
+    public static void error(String message, Throwable cause) {
+        if (!isEnabled(Level.ERROR)) {
+            return;
+        }
+        StringWriter trace = new StringWriter();
+        cause.printStackTrace(new PrintWriter(trace));
+        String text = trace.toString().stripTrailing();
+        log(Level.ERROR, message != null ? message + System.lineSeparator() + text : text);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+
+    /**
+     * A line printed by a child process.
+     */
+    public static void output(String line) {
+        log(Level.OUTPUT, line);
+    }
+
+    public static void log(Level level, String message) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (tail - head == CAPACITY && !makeRoom(level)) {
+                dropped++;
+                return;
+            }
+            int slot = (int) (tail % CAPACITY);
+            levels[slot] = level;
+            messages[slot] = message;
+            tail++;
+            LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Frees a slot in the full ring for a message of the given level. A flood of child output
+     * or debug lines must not push out the operator's messages, and errors and warnings must
+     * not be lost at all, so they wait for the writer if nothing else can go.
+     */
+    private static boolean makeRoom(Level level) {
+        if (level.ordinal() > Level.INFO.ordinal()) {
+            return false;
+        }
+        if (evictOldest(Level.DEBUG)) {
+            return true;
+        }
+        if (level == Level.INFO) {
+            return false;
+        }
+        if (evictOldest(Level.INFO)) {
+            return true;
+        }
+        try {
+            while (tail - head == CAPACITY) {
+                LOCK.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the oldest pending message of the given level or below, keeping the order of
+     * the others.
+     */
+    private static boolean evictOldest(Level atOrBelow) {
+        for (long i = head; i < tail; i++) {
+            if (levels[(int) (i % CAPACITY)].ordinal() >= atOrBelow.ordinal()) {
+                for (long j = i; j > head; j--) {
+                    int to = (int) (j % CAPACITY);
+                    int from = (int) ((j - 1) % CAPACITY);
+                    levels[to] = levels[from];
+                    messages[to] = messages[from];
+                }
+                messages[(int) (head % CAPACITY)] = null;
+                head++;
+                dropped++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits until everything logged so far is on the console, e.g. before prompting for input.
+     */
+    public static void flush() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MILLIS);
+        synchronized (LOCK) {
+            long target = tail;
+            try {
+                long remaining;
+                while (written < target && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(LOCK, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static long getDroppedCount() {
+        synchronized (LOCK) {
+            return dropped;
+        }
+    }
+
+    private static void drain() {
+        Level[] batchLevels = new Level[CAPACITY];
+        String[] batch = new String[CAPACITY];
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int count;
+            long end;
+            long newlyDropped;
+            synchronized (LOCK) {
+                while (head == tail) {
+                    try {
+                        LOCK.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                count = (int) (tail - head);
+                for (int i = 0; i < count; i++) {
+                    int slot = (int) ((head + i) % CAPACITY);
+                    batchLevels[i] = levels[slot];
+                    batch[i] = messages[slot];
+                    messages[slot] = null;
+                }
+                head = tail;
+                end = tail;
+                newlyDropped = dropped - reportedDropped;
+                reportedDropped = dropped;
+            }
+
+            if (newlyDropped > 0) {
+                System.err.println("[log] " + newlyDropped + " messages dropped");
+            }
+            // consecutive messages for the same stream are written in one go
+            int i = 0;
+            while (i < count) {
+                boolean toErr = isErrorStream(batchLevels[i]);
+                text.setLength(0);
+                while (i < count && isErrorStream(batchLevels[i]) == toErr) {
+                    text.append(batch[i]).append(System.lineSeparator());
+                    batch[i] = null;
+                    i++;
+                }
+                PrintStream stream = toErr ? System.err : System.out;
+                stream.print(text);
+                stream.flush();
+            }
+
+            synchronized (LOCK) {
+                written = end;
+                LOCK.notifyAll();
+            }
+        }
+    }
+
+    private static Level parseLevel(String name) {
+        if (name == null) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown log level " + name + ", using INFO");
+            return Level.INFO;
+        }
+    }
+
+    private static boolean isErrorStream(Level level) {
+        return level.ordinal() <= Level.WARN.ordinal();
+    }
+}
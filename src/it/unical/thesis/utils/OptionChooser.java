@@ -13,12 +13,14 @@ public class OptionChooser {
 
     public int choose(int rangeMax) {
         if (rangeMax <= 0) {
-            System.err.println("Error: Cannot choose from a range of zero or less.");
+            Log.error("Error: Cannot choose from a range of zero or less.");
             return 0;
         }
 
         while (true) {
-            System.out.println("Choose your option from 1 to " + rangeMax + " (or type 0 to skip):");
+            Log.info("Choose your option from 1 to " + rangeMax + " (or type 0 to skip):");
+            // the prompt has to be on screen before blocking on input
+            Log.flush();
             String inputLine = scanner.nextLine();
             //scanner.nextInt();
             try {
@@ -27,11 +29,11 @@ public class OptionChooser {
                 if (chosen >= 0 && chosen <= rangeMax) {
                     return chosen;
                 } else {
-                    System.out.println("Invalid option! Please enter a number between 0 and " + rangeMax + ".");
+                    Log.info("Invalid option! Please enter a number between 0 and " + rangeMax + ".");
                 }
 
             } catch (NumberFormatException e) {
-                System.out.println("Invalid input! Please enter a valid number.");
+                Log.info("Invalid input! Please enter a valid number.");
             }
         }
     }
@@ -1,17 +1,9 @@
 package it.unical.thesis.utils;
 
 import java.math.BigInteger;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 
 public class SerialConverter {
     
-    private static final Pattern COLON_SEPARATED_HEX = Pattern.compile("^[0-9a-fA-F]{2}(:[0-9a-fA-F]{2})+$");
-    private static final Pattern DECIMAL_WITH_HEX = Pattern.compile("^(\\d+)\\s*\\(0x([0-9a-fA-F]+)\\)$");
-    private static final Pattern PURE_HEX = Pattern.compile("^(0x)?[0-9a-fA-F]+$");
-    private static final Pattern PURE_DECIMAL = Pattern.compile("^\\d+$");
-    
-
     public static String convertSerialToOpenSSLFormat(String serialNumber) {
         if (serialNumber == null || serialNumber.trim().isEmpty()) {
             throw new IllegalArgumentException("Serial number cannot be null or empty");
@@ -19,24 +11,22 @@ public class SerialConverter {
         
         String trimmed = serialNumber.trim();
         String result;
+        int hexStart;
         
-        if (COLON_SEPARATED_HEX.matcher(trimmed).matches()) {
-            result = trimmed.replace(":", "").toUpperCase();
+        if (isColonSeparatedHex(trimmed)) {
+            result = HexCodec.strip(trimmed, ":").toUpperCase();
         }
 
-        else if (DECIMAL_WITH_HEX.matcher(trimmed).matches()) {
-            Matcher decimalHexMatcher = DECIMAL_WITH_HEX.matcher(trimmed);
-            decimalHexMatcher.matches();
-            String hexPart = decimalHexMatcher.group(2);
-            result = hexPart.toUpperCase();
+        else if ((hexStart = decimalWithHexStart(trimmed)) >= 0) {
+            result = trimmed.substring(hexStart, trimmed.length() - 1).toUpperCase();
         }
 
-        else if (PURE_HEX.matcher(trimmed).matches()) {
+        else if (isPureHex(trimmed)) {
             String hex = trimmed.startsWith("0x") ? trimmed.substring(2) : trimmed;
             result = hex.toUpperCase();
         }
 
-        else if (PURE_DECIMAL.matcher(trimmed).matches()) {
+        else if (isDecimal(trimmed, 0, trimmed.length())) {
             BigInteger decimal = new BigInteger(trimmed);
             result = decimal.toString(16).toUpperCase();
         }
@@ -48,6 +38,51 @@ public class SerialConverter {
     }
     
 
+    // "1a:2b:3c": two or more colon separated pairs of hex digits
+    private static boolean isColonSeparatedHex(String value) {
+        int length = value.length();
+        if (length < 5 || length % 3 != 2) return false;
+        
+        for (int i = 0; i < length; i += 3) {
+            if (HexCodec.byteAt(value, i) < 0) return false;
+            if (i + 2 < length && value.charAt(i + 2) != ':') return false;
+        }
+        return true;
+    }
+    
+
+    // "4096 (0x1000)": returns where the hex digits start, or -1
+    private static int decimalWithHexStart(String value) {
+        int open = value.indexOf('(');
+        if (open < 1 || !value.endsWith(")")) return -1;
+        
+        int decimalEnd = open;
+        while (decimalEnd > 0 && Character.isWhitespace(value.charAt(decimalEnd - 1))) decimalEnd--;
+        if (decimalEnd == 0 || !isDecimal(value, 0, decimalEnd)) return -1;
+        
+        int hexStart = open + 3;
+        int hexEnd = value.length() - 1;
+        if (!value.startsWith("(0x", open) || hexStart >= hexEnd || !HexCodec.isHex(value, hexStart, hexEnd)) return -1;
+        return hexStart;
+    }
+    
+
+    private static boolean isPureHex(String value) {
+        int start = value.startsWith("0x") ? 2 : 0;
+        return start < value.length() && HexCodec.isHex(value, start, value.length());
+    }
+    
+
+    private static boolean isDecimal(String value, int from, int to) {
+        if (from >= to) return false;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+    
+
     private static String padSerial(String serial) {
         if (serial.length() == 1) {
             return "0" + serial;
@@ -63,12 +98,13 @@ public class SerialConverter {
         
         String hex = opensslSerial.trim().toUpperCase();
         
-        if (!hex.matches("^[0-9A-F]+$")) {
+        if (!HexCodec.isHex(hex)) {
             throw new IllegalArgumentException("OpenSSL serial must contain only hexadecimal characters: " + opensslSerial);
         }
         
-        BigInteger decimal = new BigInteger(hex, 16);
-        return decimal.toString() + " (0x" + hex + ")";
+        // up to 15 digits fit in a long, which covers the serials we generate
+        String decimal = hex.length() <= 15 ? Long.toString(Long.parseLong(hex, 16)) : new BigInteger(hex, 16).toString();
+        return decimal + " (0x" + hex + ")";
     }
     
 
@@ -76,7 +112,7 @@ public class SerialConverter {
         if (serialNumber == null || serialNumber.trim().isEmpty()) {
             return false;
         }
-        return serialNumber.trim().matches("^[0-9A-Fa-f]+$");
+        return HexCodec.isHex(serialNumber.trim());
     }
     
 
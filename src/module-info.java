@@ -5,4 +5,6 @@
  * 
  */
 module Tesi {
+	requires jdk.jfr;
+	requires jdk.management;
 }
\ No newline at end of file